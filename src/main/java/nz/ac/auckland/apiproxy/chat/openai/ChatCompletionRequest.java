@@ -1,18 +1,32 @@
 package nz.ac.auckland.apiproxy.chat.openai;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
-import javax.json.Json;
-import javax.json.JsonArrayBuilder;
-import javax.json.JsonObject;
-import javax.json.JsonObjectBuilder;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import nz.ac.auckland.apiproxy.config.ApiProxyConfig;
 import nz.ac.auckland.apiproxy.exceptions.ApiProxyException;
+import nz.ac.auckland.apiproxy.service.CircuitBreaker;
 import nz.ac.auckland.apiproxy.service.EndPoints;
+import nz.ac.auckland.apiproxy.service.HttpTransport;
+import nz.ac.auckland.apiproxy.service.JsonSupport;
+import nz.ac.auckland.apiproxy.service.ResiliencePolicy;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 
 public class ChatCompletionRequest {
 
@@ -35,11 +49,34 @@ public class ChatCompletionRequest {
   }
 
   private static final int NOT_SET = -1;
+  private static final byte[] MESSAGES_START =
+      "{\"messages\":[".getBytes(StandardCharsets.US_ASCII);
+
+  // Shared so the latency percentile used for hedging is learnt across all chat requests
+  private static final ResiliencePolicy DEFAULT_POLICY = ResiliencePolicy.forChat();
+  private static final ResiliencePolicy DEFAULT_STREAMING_POLICY =
+      ResiliencePolicy.forChatStreaming();
+
+  public static ResiliencePolicy getDefaultPolicy() {
+    return DEFAULT_POLICY;
+  }
+
+  public static ResiliencePolicy getDefaultStreamingPolicy() {
+    return DEFAULT_STREAMING_POLICY;
+  }
 
   private ApiProxyConfig config;
+  private String endpoint = EndPoints.PROXY_OPENAI_CHAT_COMPLETIONS;
+  private ResiliencePolicy resiliencePolicy = DEFAULT_POLICY;
+  private ResiliencePolicy streamingPolicy = DEFAULT_STREAMING_POLICY;
 
   // OpenAI required parameters
   private ArrayList<ChatMessage> messages = new ArrayList<>();
+  // Append-only encoding of the messages array contents, so each turn only encodes the new message
+  private final MessageBuffer encodedMessages = new MessageBuffer();
+  // Running token estimate of the messages, kept for the estimator of the current model
+  private TokenEstimator tokenEstimator = TokenEstimator.forModel(null);
+  private int messageTokens = 0;
   private Model model = null;
 
   // Optional parameters
@@ -56,12 +93,85 @@ public class ChatCompletionRequest {
     return addMessage(new ChatMessage(role, content));
   }
 
-  public ChatCompletionRequest addMessage(ChatMessage message) {
+  public synchronized ChatCompletionRequest addMessage(ChatMessage message) {
     messages.add(message);
+    encodedMessages.append(message.getEncoded());
+    messageTokens += tokenEstimator.countMessage(message);
     return this;
   }
 
-  public ChatCompletionRequest setModel(Model model) {
+  /** Returns a copy of the messages in the order they will be sent. */
+  public synchronized List<ChatMessage> getMessages() {
+    return List.copyOf(messages);
+  }
+
+  /**
+   * Estimates the prompt tokens this request will use, without calling the API. Message counts are
+   * cached, so calling this after every turn is cheap.
+   */
+  public synchronized int estimatePromptTokens() {
+    TokenEstimator estimator = TokenEstimator.forModel(model);
+    if (estimator != tokenEstimator) {
+      // The model changed to one with a different tokenizer since the messages were added
+      tokenEstimator = estimator;
+      messageTokens = 0;
+      for (ChatMessage message : messages) {
+        messageTokens += estimator.countMessage(message);
+      }
+    }
+    return messageTokens + estimator.getReplyPrimingTokens();
+  }
+
+  /**
+   * Drops the oldest non-system messages until the prompt estimate fits the budget. System messages
+   * and the newest message are always kept.
+   *
+   * @return the number of messages removed
+   */
+  public synchronized int trimToTokenBudget(int maxTokens) {
+    if (maxTokens < 1) {
+      throw new IllegalArgumentException(
+          "'maxTokens' must be at least 1, but was given " + maxTokens);
+    }
+    int estimate = estimatePromptTokens();
+    int removed = 0;
+    for (int i = 0; i < messages.size() - 1 && estimate > maxTokens; ) {
+      ChatMessage message = messages.get(i);
+      if (message.getRole().equals("system")) {
+        i++;
+        continue;
+      }
+      messages.remove(i);
+      int tokens = tokenEstimator.countMessage(message);
+      messageTokens -= tokens;
+      estimate -= tokens;
+      removed++;
+    }
+    if (removed > 0) {
+      encodedMessages.reset();
+      for (ChatMessage message : messages) {
+        encodedMessages.append(message.getEncoded());
+      }
+    }
+    return removed;
+  }
+
+  public ChatCompletionRequest setEndpoint(String endpoint) {
+    this.endpoint = endpoint;
+    return this;
+  }
+
+  public ChatCompletionRequest setResiliencePolicy(ResiliencePolicy resiliencePolicy) {
+    this.resiliencePolicy = resiliencePolicy;
+    return this;
+  }
+
+  public ChatCompletionRequest setStreamingPolicy(ResiliencePolicy streamingPolicy) {
+    this.streamingPolicy = streamingPolicy;
+    return this;
+  }
+
+  public synchronized ChatCompletionRequest setModel(Model model) {
     this.model = model;
     return this;
   }
@@ -101,76 +211,284 @@ public class ChatCompletionRequest {
     return this;
   }
 
-  @SuppressWarnings("resource")
   public ChatCompletionResult execute() throws ApiProxyException {
+    // Snapshot the body once so a retried or hedged attempt sends exactly the same request
+    byte[] body;
     try {
-      JsonArrayBuilder jsonMessages = Json.createArrayBuilder();
-      for (ChatMessage message : messages) {
-        jsonMessages.add(
-            Json.createObjectBuilder() //
-                .add("role", message.getRole()) //
-                .add("content", message.getContent()));
-      }
+      body = buildRequestBody(false);
+    } catch (IOException e) {
+      throw new ApiProxyException("Problem calling API: " + e.getMessage(), e);
+    }
+    CircuitBreaker circuitBreaker = EndPoints.getCircuitBreaker(endpoint);
+    return resiliencePolicy.execute(
+        track -> circuitBreaker.execute(() -> executeOnce(body, track)));
+  }
 
-      JsonObjectBuilder jsonOverallBuilder =
-          Json.createObjectBuilder() //
-              .add("messages", jsonMessages);
+  private ChatCompletionResult executeOnce(byte[] body, Consumer<HttpUriRequest> track)
+      throws ApiProxyException {
+    try {
+      CloseableHttpClient client = HttpTransport.getInstance().getClient();
 
-      jsonOverallBuilder.add("access_token", config.getApiKey()).add("email", config.getEmail());
+      HttpPost httpPost = new HttpPost(endpoint);
+      httpPost.setHeader("Content-Type", "application/json");
+      httpPost.setHeader("Accept", "application/json");
+      httpPost.setEntity(new ByteArrayEntity(body));
+      track.accept(httpPost);
 
-      if (maxTokens != NOT_SET) {
-        jsonOverallBuilder.add("max_tokens", maxTokens);
+      try (CloseableHttpResponse httpResponse = client.execute(httpPost)) {
+        checkStatus(httpResponse.getStatusLine().getStatusCode());
+        return toResult(
+            ChatCompletionResultParser.parseResponse(httpResponse.getEntity().getContent()));
       }
+    } catch (ApiProxyException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new ApiProxyException("Problem calling API: " + e.getMessage(), e);
+    }
+  }
 
-      if (temperature > NOT_SET) {
-        jsonOverallBuilder.add("temperature", temperature);
-      }
+  public CompletableFuture<ChatCompletionResult> executeAsync() {
+    return executeAsync(Duration.ofMillis(resiliencePolicy.getDeadlineMs()));
+  }
 
-      if (topP > NOT_SET) {
-        jsonOverallBuilder.add("top_p", topP);
-      }
+  public CompletableFuture<ChatCompletionResult> executeAsync(Duration timeout) {
+    // Snapshot the body on the calling thread so later addMessage calls don't leak into this call
+    byte[] body;
+    try {
+      body = buildRequestBody(false);
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(
+          new ApiProxyException("Problem calling API: " + e.getMessage(), e));
+    }
+    CircuitBreaker circuitBreaker = EndPoints.getCircuitBreaker(endpoint);
+    return resiliencePolicy.executeAsync(
+        attemptTimeout -> circuitBreaker.executeAsync(() -> executeAsyncOnce(body, attemptTimeout)),
+        timeout,
+        () -> true);
+  }
 
-      if (n != NOT_SET) {
-        jsonOverallBuilder.add("n", n);
-      }
+  private CompletableFuture<ChatCompletionResult> executeAsyncOnce(byte[] body, Duration timeout) {
+    HttpTransport transport = HttpTransport.getInstance();
+
+    HttpRequest httpRequest =
+        HttpRequest.newBuilder(URI.create(endpoint))
+            .timeout(timeout)
+            .header("Content-Type", "application/json")
+            .header("Accept", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build();
+
+    CompletableFuture<HttpResponse<byte[]>> response =
+        transport.getAsyncClient().sendAsync(httpRequest, HttpResponse.BodyHandlers.ofByteArray());
+
+    CompletableFuture<ChatCompletionResult> result =
+        response
+            .thenApplyAsync(
+                httpResponse -> {
+                  try {
+                    checkStatus(httpResponse.statusCode());
+                    return toResult(ChatCompletionResultParser.parseResponse(httpResponse.body()));
+                  } catch (ApiProxyException e) {
+                    throw new CompletionException(e);
+                  } catch (Exception e) {
+                    throw new CompletionException(
+                        new ApiProxyException("Problem calling API: " + e.getMessage(), e));
+                  }
+                },
+                transport.getAsyncExecutor())
+            .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+    // Cancelling or timing out the returned future aborts the underlying exchange as well
+    result.whenComplete(
+        (ignored, error) -> {
+          if (!response.isDone()) {
+            response.cancel(true);
+          }
+        });
+    return result;
+  }
 
-      if (model != null) {
-        jsonOverallBuilder.add("model", model.getModelName());
-      }
+  public CompletableFuture<ChatCompletionResult> executeStreaming(Consumer<String> onDelta) {
+    return executeStreaming(onDelta, Duration.ofMillis(streamingPolicy.getDeadlineMs()));
+  }
+
+  public CompletableFuture<ChatCompletionResult> executeStreaming(
+      Consumer<String> onDelta, Duration timeout) {
+    byte[] body;
+    try {
+      body = buildRequestBody(true);
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(
+          new ApiProxyException("Problem calling API: " + e.getMessage(), e));
+    }
 
-      CloseableHttpClient client = HttpClients.createDefault();
+    // Once any text has reached the listener a retry would repeat it, so only retry before that
+    AtomicBoolean deltaSeen = new AtomicBoolean(false);
+    Consumer<String> trackingListener =
+        delta -> {
+          deltaSeen.set(true);
+          onDelta.accept(delta);
+        };
+    CircuitBreaker circuitBreaker = EndPoints.getCircuitBreaker(endpoint);
+    return streamingPolicy.executeAsync(
+        attemptTimeout ->
+            circuitBreaker.executeAsync(
+                () -> executeStreamingOnce(body, trackingListener, attemptTimeout)),
+        timeout,
+        () -> !deltaSeen.get());
+  }
 
-      ResponseChatCompletionViaProxy responseChat = null;
-      JsonObject value = jsonOverallBuilder.build();
+  private CompletableFuture<ChatCompletionResult> executeStreamingOnce(
+      byte[] body, Consumer<String> onDelta, Duration timeout) {
+    HttpTransport transport = HttpTransport.getInstance();
+
+    HttpRequest httpRequest =
+        HttpRequest.newBuilder(URI.create(endpoint))
+            .timeout(timeout)
+            .header("Content-Type", "application/json")
+            .header("Accept", "text/event-stream, application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build();
+
+    // Deltas are pushed to the listener from the client's executor as each line arrives; error
+    // bodies worth retrying are discarded unread
+    ChatCompletionStreamSubscriber subscriber = new ChatCompletionStreamSubscriber(onDelta);
+    CompletableFuture<HttpResponse<ChatCompletionResult>> response =
+        transport
+            .getAsyncClient()
+            .sendAsync(
+                httpRequest,
+                responseInfo ->
+                    ResiliencePolicy.isRetryableStatus(responseInfo.statusCode())
+                        ? HttpResponse.BodySubscribers.<ChatCompletionResult>replacing(null)
+                        : HttpResponse.BodySubscribers.fromLineSubscriber(
+                            subscriber,
+                            ChatCompletionStreamSubscriber::getResult,
+                            StandardCharsets.UTF_8,
+                            "\n"));
+
+    CompletableFuture<ChatCompletionResult> result =
+        response
+            .handle(
+                (httpResponse, error) -> {
+                  if (error != null) {
+                    Throwable cause =
+                        error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause()
+                            : error;
+                    if (cause instanceof ChatCompletionStreamSubscriber.StreamFailure) {
+                      cause = cause.getCause();
+                    }
+                    throw new CompletionException(
+                        cause instanceof ApiProxyException
+                            ? cause
+                            : new ApiProxyException(
+                                "Problem calling API: " + cause.getMessage(), cause));
+                  }
+                  try {
+                    checkStatus(httpResponse.statusCode());
+                  } catch (ApiProxyException e) {
+                    throw new CompletionException(e);
+                  }
+                  ChatCompletionResult completion = httpResponse.body();
+                  printUsage(completion);
+                  return completion;
+                })
+            .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+    result.whenComplete(
+        (ignored, error) -> {
+          if (!response.isDone()) {
+            response.cancel(true);
+          }
+        });
+    return result;
+  }
 
-      HttpPost httpPost = new HttpPost(EndPoints.PROXY_OPENAI_CHAT_COMPLETIONS);
-      httpPost.setHeader("Content-Type", "application/json");
-      httpPost.setHeader("Accept", "application/json");
-      httpPost.setEntity(new StringEntity(value.toString()));
-      ObjectMapper mapperApiMapper = new ObjectMapper();
-
-      responseChat =
-          (ResponseChatCompletionViaProxy)
-              client.execute(
-                  httpPost,
-                  httpResponse ->
-                      mapperApiMapper.readValue(
-                          httpResponse.getEntity().getContent(),
-                          ResponseChatCompletionViaProxy.class));
-
-      if (!responseChat.success && responseChat.code != 0) {
-        throw new ApiProxyException("Problem calling API: " + responseChat.message);
+  private void checkStatus(int statusCode) throws ApiProxyException {
+    if (ResiliencePolicy.isRetryableStatus(statusCode)) {
+      throw new ApiProxyException("Problem calling API: HTTP " + statusCode, statusCode);
+    }
+  }
+
+  synchronized byte[] buildRequestBody(boolean stream) throws IOException {
+    // {"messages":[<cached messages>], <other fields>}
+    byte[] otherFields = JsonSupport.encode(generator -> writeRequestFields(generator, stream));
+    int messagesLength = encodedMessages.size();
+    byte[] body = new byte[MESSAGES_START.length + messagesLength + 1 + otherFields.length];
+
+    int position = 0;
+    System.arraycopy(MESSAGES_START, 0, body, position, MESSAGES_START.length);
+    position += MESSAGES_START.length;
+    encodedMessages.copyTo(body, position);
+    position += messagesLength;
+    body[position++] = ']';
+    // Splice the other fields in place of their own opening brace
+    otherFields[0] = ',';
+    System.arraycopy(otherFields, 0, body, position, otherFields.length);
+    return body;
+  }
+
+  private void writeRequestFields(JsonGenerator generator, boolean stream) throws IOException {
+    generator.writeStartObject();
+
+    generator.writeStringField("access_token", config.getApiKey());
+    generator.writeStringField("email", config.getEmail());
+
+    if (maxTokens != NOT_SET) {
+      generator.writeNumberField("max_tokens", maxTokens);
+    }
+
+    if (temperature > NOT_SET) {
+      generator.writeNumberField("temperature", temperature);
+    }
+
+    if (topP > NOT_SET) {
+      generator.writeNumberField("top_p", topP);
+    }
+
+    if (n != NOT_SET) {
+      generator.writeNumberField("n", n);
+    }
+
+    if (model != null) {
+      generator.writeStringField("model", model.getModelName());
+    }
+
+    if (stream) {
+      generator.writeBooleanField("stream", true);
+      generator.writeObjectFieldStart("stream_options");
+      generator.writeBooleanField("include_usage", true);
+      generator.writeEndObject();
+    }
+
+    generator.writeEndObject();
+  }
+
+  private ChatCompletionResult toResult(ChatCompletionResult result) {
+    printUsage(result);
+    return result;
+  }
+
+  private void printUsage(ChatCompletionResult result) {
+    System.out.println(
+        "*** ChatCompletion used "
+            + result.getUsageTotalTokens()
+            + " tokens. If this seems like a lot, try other models that might use less tokens."
+            + " GPT4 models tend to use less than the GPT5 models.");
+  }
+
+  private static class MessageBuffer extends ByteArrayOutputStream {
+
+    private void append(byte[] encodedMessage) {
+      if (count > 0) {
+        write(',');
       }
-      ChatCompletionResult result = new ChatCompletionResult(responseChat.chat_completion);
-      System.out.println(
-          "*** ChatCompletion used "
-              + result.getUsageTotalTokens()
-              + " tokens. If this seems like a lot, try other models that might use less tokens."
-              + " GPT4 models tend to use less than the GPT5 models.");
-
-      return result;
-    } catch (Exception e) {
-      throw new ApiProxyException("Problem calling API: " + e.getMessage());
+      write(encodedMessage, 0, encodedMessage.length);
+    }
+
+    private void copyTo(byte[] target, int offset) {
+      System.arraycopy(buf, 0, target, offset, count);
     }
   }
 }
@@ -2,7 +2,6 @@ package nz.ac.auckland.apiproxy.chat.openai;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 public class ChatCompletionResult {
 
@@ -15,33 +14,19 @@ public class ChatCompletionResult {
 
   private List<Choice> choices = new ArrayList<>();
 
-  protected ChatCompletionResult(Map<String, Object> chatCompletion) {
-    parse(chatCompletion);
-  }
-
-  private void parse(Map<String, Object> chatCompletion) {
-    model = chatCompletion.get("model").toString();
-    created =
-        chatCompletion.get("created") == null
-            ? 0
-            : Long.parseLong(chatCompletion.get("created").toString());
-    usagePromptToken = getUsage("prompt_tokens", chatCompletion);
-    usageCompletionTokens = getUsage("completion_tokens", chatCompletion);
-    usageTotalTokens = getUsage("total_tokens", chatCompletion);
-
-    List<?> choicesJson = (List<?>) chatCompletion.get("choices");
-    for (int c = 0; c < choicesJson.size(); c++) {
-      Map<?, ?> choiceJson = (Map<?, ?>) choicesJson.get(c);
-      Map<?, ?> messageJson = (Map<?, ?>) choiceJson.get("message");
-
-      String role = messageJson.get("role").toString();
-      String content = messageJson.get("content").toString();
-
-      int index = Integer.parseInt(choiceJson.get("index").toString());
-      String finishReason = choiceJson.get("finish_reason").toString();
-
-      choices.add(new Choice(new ChatMessage(role, content), index, finishReason));
-    }
+  protected ChatCompletionResult(
+      String model,
+      long created,
+      int usagePromptToken,
+      int usageCompletionTokens,
+      int usageTotalTokens,
+      List<Choice> choices) {
+    this.model = model;
+    this.created = created;
+    this.usagePromptToken = usagePromptToken;
+    this.usageCompletionTokens = usageCompletionTokens;
+    this.usageTotalTokens = usageTotalTokens;
+    this.choices = choices;
   }
 
   public int getUsagePromptTokens() {
@@ -64,11 +49,6 @@ public class ChatCompletionResult {
     return created;
   }
 
-  private int getUsage(String key, Map<String, Object> chatCompletion) {
-    Map<?, ?> usage = (Map<?, ?>) chatCompletion.get("usage");
-    return Integer.parseInt(usage.get(key).toString());
-  }
-
   public Choice getChoice(int index) {
     if (index < 0 || index >= choices.size()) {
       throw new IllegalArgumentException(
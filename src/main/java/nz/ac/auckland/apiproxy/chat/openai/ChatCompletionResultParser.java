@@ -0,0 +1,194 @@
+package nz.ac.auckland.apiproxy.chat.openai;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import nz.ac.auckland.apiproxy.exceptions.ApiProxyException;
+import nz.ac.auckland.apiproxy.service.JsonSupport;
+
+/**
+ * Decodes proxy chat completion responses token by token, straight into {@link
+ * ChatCompletionResult} and {@link Choice} without building an intermediate tree or map.
+ */
+public class ChatCompletionResultParser {
+
+  public static ChatCompletionResult parseResponse(InputStream in)
+      throws IOException, ApiProxyException {
+    try (JsonParser parser = JsonSupport.getFactory().createParser(in)) {
+      return parseResponse(parser);
+    }
+  }
+
+  public static ChatCompletionResult parseResponse(byte[] body)
+      throws IOException, ApiProxyException {
+    try (JsonParser parser = JsonSupport.getFactory().createParser(body)) {
+      return parseResponse(parser);
+    }
+  }
+
+  public static ChatCompletionResult parseResponse(String body)
+      throws IOException, ApiProxyException {
+    try (JsonParser parser = JsonSupport.getFactory().createParser(body)) {
+      return parseResponse(parser);
+    }
+  }
+
+  /**
+   * Reads the proxy envelope ({@code success}, {@code code}, {@code message}, {@code
+   * chat_completion}) and returns the completion, or throws if the proxy reported a failure.
+   */
+  static ChatCompletionResult parseResponse(JsonParser parser)
+      throws IOException, ApiProxyException {
+    expect(parser.nextToken(), JsonToken.START_OBJECT, parser);
+
+    boolean success = false;
+    int code = 0;
+    String message = null;
+    ChatCompletionResult result = null;
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken value = parser.nextToken();
+      switch (field) {
+        case "success":
+          success = value == JsonToken.VALUE_TRUE;
+          break;
+        case "code":
+          code = value == JsonToken.VALUE_NULL ? 0 : parser.getValueAsInt();
+          break;
+        case "message":
+          message = parser.getValueAsString();
+          break;
+        case "chat_completion":
+          result = value == JsonToken.START_OBJECT ? parseChatCompletion(parser) : null;
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+
+    // The envelope fields may come in any order, so the outcome is only known at the end
+    if (!success && code != 0) {
+      throw new ApiProxyException("Problem calling API: " + message);
+    }
+    if (result == null) {
+      throw new ApiProxyException("Problem calling API: response has no chat completion");
+    }
+    return result;
+  }
+
+  /** Reads a chat completion object; the parser must be positioned on its START_OBJECT. */
+  static ChatCompletionResult parseChatCompletion(JsonParser parser) throws IOException {
+    String model = "";
+    long created = 0;
+    int promptTokens = 0;
+    int completionTokens = 0;
+    int totalTokens = 0;
+    List<Choice> choices = new ArrayList<>(1);
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken value = parser.nextToken();
+      switch (field) {
+        case "model":
+          model = parser.getValueAsString("");
+          break;
+        case "created":
+          created = parser.getValueAsLong();
+          break;
+        case "usage":
+          if (value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            break;
+          }
+          while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String usageField = parser.currentName();
+            parser.nextToken();
+            switch (usageField) {
+              case "prompt_tokens":
+                promptTokens = parser.getValueAsInt();
+                break;
+              case "completion_tokens":
+                completionTokens = parser.getValueAsInt();
+                break;
+              case "total_tokens":
+                totalTokens = parser.getValueAsInt();
+                break;
+              default:
+                parser.skipChildren();
+            }
+          }
+          break;
+        case "choices":
+          if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            break;
+          }
+          while (parser.nextToken() == JsonToken.START_OBJECT) {
+            choices.add(parseChoice(parser));
+          }
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+
+    return new ChatCompletionResult(
+        model, created, promptTokens, completionTokens, totalTokens, choices);
+  }
+
+  private static Choice parseChoice(JsonParser parser) throws IOException {
+    int index = 0;
+    String finishReason = null;
+    String role = "assistant";
+    String content = "";
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken value = parser.nextToken();
+      switch (field) {
+        case "index":
+          index = parser.getValueAsInt();
+          break;
+        case "finish_reason":
+          finishReason = parser.getValueAsString();
+          break;
+        case "message":
+          if (value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            break;
+          }
+          while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String messageField = parser.currentName();
+            parser.nextToken();
+            switch (messageField) {
+              case "role":
+                role = parser.getValueAsString(role);
+                break;
+              case "content":
+                content = parser.getValueAsString("");
+                break;
+              default:
+                parser.skipChildren();
+            }
+          }
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+
+    return new Choice(new ChatMessage(role, content), index, finishReason);
+  }
+
+  private static void expect(JsonToken actual, JsonToken expected, JsonParser parser)
+      throws IOException {
+    if (actual != expected) {
+      throw new JsonParseException(parser, "Expected " + expected + " but found " + actual);
+    }
+  }
+}
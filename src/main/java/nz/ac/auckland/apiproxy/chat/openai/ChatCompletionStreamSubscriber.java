@@ -0,0 +1,155 @@
+package nz.ac.auckland.apiproxy.chat.openai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+import nz.ac.auckland.apiproxy.exceptions.ApiProxyException;
+import nz.ac.auckland.apiproxy.service.JsonSupport;
+
+/**
+ * Consumes a chat completion response line by line, forwarding server-sent-event content deltas as
+ * they arrive. A plain JSON body (proxy ignored the stream flag) is delivered in one piece.
+ */
+public class ChatCompletionStreamSubscriber implements Flow.Subscriber<String> {
+
+  private static final String DATA_PREFIX = "data:";
+  private static final String DONE_MARKER = "[DONE]";
+
+  private final Consumer<String> onDelta;
+
+  private final StringBuilder content = new StringBuilder();
+  private final StringBuilder plainBody = new StringBuilder();
+  private boolean sawEvents = false;
+  private String role = "assistant";
+  private String model = "";
+  private long created = 0;
+  private String finishReason = null;
+  private int usagePromptTokens = 0;
+  private int usageCompletionTokens = 0;
+  private int usageTotalTokens = 0;
+  private Exception failure = null;
+
+  public ChatCompletionStreamSubscriber(Consumer<String> onDelta) {
+    this.onDelta = onDelta;
+  }
+
+  @Override
+  public void onSubscribe(Flow.Subscription subscription) {
+    subscription.request(Long.MAX_VALUE);
+  }
+
+  @Override
+  public void onNext(String line) {
+    if (failure != null) {
+      return;
+    }
+    try {
+      handleLine(line);
+    } catch (Exception e) {
+      failure = e;
+    }
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    // The HTTP client completes the response future exceptionally; nothing to record here
+  }
+
+  @Override
+  public void onComplete() {}
+
+  private void handleLine(String line) throws Exception {
+    if (!line.startsWith(DATA_PREFIX)) {
+      // Blank separators and comment/event lines carry nothing for us in an event stream
+      if (!sawEvents) {
+        plainBody.append(line).append('\n');
+      }
+      return;
+    }
+
+    sawEvents = true;
+    String data = line.substring(DATA_PREFIX.length()).trim();
+    if (data.isEmpty() || data.equals(DONE_MARKER)) {
+      return;
+    }
+
+    JsonNode chunk = JsonSupport.getMapper().readTree(data);
+    if (chunk.hasNonNull("error")) {
+      throw new ApiProxyException("Problem calling API: " + chunk.get("error").toString());
+    }
+    if (chunk.hasNonNull("model")) {
+      model = chunk.get("model").asText();
+    }
+    if (chunk.hasNonNull("created")) {
+      created = chunk.get("created").asLong();
+    }
+    JsonNode usage = chunk.get("usage");
+    if (usage != null && usage.isObject()) {
+      usagePromptTokens = usage.path("prompt_tokens").asInt();
+      usageCompletionTokens = usage.path("completion_tokens").asInt();
+      usageTotalTokens = usage.path("total_tokens").asInt();
+    }
+
+    for (JsonNode choice : chunk.path("choices")) {
+      if (choice.path("index").asInt() != 0) {
+        continue;
+      }
+      JsonNode delta = choice.path("delta");
+      if (delta.hasNonNull("role")) {
+        role = delta.get("role").asText();
+      }
+      if (delta.hasNonNull("content")) {
+        String text = delta.get("content").asText();
+        if (!text.isEmpty()) {
+          content.append(text);
+          onDelta.accept(text);
+        }
+      }
+      if (choice.hasNonNull("finish_reason")) {
+        finishReason = choice.get("finish_reason").asText();
+      }
+    }
+  }
+
+  /**
+   * Builds the final result once the body has been fully consumed.
+   *
+   * @return the accumulated completion
+   */
+  public ChatCompletionResult getResult() {
+    try {
+      if (failure != null) {
+        throw failure;
+      }
+      if (!sawEvents) {
+        // The proxy ignored the stream flag and answered with a complete response
+        ChatCompletionResult result =
+            ChatCompletionResultParser.parseResponse(plainBody.toString());
+        if (result.getNumChoices() > 0) {
+          onDelta.accept(result.getChoice(0).getChatMessage().getContent());
+        }
+        return result;
+      }
+
+      List<Choice> choices = new ArrayList<>();
+      choices.add(new Choice(new ChatMessage(role, content.toString()), 0, finishReason));
+      return new ChatCompletionResult(
+          model, created, usagePromptTokens, usageCompletionTokens, usageTotalTokens, choices);
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new StreamFailure(e);
+    }
+  }
+
+  /** Unchecked carrier so a decoding failure can leave the HTTP client's body finisher. */
+  static class StreamFailure extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    StreamFailure(Exception cause) {
+      super(cause.getMessage(), cause);
+    }
+  }
+}
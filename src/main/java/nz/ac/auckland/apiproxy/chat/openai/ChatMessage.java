@@ -1,9 +1,18 @@
 package nz.ac.auckland.apiproxy.chat.openai;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import nz.ac.auckland.apiproxy.service.JsonSupport;
+
 public class ChatMessage {
 
-  private String role;
-  private String content;
+  private final String role;
+  private final String content;
+
+  // Messages never change, so their JSON form is encoded once and reused on every request
+  private volatile byte[] encoded;
+  // Token estimate, remembered along with the estimator that produced it
+  private volatile TokenCount tokenCount;
 
   public ChatMessage(String role, String content) {
     this.role = role;
@@ -17,4 +26,43 @@ public class ChatMessage {
   public String getContent() {
     return content;
   }
+
+  int getTokenCount(TokenEstimator estimator) {
+    TokenCount count = tokenCount;
+    if (count == null || count.estimator != estimator) {
+      count = new TokenCount(estimator, estimator.countMessageUncached(this));
+      tokenCount = count;
+    }
+    return count.tokens;
+  }
+
+  byte[] getEncoded() {
+    byte[] bytes = encoded;
+    if (bytes == null) {
+      try {
+        bytes =
+            JsonSupport.encode(
+                generator -> {
+                  generator.writeStartObject();
+                  generator.writeStringField("role", role);
+                  generator.writeStringField("content", content);
+                  generator.writeEndObject();
+                });
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      encoded = bytes;
+    }
+    return bytes;
+  }
+
+  private static class TokenCount {
+    private final TokenEstimator estimator;
+    private final int tokens;
+
+    private TokenCount(TokenEstimator estimator, int tokens) {
+      this.estimator = estimator;
+      this.tokens = tokens;
+    }
+  }
 }
@@ -0,0 +1,111 @@
+package nz.ac.auckland.apiproxy.chat.openai;
+
+import java.util.EnumMap;
+import java.util.Map;
+import nz.ac.auckland.apiproxy.chat.openai.ChatCompletionRequest.Model;
+
+/**
+ * Estimates how many tokens a prompt will use without calling the API. The estimate follows the way
+ * the model's tokenizer splits text (words, digit groups, punctuation and whitespace) rather than
+ * counting characters, so it stays close to the real count for typical English chat.
+ */
+public class TokenEstimator {
+
+  // Every model the proxy offers uses the o200k encoding, so they share one estimator
+  private static final TokenEstimator O200K_BASE = new TokenEstimator("o200k_base", 3, 1, 3);
+
+  private static final Map<Model, TokenEstimator> BY_MODEL = new EnumMap<>(Model.class);
+
+  static {
+    for (Model model : Model.values()) {
+      BY_MODEL.put(model, O200K_BASE);
+    }
+  }
+
+  public static TokenEstimator forModel(Model model) {
+    if (model == null) {
+      return O200K_BASE;
+    }
+    return BY_MODEL.get(model);
+  }
+
+  private final String encodingName;
+  private final int tokensPerMessage;
+  private final int tokensPerRole;
+  private final int replyPrimingTokens;
+
+  private TokenEstimator(
+      String encodingName, int tokensPerMessage, int tokensPerRole, int replyPrimingTokens) {
+    this.encodingName = encodingName;
+    this.tokensPerMessage = tokensPerMessage;
+    this.tokensPerRole = tokensPerRole;
+    this.replyPrimingTokens = replyPrimingTokens;
+  }
+
+  public String getEncodingName() {
+    return encodingName;
+  }
+
+  /** Tokens added once per request for the assistant reply header. */
+  public int getReplyPrimingTokens() {
+    return replyPrimingTokens;
+  }
+
+  /** Estimated tokens for a message, including its role and framing. Cached on the message. */
+  public int countMessage(ChatMessage message) {
+    return message.getTokenCount(this);
+  }
+
+  int countMessageUncached(ChatMessage message) {
+    return tokensPerMessage + tokensPerRole + countTokens(message.getContent());
+  }
+
+  /** Estimated tokens for a piece of text on its own. */
+  public int countTokens(String text) {
+    if (text == null || text.isEmpty()) {
+      return 0;
+    }
+
+    int tokens = 0;
+    int length = text.length();
+    int i = 0;
+    while (i < length) {
+      int codePoint = text.codePointAt(i);
+      int start = i;
+
+      if (Character.isIdeographic(codePoint)) {
+        // CJK text is roughly one token per character
+        tokens++;
+        i += Character.charCount(codePoint);
+      } else if (Character.isLetter(codePoint)) {
+        while (i < length && Character.isLetter(text.codePointAt(i))) {
+          i += Character.charCount(text.codePointAt(i));
+        }
+        // Common words are a single token; long or rare words split into pieces of about six
+        int letters = i - start;
+        tokens += letters <= 8 ? 1 : (letters + 5) / 6;
+      } else if (Character.isDigit(codePoint)) {
+        int digits = 0;
+        while (i < length && Character.isDigit(text.codePointAt(i))) {
+          i += Character.charCount(text.codePointAt(i));
+          digits++;
+        }
+        // Numbers are split into groups of up to three digits
+        tokens += (digits + 2) / 3;
+      } else if (Character.isWhitespace(codePoint)) {
+        while (i < length && Character.isWhitespace(text.codePointAt(i))) {
+          i += Character.charCount(text.codePointAt(i));
+        }
+        // A single space is merged into the following word; newlines and runs are tokens
+        if (i - start > 1 || codePoint != ' ' || i == length) {
+          tokens++;
+        }
+      } else {
+        // Punctuation, symbols and emoji; characters outside the BMP usually take more than one
+        tokens += Character.isSupplementaryCodePoint(codePoint) ? 2 : 1;
+        i += Character.charCount(codePoint);
+      }
+    }
+    return tokens;
+  }
+}
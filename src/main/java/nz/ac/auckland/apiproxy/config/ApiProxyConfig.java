@@ -16,7 +16,7 @@ public class ApiProxyConfig {
 
   private ApiProxyConfig() {}
 
-  private ApiProxyConfig(String apiKey, String email) {
+  public ApiProxyConfig(String apiKey, String email) {
     this.apiKey = apiKey;
     this.email = email;
   }
@@ -4,11 +4,27 @@ public class ApiProxyException extends Exception {
 
   private static final long serialVersionUID = 1L;
 
+  private final int statusCode;
+
   public ApiProxyException(String message) {
-    super(message);
+    this(message, null, 0);
   }
 
   public ApiProxyException(String message, Throwable cause) {
+    this(message, cause, 0);
+  }
+
+  public ApiProxyException(String message, int statusCode) {
+    this(message, null, statusCode);
+  }
+
+  public ApiProxyException(String message, Throwable cause, int statusCode) {
     super(message, cause);
+    this.statusCode = statusCode;
+  }
+
+  /** HTTP status returned by the proxy, or 0 if the call failed before a response arrived. */
+  public int getStatusCode() {
+    return statusCode;
   }
 }
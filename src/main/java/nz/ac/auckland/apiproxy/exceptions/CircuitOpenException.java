@@ -0,0 +1,18 @@
+package nz.ac.auckland.apiproxy.exceptions;
+
+public class CircuitOpenException extends ApiProxyException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final long retryAfterMs;
+
+  public CircuitOpenException(String message, long retryAfterMs) {
+    super(message);
+    this.retryAfterMs = retryAfterMs;
+  }
+
+  /** Time until the breaker lets a trial call through again. */
+  public long getRetryAfterMs() {
+    return retryAfterMs;
+  }
+}
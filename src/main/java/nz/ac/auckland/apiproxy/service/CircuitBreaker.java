@@ -0,0 +1,254 @@
+package nz.ac.auckland.apiproxy.service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import nz.ac.auckland.apiproxy.exceptions.ApiProxyException;
+import nz.ac.auckland.apiproxy.exceptions.CircuitOpenException;
+
+public class CircuitBreaker {
+
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final String name;
+
+  private int windowSize = 10;
+  private int minimumCalls = 5;
+  private double failureRateThreshold = 0.5;
+  private double slowCallRateThreshold = 0.8;
+  private long slowCallThresholdMs = 20000;
+  private long openDurationMs = 15000;
+  private int halfOpenTrialCalls = 2;
+
+  // Outcomes of the most recent calls while closed: 0 = ok, 1 = failed, 2 = slow
+  private byte[] window = new byte[windowSize];
+  private int windowNext = 0;
+  private int windowCount = 0;
+
+  private State state = State.CLOSED;
+  private long openedAtNanos = 0;
+  private int trialPermits = 0;
+  private int trialSuccesses = 0;
+
+  public CircuitBreaker(String name) {
+    this.name = name;
+  }
+
+  public synchronized CircuitBreaker setWindowSize(int windowSize) {
+    if (windowSize < 1) {
+      throw new IllegalArgumentException(
+          "'windowSize' must be at least 1, but was given " + windowSize);
+    }
+    this.windowSize = windowSize;
+    resetWindow();
+    return this;
+  }
+
+  public synchronized CircuitBreaker setMinimumCalls(int minimumCalls) {
+    this.minimumCalls = minimumCalls;
+    return this;
+  }
+
+  public synchronized CircuitBreaker setFailureRateThreshold(double failureRateThreshold) {
+    this.failureRateThreshold = failureRateThreshold;
+    return this;
+  }
+
+  public synchronized CircuitBreaker setSlowCallRateThreshold(double slowCallRateThreshold) {
+    this.slowCallRateThreshold = slowCallRateThreshold;
+    return this;
+  }
+
+  public synchronized CircuitBreaker setSlowCallThresholdMs(long slowCallThresholdMs) {
+    this.slowCallThresholdMs = slowCallThresholdMs;
+    return this;
+  }
+
+  public synchronized CircuitBreaker setOpenDurationMs(long openDurationMs) {
+    this.openDurationMs = openDurationMs;
+    return this;
+  }
+
+  public synchronized CircuitBreaker setHalfOpenTrialCalls(int halfOpenTrialCalls) {
+    if (halfOpenTrialCalls < 1) {
+      throw new IllegalArgumentException(
+          "'halfOpenTrialCalls' must be at least 1, but was given " + halfOpenTrialCalls);
+    }
+    this.halfOpenTrialCalls = halfOpenTrialCalls;
+    return this;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public synchronized State getState() {
+    // An open breaker reports half-open once its cool-down is over, even before the next call
+    if (state == State.OPEN && remainingOpenMs() <= 0) {
+      return State.HALF_OPEN;
+    }
+    return state;
+  }
+
+  /**
+   * Asks permission for one call. While open this fails fast; once the cool-down has passed a
+   * limited number of trial calls are let through to probe the endpoint.
+   */
+  public synchronized void acquirePermission() throws CircuitOpenException {
+    if (state == State.OPEN) {
+      long remainingMs = remainingOpenMs();
+      if (remainingMs > 0) {
+        throw new CircuitOpenException(
+            "Problem calling API: " + name + " is unavailable, skipping the call", remainingMs);
+      }
+      transitionTo(State.HALF_OPEN);
+    }
+    if (state == State.HALF_OPEN) {
+      if (trialPermits == 0) {
+        throw new CircuitOpenException(
+            "Problem calling API: " + name + " is being probed, skipping the call", openDurationMs);
+      }
+      trialPermits--;
+    }
+  }
+
+  public synchronized void onSuccess(long durationMs) {
+    boolean slow = durationMs >= slowCallThresholdMs;
+    if (state == State.HALF_OPEN) {
+      if (slow) {
+        transitionTo(State.OPEN);
+      } else if (++trialSuccesses >= halfOpenTrialCalls) {
+        transitionTo(State.CLOSED);
+      }
+      return;
+    }
+    if (state == State.CLOSED) {
+      record(slow ? (byte) 2 : (byte) 0);
+    }
+  }
+
+  public synchronized void onFailure(long durationMs) {
+    if (state == State.HALF_OPEN) {
+      transitionTo(State.OPEN);
+      return;
+    }
+    if (state == State.CLOSED) {
+      record((byte) 1);
+    }
+  }
+
+  /** Hands back a permit for a call that was abandoned without an outcome, e.g. a hedge loser. */
+  public synchronized void onIgnored() {
+    if (state == State.HALF_OPEN) {
+      trialPermits++;
+    }
+  }
+
+  public <T> CompletableFuture<T> executeAsync(Supplier<CompletableFuture<T>> call) {
+    try {
+      acquirePermission();
+    } catch (CircuitOpenException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    long startNanos = System.nanoTime();
+    CompletableFuture<T> future;
+    try {
+      future = call.get();
+    } catch (RuntimeException e) {
+      future = CompletableFuture.failedFuture(e);
+    }
+    future.whenComplete((value, error) -> recordOutcome(error, startNanos));
+    return future;
+  }
+
+  public <T> T execute(Callable<T> call) throws ApiProxyException {
+    acquirePermission();
+    long startNanos = System.nanoTime();
+    try {
+      T value = call.call();
+      recordOutcome(null, startNanos);
+      return value;
+    } catch (ApiProxyException e) {
+      recordOutcome(e, startNanos);
+      throw e;
+    } catch (Exception e) {
+      recordOutcome(e, startNanos);
+      throw new ApiProxyException("Problem calling API: " + e.getMessage(), e);
+    }
+  }
+
+  private void recordOutcome(Throwable error, long startNanos) {
+    long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+    if (cause == null) {
+      onSuccess(durationMs);
+    } else if (cause instanceof CancellationException) {
+      onIgnored();
+    } else if (ResiliencePolicy.isRetryable(cause)) {
+      // Only outages count against the endpoint; a rejected request says nothing about its health
+      onFailure(durationMs);
+    } else {
+      onSuccess(durationMs);
+    }
+  }
+
+  private void record(byte outcome) {
+    window[windowNext] = outcome;
+    windowNext = (windowNext + 1) % window.length;
+    windowCount = Math.min(windowCount + 1, window.length);
+    if (windowCount < minimumCalls) {
+      return;
+    }
+
+    int failures = 0;
+    int slowCalls = 0;
+    for (int i = 0; i < windowCount; i++) {
+      if (window[i] == 1) {
+        failures++;
+      } else if (window[i] == 2) {
+        slowCalls++;
+      }
+    }
+    if (failures >= failureRateThreshold * windowCount
+        || slowCalls >= slowCallRateThreshold * windowCount) {
+      transitionTo(State.OPEN);
+    }
+  }
+
+  private long remainingOpenMs() {
+    return openDurationMs - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - openedAtNanos);
+  }
+
+  private void resetWindow() {
+    window = new byte[windowSize];
+    windowNext = 0;
+    windowCount = 0;
+  }
+
+  private void transitionTo(State newState) {
+    if (state == newState) {
+      return;
+    }
+    System.out.println("*** Circuit breaker for " + name + ": " + state + " -> " + newState);
+    state = newState;
+    switch (newState) {
+      case OPEN:
+        openedAtNanos = System.nanoTime();
+        break;
+      case HALF_OPEN:
+        trialPermits = halfOpenTrialCalls;
+        trialSuccesses = 0;
+        break;
+      case CLOSED:
+        resetWindow();
+        break;
+    }
+  }
+}
@@ -1,8 +1,19 @@
 package nz.ac.auckland.apiproxy.service;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class EndPoints {
   public static final String PROXY_OPENAI_CHAT_COMPLETIONS =
       "https://us-central1-api-proxies-and-wrappers.cloudfunctions.net/proxy/openai-chat-completion";
   public static final String PROXY_TEXT_TO_SPEECH =
       "https://us-central1-api-proxies-and-wrappers.cloudfunctions.net/proxy/text-to-speech";
+
+  private static final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+  /** Returns the circuit breaker guarding an endpoint, shared by every request that calls it. */
+  public static CircuitBreaker getCircuitBreaker(String endpoint) {
+    return circuitBreakers.computeIfAbsent(
+        endpoint, url -> new CircuitBreaker(url.substring(url.lastIndexOf('/') + 1)));
+  }
 }
@@ -0,0 +1,208 @@
+package nz.ac.auckland.apiproxy.service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+public class HttpTransport {
+
+  private static HttpTransport instance;
+
+  private final HttpTransportConfig config;
+  private final PoolingHttpClientConnectionManager connectionManager;
+  private final CloseableHttpClient client;
+  private final ExecutorService asyncExecutor;
+  private final HttpClient asyncClient;
+  private final ExecutorService blockingExecutor;
+  private final ScheduledExecutorService scheduler;
+
+  private HttpTransport(HttpTransportConfig config) {
+    this.config = config;
+
+    connectionManager = new PoolingHttpClientConnectionManager();
+    connectionManager.setMaxTotal(config.getMaxTotalConnections());
+    connectionManager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+    connectionManager.setValidateAfterInactivity(config.getValidateAfterInactivityMs());
+
+    RequestConfig requestConfig =
+        RequestConfig.custom()
+            .setConnectTimeout(config.getConnectTimeoutMs())
+            .setConnectionRequestTimeout(config.getConnectionRequestTimeoutMs())
+            .setSocketTimeout(config.getSocketTimeoutMs())
+            .build();
+
+    // Honour the server's Keep-Alive header, but never hold a connection longer than configured
+    long maxKeepAliveMs = TimeUnit.SECONDS.toMillis(config.getKeepAliveSeconds());
+    ConnectionKeepAliveStrategy keepAliveStrategy =
+        (response, context) -> {
+          long serverKeepAliveMs =
+              DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+          return serverKeepAliveMs > 0
+              ? Math.min(serverKeepAliveMs, maxKeepAliveMs)
+              : maxKeepAliveMs;
+        };
+
+    client =
+        HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .setKeepAliveStrategy(keepAliveStrategy)
+            .evictExpiredConnections()
+            .evictIdleConnections(config.getIdleEvictionSeconds(), TimeUnit.SECONDS)
+            .build();
+
+    // Non-blocking HTTP/2 client for async calls; all callbacks share a small bounded pool
+    asyncExecutor = createBoundedExecutor(config.getAsyncThreads(), "apiproxy-async-");
+    asyncClient =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofMillis(config.getConnectTimeoutMs()))
+            .executor(asyncExecutor)
+            .build();
+
+    // Blocking calls that may be hedged run here, queueing once every thread is busy; retry backoff
+    // and hedge timers use the scheduler
+    blockingExecutor = createBoundedExecutor(config.getBlockingThreads(), "apiproxy-blocking-");
+    scheduler = Executors.newSingleThreadScheduledExecutor(createThreadFactory("apiproxy-timer-"));
+  }
+
+  private static ExecutorService createBoundedExecutor(int threads, String namePrefix) {
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            30,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            createThreadFactory(namePrefix));
+    // Idle threads time out, so a quiet game holds none
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private static ThreadFactory createThreadFactory(String namePrefix) {
+    AtomicInteger threadCount = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  public static synchronized HttpTransport getInstance() {
+    if (instance == null) {
+      instance = new HttpTransport(new HttpTransportConfig());
+    }
+    return instance;
+  }
+
+  public static synchronized void configure(HttpTransportConfig config) {
+    shutdown();
+    instance = new HttpTransport(config);
+  }
+
+  public static synchronized void shutdown() {
+    if (instance != null) {
+      instance.close();
+      instance = null;
+    }
+  }
+
+  public CloseableHttpClient getClient() {
+    return client;
+  }
+
+  public HttpClient getAsyncClient() {
+    return asyncClient;
+  }
+
+  public ExecutorService getAsyncExecutor() {
+    return asyncExecutor;
+  }
+
+  public ExecutorService getBlockingExecutor() {
+    return blockingExecutor;
+  }
+
+  public ScheduledExecutorService getScheduler() {
+    return scheduler;
+  }
+
+  public Duration getRequestTimeout() {
+    return Duration.ofMillis(config.getSocketTimeoutMs());
+  }
+
+  public HttpTransportConfig getConfig() {
+    return config;
+  }
+
+  /**
+   * Opens connections to a host ahead of the first real request, so it skips the TCP and TLS
+   * handshakes. Both clients are warmed: the HTTP/2 one streams chat replies, the pooled one sends
+   * blocking requests such as text to speech. Any response counts; only the connection matters.
+   */
+  public CompletableFuture<Void> preconnect(String url) {
+    HttpRequest head =
+        HttpRequest.newBuilder(URI.create(url))
+            .method("HEAD", HttpRequest.BodyPublishers.noBody())
+            .timeout(getRequestTimeout())
+            .build();
+    CompletableFuture<Void> streaming =
+        asyncClient.sendAsync(head, HttpResponse.BodyHandlers.discarding()).thenApply(r -> null);
+    CompletableFuture<Void> pooled =
+        CompletableFuture.runAsync(
+            () -> {
+              try (CloseableHttpResponse response = client.execute(new HttpHead(url))) {
+                // Consumed so the connection goes back to the pool instead of being closed
+                EntityUtils.consumeQuietly(response.getEntity());
+              } catch (IOException e) {
+                throw new CompletionException(e);
+              }
+            },
+            blockingExecutor);
+    return CompletableFuture.allOf(streaming, pooled);
+  }
+
+  public int getLeasedConnections() {
+    return connectionManager.getTotalStats().getLeased();
+  }
+
+  public int getAvailableConnections() {
+    return connectionManager.getTotalStats().getAvailable();
+  }
+
+  private void close() {
+    try {
+      // Closing the client also stops the idle evictor and shuts down the connection manager
+      client.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    asyncClient.shutdownNow();
+    asyncExecutor.shutdownNow();
+    blockingExecutor.shutdownNow();
+    scheduler.shutdownNow();
+  }
+}
@@ -0,0 +1,121 @@
+package nz.ac.auckland.apiproxy.service;
+
+public class HttpTransportConfig {
+
+  private int maxTotalConnections = 20;
+  private int maxConnectionsPerRoute = 10;
+  private int connectTimeoutMs = 5000;
+  private int connectionRequestTimeoutMs = 2000;
+  private int socketTimeoutMs = 60000;
+  private int validateAfterInactivityMs = 2000;
+  private long idleEvictionSeconds = 30;
+  private long keepAliveSeconds = 60;
+  private int asyncThreads = 4;
+  private int blockingThreads = 8;
+
+  public HttpTransportConfig setMaxTotalConnections(int maxTotalConnections) {
+    if (maxTotalConnections < 1) {
+      throw new IllegalArgumentException(
+          "'maxTotalConnections' must be at least 1, but was given " + maxTotalConnections);
+    }
+    this.maxTotalConnections = maxTotalConnections;
+    return this;
+  }
+
+  public HttpTransportConfig setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+    if (maxConnectionsPerRoute < 1) {
+      throw new IllegalArgumentException(
+          "'maxConnectionsPerRoute' must be at least 1, but was given " + maxConnectionsPerRoute);
+    }
+    this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    return this;
+  }
+
+  public HttpTransportConfig setConnectTimeoutMs(int connectTimeoutMs) {
+    this.connectTimeoutMs = connectTimeoutMs;
+    return this;
+  }
+
+  public HttpTransportConfig setConnectionRequestTimeoutMs(int connectionRequestTimeoutMs) {
+    this.connectionRequestTimeoutMs = connectionRequestTimeoutMs;
+    return this;
+  }
+
+  public HttpTransportConfig setSocketTimeoutMs(int socketTimeoutMs) {
+    this.socketTimeoutMs = socketTimeoutMs;
+    return this;
+  }
+
+  public HttpTransportConfig setValidateAfterInactivityMs(int validateAfterInactivityMs) {
+    this.validateAfterInactivityMs = validateAfterInactivityMs;
+    return this;
+  }
+
+  public HttpTransportConfig setIdleEvictionSeconds(long idleEvictionSeconds) {
+    this.idleEvictionSeconds = idleEvictionSeconds;
+    return this;
+  }
+
+  public HttpTransportConfig setKeepAliveSeconds(long keepAliveSeconds) {
+    this.keepAliveSeconds = keepAliveSeconds;
+    return this;
+  }
+
+  public HttpTransportConfig setAsyncThreads(int asyncThreads) {
+    if (asyncThreads < 1) {
+      throw new IllegalArgumentException(
+          "'asyncThreads' must be at least 1, but was given " + asyncThreads);
+    }
+    this.asyncThreads = asyncThreads;
+    return this;
+  }
+
+  public HttpTransportConfig setBlockingThreads(int blockingThreads) {
+    if (blockingThreads < 1) {
+      throw new IllegalArgumentException(
+          "'blockingThreads' must be at least 1, but was given " + blockingThreads);
+    }
+    this.blockingThreads = blockingThreads;
+    return this;
+  }
+
+  public int getMaxTotalConnections() {
+    return maxTotalConnections;
+  }
+
+  public int getMaxConnectionsPerRoute() {
+    return maxConnectionsPerRoute;
+  }
+
+  public int getConnectTimeoutMs() {
+    return connectTimeoutMs;
+  }
+
+  public int getConnectionRequestTimeoutMs() {
+    return connectionRequestTimeoutMs;
+  }
+
+  public int getSocketTimeoutMs() {
+    return socketTimeoutMs;
+  }
+
+  public int getValidateAfterInactivityMs() {
+    return validateAfterInactivityMs;
+  }
+
+  public long getIdleEvictionSeconds() {
+    return idleEvictionSeconds;
+  }
+
+  public long getKeepAliveSeconds() {
+    return keepAliveSeconds;
+  }
+
+  public int getAsyncThreads() {
+    return asyncThreads;
+  }
+
+  public int getBlockingThreads() {
+    return blockingThreads;
+  }
+}
@@ -0,0 +1,72 @@
+package nz.ac.auckland.apiproxy.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** The single Jackson setup shared by all proxy requests. Mappers and writers are thread-safe. */
+public class JsonSupport {
+
+  public interface BodyWriter {
+    void write(JsonGenerator generator) throws IOException;
+  }
+
+  // Generators must not close the stream they write to; HTTP entities manage their own streams
+  private static final ObjectMapper MAPPER =
+      new ObjectMapper(JsonFactory.builder().disable(StreamWriteFeature.AUTO_CLOSE_TARGET).build())
+          .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+  private static final ObjectWriter WRITER = MAPPER.writer();
+
+  // Bodies are encoded into a per-thread buffer that keeps its capacity between requests
+  private static final ThreadLocal<ReusableBuffer> BUFFERS =
+      ThreadLocal.withInitial(() -> new ReusableBuffer(4096));
+  private static final int MAX_RETAINED_BUFFER = 1 << 20;
+
+  public static ObjectMapper getMapper() {
+    return MAPPER;
+  }
+
+  public static ObjectWriter getWriter() {
+    return WRITER;
+  }
+
+  public static JsonFactory getFactory() {
+    return MAPPER.getFactory();
+  }
+
+  public static JsonGenerator createGenerator(OutputStream out) throws IOException {
+    return WRITER.createGenerator(out);
+  }
+
+  /** Encodes a body with a generator writing straight into a reused byte buffer. */
+  public static byte[] encode(BodyWriter bodyWriter) throws IOException {
+    ReusableBuffer buffer = BUFFERS.get();
+    buffer.reset();
+    try (JsonGenerator generator = createGenerator(buffer)) {
+      bodyWriter.write(generator);
+    }
+    byte[] body = buffer.toByteArray();
+    if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+      // Don't pin an unusually large buffer to the thread forever
+      BUFFERS.remove();
+    }
+    return body;
+  }
+
+  private static class ReusableBuffer extends ByteArrayOutputStream {
+
+    private ReusableBuffer(int size) {
+      super(size);
+    }
+
+    private int capacity() {
+      return buf.length;
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package nz.ac.auckland.apiproxy.service;
+
+import java.util.Arrays;
+
+public class LatencyTracker {
+
+  private final long[] samples;
+  private int next = 0;
+  private int count = 0;
+
+  public LatencyTracker(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException(
+          "'capacity' must be at least 1, but was given " + capacity);
+    }
+    samples = new long[capacity];
+  }
+
+  public synchronized void record(long latencyMs) {
+    samples[next] = latencyMs;
+    next = (next + 1) % samples.length;
+    count = Math.min(count + 1, samples.length);
+  }
+
+  public synchronized int getSampleCount() {
+    return count;
+  }
+
+  /**
+   * Returns the given percentile of the recorded latencies, or -1 if fewer than {@code minSamples}
+   * have been recorded.
+   */
+  public long percentile(double percentile, int minSamples) {
+    long[] sorted;
+    synchronized (this) {
+      if (count == 0 || count < minSamples) {
+        return -1;
+      }
+      sorted = Arrays.copyOf(samples, count);
+    }
+    Arrays.sort(sorted);
+    int index = (int) Math.ceil(percentile * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+  }
+}
@@ -0,0 +1,453 @@
+package nz.ac.auckland.apiproxy.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import nz.ac.auckland.apiproxy.exceptions.ApiProxyException;
+import org.apache.http.client.methods.HttpUriRequest;
+
+public class ResiliencePolicy {
+
+  /** One attempt of a blocking call. Each request it sends goes to track, to be aborted. */
+  @FunctionalInterface
+  public interface BlockingAttempt<T> {
+    T call(Consumer<HttpUriRequest> track) throws Exception;
+  }
+
+  public static ResiliencePolicy forChat() {
+    // Each attempt is a paid POST, so a slow one is waited out rather than hedged
+    return new ResiliencePolicy("chat")
+        .setMaxAttempts(3)
+        .setAttemptTimeoutMs(20000)
+        .setDeadlineMs(45000)
+        .setHedgeFallbackDelayMs(4000);
+  }
+
+  public static ResiliencePolicy forChatStreaming() {
+    // A second stream would duplicate tokens on screen, so streamed replies are never hedged
+    return new ResiliencePolicy("chat-stream")
+        .setMaxAttempts(3)
+        .setAttemptTimeoutMs(60000)
+        .setDeadlineMs(60000)
+        .setHedgingEnabled(false);
+  }
+
+  public static ResiliencePolicy forTts() {
+    // Synthesis is paid too; hedging stays opt-in through setHedgingEnabled
+    return new ResiliencePolicy("tts")
+        .setMaxAttempts(3)
+        .setAttemptTimeoutMs(15000)
+        .setDeadlineMs(30000)
+        .setHedgeFallbackDelayMs(3000);
+  }
+
+  public static ResiliencePolicy none() {
+    return new ResiliencePolicy("none").setMaxAttempts(1).setHedgingEnabled(false);
+  }
+
+  private final String name;
+  private final LatencyTracker latencyTracker = new LatencyTracker(200);
+
+  private int maxAttempts = 3;
+  private long initialBackoffMs = 250;
+  private long maxBackoffMs = 4000;
+  private double backoffMultiplier = 2.0;
+  private long attemptTimeoutMs = 30000;
+  private long deadlineMs = 60000;
+  private boolean hedgingEnabled = false;
+  private double hedgePercentile = 0.95;
+  private int hedgeMinSamples = 20;
+  private long hedgeMinDelayMs = 500;
+  private long hedgeFallbackDelayMs = 4000;
+
+  public ResiliencePolicy(String name) {
+    this.name = name;
+  }
+
+  public ResiliencePolicy setMaxAttempts(int maxAttempts) {
+    if (maxAttempts < 1) {
+      throw new IllegalArgumentException(
+          "'maxAttempts' must be at least 1, but was given " + maxAttempts);
+    }
+    this.maxAttempts = maxAttempts;
+    return this;
+  }
+
+  public ResiliencePolicy setInitialBackoffMs(long initialBackoffMs) {
+    this.initialBackoffMs = initialBackoffMs;
+    return this;
+  }
+
+  public ResiliencePolicy setMaxBackoffMs(long maxBackoffMs) {
+    this.maxBackoffMs = maxBackoffMs;
+    return this;
+  }
+
+  public ResiliencePolicy setBackoffMultiplier(double backoffMultiplier) {
+    if (backoffMultiplier < 1) {
+      throw new IllegalArgumentException(
+          "'backoffMultiplier' must be at least 1, but was given " + backoffMultiplier);
+    }
+    this.backoffMultiplier = backoffMultiplier;
+    return this;
+  }
+
+  public ResiliencePolicy setAttemptTimeoutMs(long attemptTimeoutMs) {
+    this.attemptTimeoutMs = attemptTimeoutMs;
+    return this;
+  }
+
+  public ResiliencePolicy setDeadlineMs(long deadlineMs) {
+    this.deadlineMs = deadlineMs;
+    return this;
+  }
+
+  public ResiliencePolicy setHedgingEnabled(boolean hedgingEnabled) {
+    this.hedgingEnabled = hedgingEnabled;
+    return this;
+  }
+
+  public ResiliencePolicy setHedgePercentile(double hedgePercentile) {
+    if (hedgePercentile <= 0 || hedgePercentile > 1) {
+      throw new IllegalArgumentException(
+          "'hedgePercentile' must be in (0, 1], but was given " + hedgePercentile);
+    }
+    this.hedgePercentile = hedgePercentile;
+    return this;
+  }
+
+  public ResiliencePolicy setHedgeMinSamples(int hedgeMinSamples) {
+    this.hedgeMinSamples = hedgeMinSamples;
+    return this;
+  }
+
+  public ResiliencePolicy setHedgeMinDelayMs(long hedgeMinDelayMs) {
+    this.hedgeMinDelayMs = hedgeMinDelayMs;
+    return this;
+  }
+
+  public ResiliencePolicy setHedgeFallbackDelayMs(long hedgeFallbackDelayMs) {
+    this.hedgeFallbackDelayMs = hedgeFallbackDelayMs;
+    return this;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  public long getDeadlineMs() {
+    return deadlineMs;
+  }
+
+  public boolean isHedgingEnabled() {
+    return hedgingEnabled;
+  }
+
+  public LatencyTracker getLatencyTracker() {
+    return latencyTracker;
+  }
+
+  /**
+   * Delay before a hedged request is fired: the tracked latency percentile once enough samples
+   * exist, otherwise the configured fallback.
+   */
+  public long getHedgeDelayMs() {
+    long observed = latencyTracker.percentile(hedgePercentile, hedgeMinSamples);
+    return Math.max(hedgeMinDelayMs, observed < 0 ? hedgeFallbackDelayMs : observed);
+  }
+
+  /** Backoff before the given retry (1 = first retry), using full jitter. */
+  public long getBackoffMs(int retry) {
+    double ceiling = initialBackoffMs * Math.pow(backoffMultiplier, retry - 1);
+    long cappedMs = (long) Math.min(maxBackoffMs, ceiling);
+    return cappedMs <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cappedMs + 1);
+  }
+
+  /**
+   * Returns whether a failure is worth another attempt: connection problems, timeouts, throttling
+   * and server errors. Client errors and malformed requests are returned to the caller at once.
+   */
+  public static boolean isRetryable(Throwable error) {
+    Throwable cause = unwrap(error);
+    while (cause != null) {
+      if (cause instanceof ApiProxyException) {
+        int status = ((ApiProxyException) cause).getStatusCode();
+        if (status != 0) {
+          return isRetryableStatus(status);
+        }
+      } else if (cause instanceof JsonProcessingException) {
+        // A body we cannot decode will not decode any better the second time
+        return false;
+      } else if (cause instanceof IOException || cause instanceof TimeoutException) {
+        return true;
+      }
+      cause = cause.getCause();
+    }
+    return false;
+  }
+
+  public static boolean isRetryableStatus(int statusCode) {
+    return statusCode == 408 || statusCode == 429 || statusCode >= 500;
+  }
+
+  public <T> CompletableFuture<T> executeAsync(Function<Duration, CompletableFuture<T>> attempt) {
+    return executeAsync(attempt, Duration.ofMillis(deadlineMs), () -> true);
+  }
+
+  /**
+   * Runs an asynchronous call under this policy. Each attempt is given the time it may take; a
+   * failed attempt is retried after a jittered backoff while the deadline allows, and a slow
+   * attempt may be hedged by a second one, whichever answers first wins and the other is cancelled.
+   *
+   * @param attempt starts one attempt, given its timeout
+   * @param deadline overall time budget for the call, including retries
+   * @param retryAllowed checked before each retry, e.g. to stop once output was shown
+   * @return a future completing with the first successful result
+   */
+  public <T> CompletableFuture<T> executeAsync(
+      Function<Duration, CompletableFuture<T>> attempt,
+      Duration deadline,
+      BooleanSupplier retryAllowed) {
+    Call<T> call = new Call<>(attempt, deadline, retryAllowed);
+    call.start();
+    return call.result;
+  }
+
+  /**
+   * Runs a blocking call under this policy. Attempts run on the transport's blocking pool so a
+   * hedge can overlap a slow attempt; the caller waits for the outcome. An attempt that times out
+   * or loses to its hedge is interrupted and the request it sent is aborted, so it gives back its
+   * thread and connection at once instead of when the server finally answers.
+   */
+  public <T> T execute(BlockingAttempt<T> attempt) throws ApiProxyException {
+    CompletableFuture<T> result =
+        executeAsync(timeout -> startBlocking(attempt), Duration.ofMillis(deadlineMs), () -> true);
+    try {
+      return result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      result.cancel(true);
+      throw new ApiProxyException("Problem calling API: interrupted", e);
+    } catch (ExecutionException e) {
+      throw toApiProxyException(e);
+    }
+  }
+
+  private static <T> CompletableFuture<T> startBlocking(BlockingAttempt<T> attempt) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    AtomicReference<HttpUriRequest> sent = new AtomicReference<>();
+    // Set by the worker as it settles the future itself, when there is nothing to give up on
+    AtomicBoolean settled = new AtomicBoolean(false);
+    Future<?> task;
+    try {
+      task =
+          HttpTransport.getInstance()
+              .getBlockingExecutor()
+              .submit(
+                  () -> {
+                    T value;
+                    try {
+                      value =
+                          attempt.call(
+                              request -> {
+                                sent.set(request);
+                                // Given up on before the request was even sent
+                                if (future.isDone()) {
+                                  request.abort();
+                                }
+                              });
+                    } catch (Exception e) {
+                      settled.set(true);
+                      future.completeExceptionally(e);
+                      return;
+                    }
+                    settled.set(true);
+                    future.complete(value);
+                  });
+    } catch (RejectedExecutionException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    future.whenComplete(
+        (value, error) -> {
+          // The worker is still running its own completion here, so its task isn't done yet
+          if (!settled.get()) {
+            // Cancelled or timed out while the request was still running
+            HttpUriRequest request = sent.get();
+            if (request != null) {
+              request.abort();
+            }
+            task.cancel(true);
+          }
+        });
+    return future;
+  }
+
+  private static Throwable unwrap(Throwable error) {
+    Throwable cause = error;
+    while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+        && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    return cause;
+  }
+
+  private static ApiProxyException toApiProxyException(Throwable error) {
+    Throwable cause = unwrap(error);
+    if (cause instanceof ApiProxyException) {
+      return (ApiProxyException) cause;
+    }
+    return new ApiProxyException("Problem calling API: " + cause.getMessage(), cause);
+  }
+
+  private class Call<T> {
+
+    private final Function<Duration, CompletableFuture<T>> attempt;
+    private final Duration deadline;
+    private final long deadlineNanos;
+    private final BooleanSupplier retryAllowed;
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private final List<CompletableFuture<T>> inFlight = new CopyOnWriteArrayList<>();
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    private Call(
+        Function<Duration, CompletableFuture<T>> attempt,
+        Duration deadline,
+        BooleanSupplier retryAllowed) {
+      this.attempt = attempt;
+      this.deadline = deadline;
+      this.deadlineNanos = System.nanoTime() + deadline.toNanos();
+      this.retryAllowed = retryAllowed;
+    }
+
+    private long remainingMs() {
+      return TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+    }
+
+    private void start() {
+      // Cancelling the caller's future (or hitting the deadline) stops every attempt in flight
+      result.whenComplete((value, error) -> inFlight.forEach(future -> future.cancel(true)));
+      HttpTransport.getInstance()
+          .getScheduler()
+          .schedule(
+              () -> {
+                if (!result.isDone()) {
+                  result.completeExceptionally(
+                      new ApiProxyException(
+                          "Problem calling API: "
+                              + name
+                              + " request exceeded its deadline of "
+                              + deadline.toMillis()
+                              + " ms"));
+                }
+              },
+              Math.max(0, remainingMs()),
+              TimeUnit.MILLISECONDS);
+      startRound();
+    }
+
+    // One round is a primary attempt plus an optional hedge; the round fails only if both do
+    private void startRound() {
+      AtomicInteger pending = new AtomicInteger(1);
+      launch(pending);
+
+      long hedgeDelayMs = getHedgeDelayMs();
+      if (hedgingEnabled && hedgeDelayMs < remainingMs()) {
+        HttpTransport.getInstance()
+            .getScheduler()
+            .schedule(
+                () -> {
+                  if (!result.isDone() && pending.get() > 0) {
+                    pending.incrementAndGet();
+                    System.out.println(
+                        "*** "
+                            + name
+                            + " request slower than "
+                            + hedgeDelayMs
+                            + " ms, sending a hedged request");
+                    launch(pending);
+                  }
+                },
+                hedgeDelayMs,
+                TimeUnit.MILLISECONDS);
+      }
+    }
+
+    private void launch(AtomicInteger pending) {
+      long remaining = remainingMs();
+      if (remaining <= 0 || result.isDone()) {
+        return;
+      }
+      int attemptNumber = attempts.incrementAndGet();
+      long startNanos = System.nanoTime();
+      CompletableFuture<T> future;
+      try {
+        future =
+            attempt
+                .apply(Duration.ofMillis(Math.min(attemptTimeoutMs, remaining)))
+                .orTimeout(Math.min(attemptTimeoutMs, remaining), TimeUnit.MILLISECONDS);
+      } catch (RuntimeException e) {
+        future = CompletableFuture.failedFuture(e);
+      }
+      inFlight.add(future);
+      CompletableFuture<T> launched = future;
+      future.whenComplete(
+          (value, error) -> {
+            inFlight.remove(launched);
+            if (error == null) {
+              latencyTracker.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+              result.complete(value);
+              return;
+            }
+            if (pending.decrementAndGet() > 0 || result.isDone()) {
+              // The other attempt of this round may still succeed
+              return;
+            }
+            retryOrFail(error, attemptNumber);
+          });
+    }
+
+    private void retryOrFail(Throwable error, int attemptNumber) {
+      long backoffMs = getBackoffMs(attemptNumber);
+      boolean retry =
+          isRetryable(error)
+              && attempts.get() < maxAttempts
+              && backoffMs < remainingMs()
+              && retryAllowed.getAsBoolean();
+      if (!retry) {
+        result.completeExceptionally(toApiProxyException(error));
+        return;
+      }
+      System.out.println(
+          "*** "
+              + name
+              + " request failed ("
+              + unwrap(error).getMessage()
+              + "), retrying in "
+              + backoffMs
+              + " ms");
+      HttpTransport.getInstance()
+          .getScheduler()
+          .schedule(this::startRound, backoffMs, TimeUnit.MILLISECONDS);
+    }
+  }
+}
@@ -1,16 +1,22 @@
 package nz.ac.auckland.apiproxy.tts;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import javax.json.Json;
-import javax.json.JsonObject;
-import javax.json.JsonObjectBuilder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Consumer;
 import nz.ac.auckland.apiproxy.config.ApiProxyConfig;
 import nz.ac.auckland.apiproxy.exceptions.ApiProxyException;
+import nz.ac.auckland.apiproxy.service.CircuitBreaker;
 import nz.ac.auckland.apiproxy.service.EndPoints;
+import nz.ac.auckland.apiproxy.service.HttpTransport;
+import nz.ac.auckland.apiproxy.service.JsonSupport;
+import nz.ac.auckland.apiproxy.service.ResiliencePolicy;
+import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.EntityTemplate;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 
 public class TextToSpeechRequest {
 
@@ -92,7 +98,17 @@ public class TextToSpeechRequest {
     }
   }
 
+  // Shared so the latency percentile used for hedging is learnt across all speech requests
+  private static final ResiliencePolicy DEFAULT_POLICY = ResiliencePolicy.forTts();
+  private static final ObjectReader RESPONSE_READER =
+      JsonSupport.getMapper().readerFor(ResponseTtsViaProxy.class);
+
+  public static ResiliencePolicy getDefaultPolicy() {
+    return DEFAULT_POLICY;
+  }
+
   private ApiProxyConfig config;
+  private ResiliencePolicy resiliencePolicy = DEFAULT_POLICY;
 
   private String text = null; // Required
   private Provider provider = Provider.OPENAI; // Default provider
@@ -112,12 +128,16 @@ public class TextToSpeechRequest {
     return this;
   }
 
+  public TextToSpeechRequest setResiliencePolicy(ResiliencePolicy resiliencePolicy) {
+    this.resiliencePolicy = resiliencePolicy;
+    return this;
+  }
+
   public TextToSpeechRequest setVoice(Voice voice) {
     this.voice = voice;
     return this;
   }
 
-  @SuppressWarnings("resource")
   public TextToSpeechResult execute() throws ApiProxyException {
 
     if (isEmpty(text)) {
@@ -146,41 +166,59 @@ public class TextToSpeechRequest {
               + "_xxx'.");
     }
 
-    try {
-      JsonObjectBuilder jsonOverallBuilder =
-          Json.createObjectBuilder() //
-              .add("provider", provider.getProviderCode()) //
-              .add("text", text);
-
-      jsonOverallBuilder.add("voice", voice.getVoiceCode());
-      jsonOverallBuilder.add("access_token", config.getApiKey()).add("email", config.getEmail());
+    CircuitBreaker circuitBreaker = EndPoints.getCircuitBreaker(EndPoints.PROXY_TEXT_TO_SPEECH);
+    return resiliencePolicy.execute(track -> circuitBreaker.execute(() -> executeOnce(track)));
+  }
 
-      CloseableHttpClient client = HttpClients.createDefault();
+  private TextToSpeechResult executeOnce(Consumer<HttpUriRequest> track) throws ApiProxyException {
+    try {
+      CloseableHttpClient client = HttpTransport.getInstance().getClient();
 
       ResponseTtsViaProxy responseTts = null;
-      JsonObject value = jsonOverallBuilder.build();
 
       HttpPost httpPost = new HttpPost(EndPoints.PROXY_TEXT_TO_SPEECH);
       httpPost.setHeader("Content-Type", "application/json");
       httpPost.setHeader("Accept", "application/json");
-      httpPost.setEntity(new StringEntity(value.toString()));
-      ObjectMapper mapperApiMapper = new ObjectMapper();
+      // The body is generated straight into the connection's output stream
+      httpPost.setEntity(new EntityTemplate(this::writeRequestBody));
+      track.accept(httpPost);
 
       responseTts =
           (ResponseTtsViaProxy)
               client.execute(
                   httpPost,
-                  httpResponse ->
-                      mapperApiMapper.readValue(
-                          httpResponse.getEntity().getContent(), ResponseTtsViaProxy.class));
+                  httpResponse -> {
+                    int status = httpResponse.getStatusLine().getStatusCode();
+                    if (ResiliencePolicy.isRetryableStatus(status)) {
+                      throw new HttpResponseException(
+                          status, httpResponse.getStatusLine().getReasonPhrase());
+                    }
+                    return RESPONSE_READER.readValue(httpResponse.getEntity().getContent());
+                  });
 
       if (!responseTts.success && responseTts.code != 0) {
         throw new ApiProxyException("Problem calling API: " + responseTts.message);
       }
       return new TextToSpeechResult(responseTts.audio);
 
+    } catch (ApiProxyException e) {
+      throw e;
+    } catch (HttpResponseException e) {
+      throw new ApiProxyException("Problem calling API: " + e.getMessage(), e, e.getStatusCode());
     } catch (Exception e) {
-      throw new ApiProxyException("Problem calling API: " + e.getMessage());
+      throw new ApiProxyException("Problem calling API: " + e.getMessage(), e);
+    }
+  }
+
+  private void writeRequestBody(OutputStream out) throws IOException {
+    try (JsonGenerator generator = JsonSupport.createGenerator(out)) {
+      generator.writeStartObject();
+      generator.writeStringField("provider", provider.getProviderCode());
+      generator.writeStringField("text", text);
+      generator.writeStringField("voice", voice.getVoiceCode());
+      generator.writeStringField("access_token", config.getApiKey());
+      generator.writeStringField("email", config.getEmail());
+      generator.writeEndObject();
     }
   }
 
@@ -1,12 +1,15 @@
 package nz.ac.auckland.se206;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import javafx.application.Application;
 import javafx.application.Platform;
-import javafx.concurrent.Task;
 import javafx.fxml.FXMLLoader;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -19,6 +22,13 @@ import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.Region;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
+import nz.ac.auckland.apiproxy.service.HttpTransport;
+import nz.ac.auckland.se206.audio.AudioAssetCache;
+import nz.ac.auckland.se206.audio.AudioEngine;
+import nz.ac.auckland.se206.concurrent.TaskHandle;
+import nz.ac.auckland.se206.concurrent.TaskRuntime;
+import nz.ac.auckland.se206.concurrent.UiScheduler;
+import nz.ac.auckland.se206.controllers.ChatController;
 
 /**
  * This is the entry point of the JavaFX application. This class initializes and runs the JavaFX
@@ -44,6 +54,8 @@ public class App extends Application {
   private static Scene scene;
   // Global UI scale factor
   private static final double SCALE_FACTOR = 1.25;
+  private static final long AUDIO_PRELOAD_TIMEOUT_MS = 5000;
+  private static final String[] CHAT_SCENES = {"defendantChat", "witnessChat", "aiChat"};
 
   /**
    * Gets the controller for a preloaded scene.
@@ -76,6 +88,16 @@ public class App extends Application {
     if (bundle == null) {
       throw new IOException("Scene not preloaded: " + fxml);
     }
+    if (fxml.equals("answer")) {
+      // The characters can't be visited again once the verdict starts, so lines they still have
+      // waiting would arrive in a chat nobody can see
+      for (String chat : CHAT_SCENES) {
+        Object controller = getController(chat);
+        if (controller != null) {
+          UiScheduler.getInstance().cancel(controller);
+        }
+      }
+    }
     rootLayout.setCenter(createCenteredWrapper(bundle.root));
 
     // Try to resize and re-center the stage (if available) to avoid clipping
@@ -89,37 +111,37 @@ public class App extends Application {
   }
 
   /**
-   * Preloads an FXML scene in a background thread.
+   * Preloads an FXML scene on the shared task pool.
    *
    * @param fxml the name of the FXML file (without extension) to preload
+   * @return a handle completing with the loaded scene, or with null if it failed to load
    */
-  public static void preloadSceneAsync(String fxml, CountDownLatch latch) {
-    // Create background task for scene loading
-    Task<Void> preloadTask =
-        new Task<Void>() {
-          @Override
-          protected Void call() throws Exception {
-            try {
-              // Load FXML file and create scene bundle
-              FXMLLoader loader = new FXMLLoader(App.class.getResource("/fxml/" + fxml + ".fxml"));
-              Parent loadedRoot = loader.load();
-              Object loadedController = loader.getController();
-              SceneBundle loadedBundle = new SceneBundle(loadedRoot, loadedController);
-              // Store in preloaded cache on UI thread
-              Platform.runLater(() -> preloadedBundles.put(fxml, loadedBundle));
-            } catch (IOException e) {
-              // Log preload failures
-              System.err.println("Failed to preload scene: " + fxml);
-              e.printStackTrace();
-            } finally {
-              // Signal task completion
-              latch.countDown();
-            }
-            return null;
-          }
-        };
-    // Start preload task in background thread
-    new Thread(preloadTask).start();
+  public static TaskHandle<SceneBundle> preloadSceneAsync(String fxml, CountDownLatch latch) {
+    // Parsing FXML keeps a core busy, so scenes load on the shared pool a few at a time
+    return TaskRuntime.getInstance()
+        .submitCpu(
+            "preload-scene " + fxml,
+            () -> {
+              try {
+                // Load FXML file and create scene bundle
+                FXMLLoader loader =
+                    new FXMLLoader(App.class.getResource("/fxml/" + fxml + ".fxml"));
+                Parent loadedRoot = loader.load();
+                Object loadedController = loader.getController();
+                SceneBundle loadedBundle = new SceneBundle(loadedRoot, loadedController);
+                // Store in preloaded cache on UI thread
+                Platform.runLater(() -> preloadedBundles.put(fxml, loadedBundle));
+                return loadedBundle;
+              } catch (IOException e) {
+                // Log preload failures
+                System.err.println("Failed to preload scene: " + fxml);
+                e.printStackTrace();
+                return null;
+              } finally {
+                // Signal task completion
+                latch.countDown();
+              }
+            });
   }
 
   /**
@@ -249,58 +271,124 @@ public class App extends Application {
                   });
             });
 
+    // Rebuild a game interrupted by a crash before any controller loads and reads the game state.
+    // The file is read off the UI thread; the state is rebuilt back on it, then the scenes load
+    SessionJournal journal = SessionJournal.getInstance();
+    TaskRuntime.getInstance()
+        .submitIo("journal-read", journal::read)
+        .getCompletion()
+        .whenComplete(
+            (records, error) ->
+                Platform.runLater(
+                    () -> {
+                      if (error != null) {
+                        // Start a new game rather than none at all
+                        error.printStackTrace();
+                      }
+                      journal.replay(records == null ? List.of() : records);
+                      preloadScenes(stage);
+                    }));
+  }
+
+  /**
+   * Loads every scene and the narration clips in the background, then shows the room.
+   *
+   * @param stage the primary stage of the application
+   */
+  private void preloadScenes(Stage stage) {
+    // Open the proxy connections while the scenes load, ready for the characters' first turns
+    Warmup warmup = Warmup.getInstance();
+    warmup.preconnect();
+
     // Background preloading
     final String[] scenesToPreload = {"room", "defendantChat", "witnessChat", "aiChat", "answer"};
-    final CountDownLatch latch = new CountDownLatch(scenesToPreload.length);
+    final CountDownLatch latch = new CountDownLatch(scenesToPreload.length + 1);
     for (String fxml : scenesToPreload) {
-      preloadSceneAsync(fxml, latch);
+      TaskHandle<SceneBundle> loaded = preloadSceneAsync(fxml, latch);
+      if (Arrays.asList(CHAT_SCENES).contains(fxml)) {
+        // Each character is primed as soon as their scene exists, without waiting for the rest
+        loaded
+            .getCompletion()
+            .thenAccept(
+                bundle -> {
+                  if (bundle != null) {
+                    warmup.prime(fxml, ((ChatController) bundle.controller)::initChat);
+                  } else {
+                    // Nothing to prime; the room must still not wait on it forever
+                    warmup.prime(fxml, () -> CompletableFuture.completedFuture(null));
+                  }
+                });
+      }
     }
+    // Prepare the narration clips too, so they start the moment they are triggered
+    AudioAssetCache.getInstance()
+        .preload("/audio/openTts.mp3", "/audio/endTts.mp3")
+        .orTimeout(AUDIO_PRELOAD_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+        .whenComplete(
+            (ignored, error) -> {
+              if (error != null) {
+                // Playback still works, it just prepares the clip on first use
+                System.err.println("Failed to preload audio: " + error);
+              }
+              latch.countDown();
+            });
 
     // Wait for preloading, then show room (timer starts via start button in RoomController)
-    Task<Void> waitTask =
-        new Task<Void>() {
-          @Override
-          protected Void call() throws Exception {
-            latch.await();
-            return null;
-          }
+    TaskRuntime.getInstance()
+        .submitIo(
+            "await-preload",
+            () -> {
+              latch.await();
+              Platform.runLater(
+                  () -> {
+                    try {
+                      // Set current root to main page. Wrap the room root in a centered StackPane
+                      // so absolute-positioned Pane content remains visually centered when scaled.
+                      SceneBundle roomBundle = preloadedBundles.get("room");
+                      if (roomBundle != null && roomBundle.root != null) {
+                        // Create a wrapper to center the room content inside the scaled root
+                        // Place the centered wrapper into the main layout
+                        rootLayout.setCenter(createCenteredWrapper(roomBundle.root));
+                        roomBundle.root.requestFocus();
 
-          @Override
-          protected void succeeded() {
-            Platform.runLater(
-                () -> {
-                  try {
-                    // Set current root to main page. Wrap the room root in a centered StackPane
-                    // so absolute-positioned Pane content remains visually centered when scaled.
-                    SceneBundle roomBundle = preloadedBundles.get("room");
-                    if (roomBundle != null && roomBundle.root != null) {
-                      // Create a wrapper to center the room content inside the scaled root
-                      // Place the centered wrapper into the main layout
-                      rootLayout.setCenter(createCenteredWrapper(roomBundle.root));
-                      roomBundle.root.requestFocus();
+                        // Ensure the stage matches the scene size and center it on screen after
+                        // layout
+                        stage.sizeToScene();
+                        stage.centerOnScreen();
+                      } else {
+                        // Fallback: call setRoot which will set the bundle root directly
+                        setRoot("room");
+                      }
 
-                      // Ensure the stage matches the scene size and center it on screen after
-                      // layout
-                      stage.sizeToScene();
-                      stage.centerOnScreen();
-                    } else {
-                      // Fallback: call setRoot which will set the bundle root directly
-                      setRoot("room");
+                      // Output for debugging
+                      System.out.println("All scenes preloaded and switched to room.");
+                      if (SessionJournal.getInstance().isResumed() && CountdownTimer.isGuessed()) {
+                        // The crash happened while the player was giving their verdict
+                        setRoot("answer");
+                      }
+                      CountdownTimer.start();
+                    } catch (IOException e) {
+                      System.err.println("Failed to switch to room scene");
+                      e.printStackTrace();
                     }
+                  });
+              return null;
+            });
+  }
 
-                    // Output for debugging
-                    System.out.println("All scenes preloaded and switched to room.");
-                    CountdownTimer.start();
-                  } catch (IOException e) {
-                    System.err.println("Failed to switch to room scene");
-                    e.printStackTrace();
-                  }
-                });
-          }
-        };
-
-    // Starting the task
-    new Thread(waitTask).start();
+  /**
+   * This method is invoked when the application exits. It cancels background tasks, stops audio,
+   * releases the pooled connections held by the shared HTTP transport and discards the session
+   * journal.
+   */
+  @Override
+  public void stop() {
+    // Tasks first, so nothing starts a request or a clip while the rest shuts down
+    TaskRuntime.getInstance().shutdown();
+    AudioEngine.getInstance().shutdown();
+    HttpTransport.shutdown();
+    // Only a game cut short by a crash is resumed; closing the window ends it
+    SessionJournal.getInstance().discard();
   }
 
   /**
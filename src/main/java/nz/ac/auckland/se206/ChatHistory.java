@@ -1,60 +1,274 @@
 package nz.ac.auckland.se206;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import nz.ac.auckland.apiproxy.chat.openai.ChatCompletionRequest.Model;
 import nz.ac.auckland.apiproxy.chat.openai.ChatMessage;
 
+/**
+ * The conversation shared by every character, plus context only one character sees. Messages are
+ * appended from the UI thread and from reply threads at the same time, so both are kept in
+ * append-only logs: readers take snapshots without locking and never hold up a writer. The logs
+ * belong to the current {@link GameSession}, so a restart starts them afresh.
+ *
+ * <p>Each shared message is also indexed by speaker and by role, so queries such as "the last few
+ * things Echo II said" or "every user turn" read only the matching messages.
+ */
 public class ChatHistory {
-  private static final List<ChatMessage> history = new ArrayList<>();
-  private static final Map<String, List<ChatMessage>> characterContexts = new HashMap<>();
+
+  /** A shared message, stored as sent and prefixed with its speaker only when first read. */
+  private static final class Entry {
+    private final ChatMessage message;
+    private final int speaker;
+    // Built once on first read; the same instance is returned after that so its token count caches
+    private volatile ChatMessage prefixed;
+
+    private Entry(ChatMessage message, int speaker) {
+      this.message = message;
+      this.speaker = speaker;
+    }
+
+    private ChatMessage getPrefixed() {
+      ChatMessage result = prefixed;
+      if (result == null) {
+        // Two readers may both build it; either copy is equal, so the race is harmless
+        result =
+            new ChatMessage(message.getRole(), speakerPrefixes.get(speaker) + message.getContent());
+        prefixed = result;
+      }
+      return result;
+    }
+  }
+
+  /** One game's messages, owned by its {@link GameSession}. */
+  static final class Transcript {
+    private final ChunkedAppendLog<Entry> history = new ChunkedAppendLog<>();
+    // Positions in the history of each speaker's and each role's messages, in order
+    private final Map<Integer, ChunkedAppendLog<Integer>> speakerIndex = new ConcurrentHashMap<>();
+    private final Map<String, ChunkedAppendLog<Integer>> roleIndex = new ConcurrentHashMap<>();
+    private final Map<String, ChunkedAppendLog<ChatMessage>> characterContexts =
+        new ConcurrentHashMap<>();
+
+    int size() {
+      return history.size();
+    }
+
+    // Writers take turns so the indexes list positions in the same order as the history
+    private synchronized void add(Entry entry) {
+      int position = history.size();
+      history.append(entry);
+      speakerIndex.computeIfAbsent(entry.speaker, k -> new ChunkedAppendLog<>()).append(position);
+      roleIndex
+          .computeIfAbsent(entry.message.getRole(), k -> new ChunkedAppendLog<>())
+          .append(position);
+    }
+  }
+
+  /** The speaker of messages the player typed. */
+  public static final String PLAYER = "User";
+
+  /**
+   * The speaker of notices of what the player did in the UI, such as inspecting evidence. They read
+   * as the player's to the characters, but aren't things the player asked.
+   */
+  public static final String PLAYER_ACTION = "User action";
+
+  // Speaker names and aliases map to small ids, so each prefix string exists only once
+  private static final Map<String, Integer> speakerIds = new ConcurrentHashMap<>();
+  private static final List<String> speakerPrefixes =
+      Collections.synchronizedList(new ArrayList<>());
+
+  static {
+    registerSpeaker("Aegis I", "aegis");
+    registerSpeaker("Orion Vale", "orion");
+    registerSpeaker("Echo II", "echo");
+    registerSpeaker(PLAYER, "user");
+    registerSpeakerShownAs(PLAYER_ACTION, PLAYER);
+  }
+
+  private static final ContextWindow contextWindow = new ContextWindow();
 
   public static void addMessage(ChatMessage msg, String who) {
-    // Determine speaker prefix for context tracking
-    String prefix = "";
-    switch (who) {
-      case "aegis":
-      case "Aegis I":
-        prefix = "Aegis I said: ";
-        break;
-      case "orion":
-      case "Orion Vale":
-        prefix = "Orion Vale said: ";
-        break;
-      case "echo":
-      case "Echo II":
-        prefix = "Echo II said: ";
-        break;
-      case "user":
-      case "User":
-        prefix = "User said: ";
-        break;
-      default:
-        prefix = who + " said: ";
-        break;
-    }
-    // Create message with speaker context and add to shared history
-    ChatMessage contextualMsg = new ChatMessage(msg.getRole(), prefix + msg.getContent());
-    history.add(contextualMsg);
+    // The speaker prefix is added when the message is first read, not here
+    GameSession.getCurrent().transcript.add(new Entry(msg, internSpeaker(who)));
+    SessionJournal.getInstance().recordMessage(msg, who);
   }
 
   public static void addCharacterContext(ChatMessage msg, String characterName) {
     // Store character-specific conversation context
-    characterContexts.computeIfAbsent(characterName, k -> new ArrayList<>()).add(msg);
+    GameSession.getCurrent()
+        .transcript
+        .characterContexts
+        .computeIfAbsent(characterName, k -> new ChunkedAppendLog<>())
+        .append(msg);
+    SessionJournal.getInstance().recordCharacterContext(msg, characterName);
   }
 
+  /**
+   * Returns the shared history as it is now. The list is a view that later messages don't change.
+   *
+   * @return the shared messages, oldest first
+   */
   public static List<ChatMessage> getHistory() {
-    return Collections.unmodifiableList(history);
+    return new PrefixedView(GameSession.getCurrent().transcript.history.snapshot(), null);
+  }
+
+  /**
+   * Returns the most recent messages from one speaker, reading only that speaker's messages.
+   *
+   * @param who the speaker's name or alias, e.g. "Echo II" or "echo"
+   * @param count the maximum number of messages to return
+   * @return up to count messages, oldest first
+   */
+  public static List<ChatMessage> getRecentBySpeaker(String who, int count) {
+    Transcript current = GameSession.getCurrent().transcript;
+    return getIndexed(current, current.speakerIndex.get(internSpeaker(who)), count);
   }
 
+  /**
+   * Returns a message's content without the prefix added for its speaker.
+   *
+   * @param msg a message read from the history
+   * @param who the speaker's name or alias
+   * @return the content as the speaker wrote it
+   */
+  public static String withoutSpeaker(ChatMessage msg, String who) {
+    String prefix = speakerPrefixes.get(internSpeaker(who));
+    String content = msg.getContent();
+    return content.startsWith(prefix) ? content.substring(prefix.length()) : content;
+  }
+
+  /**
+   * Returns the most recent messages with a role, reading only those messages.
+   *
+   * @param role the message role, e.g. "user" or "system"
+   * @param count the maximum number of messages to return
+   * @return up to count messages, oldest first
+   */
+  public static List<ChatMessage> getRecentByRole(String role, int count) {
+    Transcript current = GameSession.getCurrent().transcript;
+    return getIndexed(current, current.roleIndex.get(role), count);
+  }
+
+  /**
+   * Returns the shared history followed by a character's own context, without copying either.
+   *
+   * @param characterName the character the history is for
+   * @return the messages, oldest shared message first
+   */
   public static List<ChatMessage> getHistoryWithCharacterContext(String characterName) {
-    List<ChatMessage> combined = new ArrayList<>(history);
-    List<ChatMessage> characterContext = characterContexts.get(characterName);
-    if (characterContext != null) {
-      combined.addAll(characterContext);
+    Transcript current = GameSession.getCurrent().transcript;
+    return ChunkedAppendLog.concat(
+        new PrefixedView(current.history.snapshot(), null),
+        getCharacterContext(current, characterName));
+  }
+
+  /**
+   * Returns the history to replay for a character, trimmed to the token budget of the model. Older
+   * turns are represented by a rolling summary once one is available.
+   *
+   * @param characterName the character the history is for
+   * @param model the model the prompt will be sent to
+   * @param reservedTokens estimated tokens of the system prompts the caller adds itself
+   * @return the messages to add after the caller's system prompts
+   */
+  public static List<ChatMessage> getContextWindow(
+      String characterName, Model model, int reservedTokens) {
+    Transcript current = GameSession.getCurrent().transcript;
+    return contextWindow.select(
+        new PrefixedView(current.history.snapshot(), null),
+        getCharacterContext(current, characterName),
+        model,
+        reservedTokens);
+  }
+
+  /**
+   * Returns the context window manager, e.g. to configure per-model budgets.
+   *
+   * @return the shared context window
+   */
+  public static ContextWindow getContextWindow() {
+    return contextWindow;
+  }
+
+  private static void registerSpeaker(String name, String alias) {
+    int id = internSpeaker(name);
+    speakerIds.put(alias, id);
+  }
+
+  // A speaker with its own id, so it is indexed apart, but prefixed as another speaker
+  private static void registerSpeakerShownAs(String name, String shownAs) {
+    synchronized (speakerIds) {
+      speakerPrefixes.add(shownAs + " said: ");
+      speakerIds.put(name, speakerPrefixes.size() - 1);
+    }
+  }
+
+  private static int internSpeaker(String who) {
+    Integer id = speakerIds.get(who);
+    if (id != null) {
+      return id;
+    }
+    // Rare: a speaker seen for the first time. The lock keeps ids and prefixes in step
+    synchronized (speakerIds) {
+      return speakerIds.computeIfAbsent(
+          who,
+          name -> {
+            speakerPrefixes.add(name + " said: ");
+            return speakerPrefixes.size() - 1;
+          });
+    }
+  }
+
+  private static List<ChatMessage> getIndexed(
+      Transcript current, ChunkedAppendLog<Integer> index, int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("Count must not be negative, but was " + count);
+    }
+    if (index == null) {
+      return Collections.emptyList();
+    }
+    // History first: an index read afterwards may list positions the snapshot doesn't have yet
+    List<Entry> entries = current.history.snapshot();
+    List<Integer> positions = index.snapshot();
+    int end = positions.size();
+    while (end > 0 && positions.get(end - 1) >= entries.size()) {
+      end--;
+    }
+    return new PrefixedView(entries, positions.subList(Math.max(0, end - count), end));
+  }
+
+  private static List<ChatMessage> getCharacterContext(Transcript current, String characterName) {
+    ChunkedAppendLog<ChatMessage> characterContext = current.characterContexts.get(characterName);
+    return characterContext == null ? Collections.emptyList() : characterContext.snapshot();
+  }
+
+  // Entries as prefixed messages, either all of them or only those at the given positions
+  private static final class PrefixedView extends AbstractList<ChatMessage>
+      implements RandomAccess {
+
+    private final List<Entry> entries;
+    private final List<Integer> positions;
+
+    private PrefixedView(List<Entry> entries, List<Integer> positions) {
+      this.entries = entries;
+      this.positions = positions;
+    }
+
+    @Override
+    public ChatMessage get(int index) {
+      int position = positions == null ? index : positions.get(index);
+      return entries.get(position).getPrefixed();
+    }
+
+    @Override
+    public int size() {
+      return positions == null ? entries.size() : positions.size();
     }
-    return combined;
   }
 }
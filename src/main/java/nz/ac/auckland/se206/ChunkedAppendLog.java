@@ -0,0 +1,132 @@
+package nz.ac.auckland.se206;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * An append-only list that many threads can read while another appends. Items are stored in fixed
+ * size chunks that are never moved, and the number of items is published after each item is
+ * written, so a reader sees a consistent prefix without taking a lock. Writers are serialized among
+ * themselves but never wait for readers.
+ *
+ * @param <T> the item type
+ */
+public class ChunkedAppendLog<T> {
+
+  private static final int CHUNK_SHIFT = 6;
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  // Only the directory is copied when it grows; the chunks it points to are shared by every copy
+  private volatile Object[][] chunks = new Object[4][];
+  // Written last on each append, so everything below it is visible to a reader that reads it first
+  private volatile int size = 0;
+
+  /**
+   * Adds an item to the end of the log.
+   *
+   * @param item the item to add
+   */
+  public synchronized void append(T item) {
+    if (item == null) {
+      throw new IllegalArgumentException("Log items must not be null");
+    }
+    int index = size;
+    int chunk = index >>> CHUNK_SHIFT;
+    Object[][] directory = chunks;
+    if (chunk == directory.length) {
+      directory = Arrays.copyOf(directory, directory.length * 2);
+    }
+    if (directory[chunk] == null) {
+      directory[chunk] = new Object[CHUNK_SIZE];
+      chunks = directory;
+    }
+    directory[chunk][index & CHUNK_MASK] = item;
+    size = index + 1;
+  }
+
+  /**
+   * Returns the number of items appended so far.
+   *
+   * @return the size of the log
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns an unmodifiable view of the items appended so far. The view does not copy the items and
+   * does not change when more are appended later.
+   *
+   * @return the items in append order
+   */
+  public List<T> snapshot() {
+    // Size first: the directory read afterwards is at least as new as the one it was published with
+    int snapshotSize = size;
+    return new Snapshot<>(chunks, snapshotSize);
+  }
+
+  /**
+   * Returns an unmodifiable view of one list followed by another, without copying either.
+   *
+   * @param first the items to return first
+   * @param second the items to return after them
+   * @param <T> the item type
+   * @return the combined view
+   */
+  public static <T> List<T> concat(List<T> first, List<T> second) {
+    if (second.isEmpty()) {
+      return first;
+    }
+    return new Concatenation<>(first, second);
+  }
+
+  private static final class Snapshot<T> extends AbstractList<T> implements RandomAccess {
+
+    private final Object[][] chunks;
+    private final int size;
+
+    private Snapshot(Object[][] chunks, int size) {
+      this.chunks = chunks;
+      this.size = size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+      Objects.checkIndex(index, size);
+      return (T) chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+
+  private static final class Concatenation<T> extends AbstractList<T> implements RandomAccess {
+
+    private final List<T> first;
+    private final List<T> second;
+
+    private Concatenation(List<T> first, List<T> second) {
+      this.first = first;
+      this.second = second;
+    }
+
+    @Override
+    public T get(int index) {
+      Objects.checkIndex(index, size());
+      int firstSize = first.size();
+      return index < firstSize ? first.get(index) : second.get(index - firstSize);
+    }
+
+    @Override
+    public int size() {
+      return first.size() + second.size();
+    }
+  }
+}
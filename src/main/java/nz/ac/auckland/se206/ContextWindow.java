@@ -0,0 +1,249 @@
+package nz.ac.auckland.se206;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import nz.ac.auckland.apiproxy.chat.openai.ChatCompletionRequest;
+import nz.ac.auckland.apiproxy.chat.openai.ChatCompletionRequest.Model;
+import nz.ac.auckland.apiproxy.chat.openai.ChatMessage;
+import nz.ac.auckland.apiproxy.chat.openai.TokenEstimator;
+import nz.ac.auckland.apiproxy.config.ApiProxyConfig;
+import nz.ac.auckland.apiproxy.exceptions.ApiProxyException;
+
+/**
+ * Chooses which part of the shared chat history is replayed to a character so the prompt stays
+ * within a token budget for the model. System messages are always kept, recent turns are kept while
+ * they fit, and older turns are folded into a rolling summary that is written in the background.
+ */
+public class ContextWindow {
+
+  private static final int DEFAULT_BUDGET = 4000;
+  // Don't bother summarizing until at least this many turns have fallen out of the window
+  private static final int MIN_TURNS_TO_FOLD = 4;
+  private static final String SUMMARY_PREFIX = "Summary of the earlier courtroom conversation: ";
+
+  private final Map<Model, Integer> budgets = new EnumMap<>(Model.class);
+
+  private String summary = null;
+  // Number of shared history messages covered by the summary
+  private int summarizedCount = 0;
+  private boolean summarizing = false;
+  // Incremented on reset so a summary requested for a previous game is discarded
+  private int generation = 0;
+
+  public ContextWindow() {
+    for (Model model : Model.values()) {
+      budgets.put(model, DEFAULT_BUDGET);
+    }
+  }
+
+  /**
+   * Sets the prompt token budget for a model.
+   *
+   * @param model the model the budget applies to
+   * @param tokens the maximum estimated prompt tokens
+   */
+  public synchronized void setBudget(Model model, int tokens) {
+    if (tokens < 1) {
+      throw new IllegalArgumentException("Budget must be at least 1 token, but was " + tokens);
+    }
+    budgets.put(model, tokens);
+  }
+
+  /**
+   * Returns the prompt token budget for a model.
+   *
+   * @param model the model to look up
+   * @return the budget in estimated tokens
+   */
+  public synchronized int getBudget(Model model) {
+    return budgets.getOrDefault(model, DEFAULT_BUDGET);
+  }
+
+  /**
+   * Returns the current rolling summary, or null if nothing has been summarized yet.
+   *
+   * @return the summary text
+   */
+  public synchronized String getSummary() {
+    return summary;
+  }
+
+  /** Forgets the summary, e.g. when a new game starts. */
+  public synchronized void reset() {
+    summary = null;
+    summarizedCount = 0;
+    summarizing = false;
+    generation++;
+  }
+
+  /**
+   * Estimates the number of tokens a message will use in a prompt for the given model.
+   *
+   * @param message the message to measure
+   * @param model the model whose tokenizer applies
+   * @return the estimated token count, including the per-message framing overhead
+   */
+  public static int estimateTokens(ChatMessage message, Model model) {
+    // Counts are cached on the message, so re-selecting the same history each turn is cheap
+    return TokenEstimator.forModel(model).countMessage(message);
+  }
+
+  /**
+   * Selects the messages to replay for a character.
+   *
+   * @param history the shared history, oldest first
+   * @param characterContext messages only this character sees, always kept
+   * @param model the model the prompt is for
+   * @param reservedTokens tokens already used by the caller's own pinned system prompts
+   * @return the messages to add to the request, oldest first
+   */
+  public List<ChatMessage> select(
+      List<ChatMessage> history,
+      List<ChatMessage> characterContext,
+      Model model,
+      int reservedTokens) {
+    String currentSummary;
+    int currentSummarizedCount;
+    synchronized (this) {
+      currentSummary = summary;
+      currentSummarizedCount = Math.min(summarizedCount, history.size());
+    }
+
+    int remaining = getBudget(model) - reservedTokens;
+    ChatMessage summaryMessage = null;
+    if (currentSummary != null) {
+      summaryMessage = new ChatMessage("system", SUMMARY_PREFIX + currentSummary);
+      remaining -= estimateTokens(summaryMessage, model);
+    }
+
+    // Pinned: every system notice in the shared history and all character-specific context
+    for (ChatMessage message : history) {
+      if (isPinned(message)) {
+        remaining -= estimateTokens(message, model);
+      }
+    }
+    for (ChatMessage message : characterContext) {
+      remaining -= estimateTokens(message, model);
+    }
+
+    // Keep the newest turns that still fit, walking back towards the summarized part
+    int firstKept = history.size();
+    for (int i = history.size() - 1; i >= currentSummarizedCount; i--) {
+      ChatMessage message = history.get(i);
+      if (isPinned(message)) {
+        continue;
+      }
+      int tokens = estimateTokens(message, model);
+      if (tokens > remaining) {
+        break;
+      }
+      remaining -= tokens;
+      firstKept = i;
+    }
+
+    List<ChatMessage> selected = new ArrayList<>();
+    if (summaryMessage != null) {
+      selected.add(summaryMessage);
+    }
+    for (int i = 0; i < history.size(); i++) {
+      ChatMessage message = history.get(i);
+      if (i >= firstKept || isPinned(message)) {
+        selected.add(message);
+      }
+    }
+    selected.addAll(characterContext);
+
+    // Turns that no longer fit and aren't covered by the summary are folded in the background
+    if (countUnpinned(history, currentSummarizedCount, firstKept) >= MIN_TURNS_TO_FOLD) {
+      requestSummary(history.subList(0, firstKept));
+    }
+    return selected;
+  }
+
+  private static boolean isPinned(ChatMessage message) {
+    return message.getRole().equals("system");
+  }
+
+  private static int countUnpinned(List<ChatMessage> history, int from, int to) {
+    int count = 0;
+    for (int i = from; i < to; i++) {
+      if (!isPinned(history.get(i))) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private void requestSummary(List<ChatMessage> toFold) {
+    String previousSummary;
+    int from;
+    int requestGeneration;
+    synchronized (this) {
+      if (summarizing || toFold.size() <= summarizedCount) {
+        return;
+      }
+      summarizing = true;
+      previousSummary = summary;
+      from = summarizedCount;
+      requestGeneration = generation;
+    }
+
+    int foldedCount = toFold.size();
+    StringBuilder transcript = new StringBuilder();
+    if (previousSummary != null) {
+      transcript.append("Summary so far: ").append(previousSummary).append("\n\n");
+    }
+    transcript.append("New conversation to add:\n");
+    for (ChatMessage message : toFold.subList(from, foldedCount)) {
+      if (!isPinned(message)) {
+        transcript.append(message.getContent()).append('\n');
+      }
+    }
+
+    ChatCompletionRequest request;
+    try {
+      request =
+          new ChatCompletionRequest(ApiProxyConfig.readConfig())
+              .setN(1)
+              .setTemperature(0.2)
+              .setModel(Model.GPT_4_1_NANO)
+              .setMaxTokens(250)
+              .addMessage(
+                  "system",
+                  "You maintain a running summary of a courtroom conversation between a player and"
+                      + " the characters Aegis I, Orion Vale and Echo II. Merge the new"
+                      + " conversation into the summary. Keep who said what, claims, evidence and"
+                      + " admissions. Reply with the updated summary only, in at most 150 words.")
+              .addMessage("user", transcript.toString());
+    } catch (ApiProxyException e) {
+      e.printStackTrace();
+      synchronized (this) {
+        summarizing = false;
+      }
+      return;
+    }
+
+    // Summarization never blocks a reply; until it lands the older turns are simply left out
+    request
+        .executeAsync()
+        .whenComplete(
+            (result, error) -> {
+              synchronized (this) {
+                if (requestGeneration != generation) {
+                  return;
+                }
+                summarizing = false;
+                if (error != null) {
+                  error.printStackTrace();
+                  return;
+                }
+                summary = result.getChoice(0).getChatMessage().getContent().trim();
+                summarizedCount = foldedCount;
+                System.out.println(
+                    "*** Context window: summary now covers " + foldedCount + " messages");
+              }
+            });
+  }
+}
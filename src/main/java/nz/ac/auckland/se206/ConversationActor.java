@@ -0,0 +1,308 @@
+package nz.ac.auckland.se206;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import nz.ac.auckland.apiproxy.chat.openai.ChatCompletionRequest;
+import nz.ac.auckland.apiproxy.chat.openai.ChatMessage;
+import nz.ac.auckland.apiproxy.exceptions.ApiProxyException;
+import nz.ac.auckland.se206.concurrent.TaskHandle;
+import nz.ac.auckland.se206.concurrent.TaskRuntime;
+
+/**
+ * Owns one character's chat request and changes it from a single thread, so turns, history syncs
+ * and injected context never interleave. Everything arrives through a mailbox:
+ *
+ * <ul>
+ *   <li>Turns run one at a time in the order they were sent; the next starts only when the reply to
+ *       the previous one has finished, so each is sent with the one before it in the request.
+ *   <li>Rebuilds and edits go ahead of any waiting turns, but never interrupt the turn in flight.
+ *       Only the newest waiting rebuild is kept, since it reads the newest history anyway.
+ *   <li>A reset, used for a new game, cancels the turn in flight, and with it the reply still
+ *       streaming, and everything waiting.
+ * </ul>
+ *
+ * <p>Senders never block: they get a future for the reply and carry on, so the chat input stays
+ * usable while earlier turns are still being answered.
+ */
+public class ConversationActor {
+
+  /** A turn of the conversation, started by the actor once the turns before it have finished. */
+  public interface Turn {
+
+    /**
+     * Sends the turn with the given request. Called on the actor's thread, which owns the request
+     * until the returned future completes.
+     *
+     * @param request the character's current request
+     * @return a future completing with the reply, or null if there is none. A reset cancels it, so
+     *     cancelling it should stop the request
+     */
+    CompletableFuture<ChatMessage> start(ChatCompletionRequest request);
+  }
+
+  // A mailbox entry: either a turn with its result, or an operation on the request
+  private static final class Letter {
+    private final Turn turn;
+    private final Function<ChatCompletionRequest, ChatCompletionRequest> change;
+    private final boolean rebuild;
+    private final CompletableFuture<ChatMessage> result = new CompletableFuture<>();
+    // The turn's own future once it has started, cancelled by a reset; guarded by the actor's lock
+    private CompletableFuture<ChatMessage> reply = null;
+
+    private Letter(
+        Turn turn, Function<ChatCompletionRequest, ChatCompletionRequest> change, boolean rebuild) {
+      this.turn = turn;
+      this.change = change;
+      this.rebuild = rebuild;
+    }
+  }
+
+  private final String name;
+  // A lock rather than a monitor: the consumer is a virtual thread, and waiting on a monitor would
+  // pin its carrier thread
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition posted = lock.newCondition();
+  // Rebuilds, edits and resets, taken before any turn; guarded by the lock
+  private final Deque<Letter> urgent = new ArrayDeque<>();
+  private final Deque<Letter> turns = new ArrayDeque<>();
+  private final AtomicInteger pendingTurns = new AtomicInteger();
+  private Letter inFlight = null;
+  private TaskHandle<Void> consumer = null;
+
+  // Only read and written by the consumer
+  private ChatCompletionRequest request = null;
+
+  /**
+   * Creates an actor for one character. Its thread starts with the first letter.
+   *
+   * @param name the character's name, used to name the thread
+   */
+  public ConversationActor(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Queues a turn behind any turns already waiting.
+   *
+   * @param turn the turn to send
+   * @return a future completing with the reply, or with null if there is no request to send it
+   *     with; cancelled if a reset comes first
+   */
+  public CompletableFuture<ChatMessage> send(Turn turn) {
+    Letter letter = new Letter(turn, null, false);
+    pendingTurns.incrementAndGet();
+    letter.result.whenComplete((reply, e) -> pendingTurns.decrementAndGet());
+    post(letter, false);
+    return letter.result;
+  }
+
+  /**
+   * Replaces the request with a newly built one, ahead of any waiting turns. A rebuild still
+   * waiting from an earlier call is dropped.
+   *
+   * @param builder builds the new request; runs on the shared pool once the turn in flight is done
+   * @return a future completing once the new request is in place, or once a later rebuild that
+   *     replaced this one is
+   */
+  public CompletableFuture<Void> rebuild(Supplier<ChatCompletionRequest> builder) {
+    Letter letter =
+        new Letter(
+            null,
+            current ->
+                TaskRuntime.getInstance()
+                    .submitCpu("chat-sync " + name, builder::get)
+                    .getCompletion()
+                    .join(),
+            true);
+    post(letter, true);
+    return letter.result.thenApply(ignored -> null);
+  }
+
+  /**
+   * Changes the current request ahead of any waiting turns, e.g. to add context the character
+   * should see on its next reply. Nothing happens if there is no request yet.
+   *
+   * @param change the change to make
+   */
+  public void edit(Consumer<ChatCompletionRequest> change) {
+    post(
+        new Letter(
+            null,
+            current -> {
+              if (current != null) {
+                change.accept(current);
+              }
+              return current;
+            },
+            false),
+        true);
+  }
+
+  /**
+   * Starts the conversation again with the given request. The turn in flight and every waiting
+   * turn, rebuild and edit are cancelled.
+   *
+   * @param fresh the request to continue with, or null until one is built
+   */
+  public void reset(ChatCompletionRequest fresh) {
+    lock.lock();
+    try {
+      for (Letter letter : turns) {
+        letter.result.cancel(false);
+      }
+      turns.clear();
+      for (Letter letter : urgent) {
+        letter.result.cancel(false);
+      }
+      urgent.clear();
+      if (inFlight != null) {
+        inFlight.result.cancel(false);
+        if (inFlight.reply != null) {
+          // Stops the request, so the old game's reply stops streaming into the new chat
+          inFlight.reply.cancel(true);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    post(new Letter(null, current -> fresh, false), true);
+  }
+
+  /**
+   * Returns the number of turns sent but not yet answered, including the one in flight.
+   *
+   * @return the number of pending turns
+   */
+  public int getPendingTurns() {
+    return pendingTurns.get();
+  }
+
+  private void post(Letter letter, boolean jump) {
+    lock.lock();
+    try {
+      if (jump) {
+        if (letter.rebuild) {
+          for (Letter waiting : urgent) {
+            if (waiting.rebuild) {
+              // Whoever waits on the older rebuild is done when the newer one is
+              letter.result.whenComplete(
+                  (reply, e) -> {
+                    if (e == null) {
+                      waiting.result.complete(reply);
+                    } else {
+                      waiting.result.completeExceptionally(e);
+                    }
+                  });
+            }
+          }
+          urgent.removeIf(waiting -> waiting.rebuild);
+        }
+        urgent.add(letter);
+      } else {
+        turns.add(letter);
+      }
+      if (consumer == null || consumer.isDone()) {
+        consumer = TaskRuntime.getInstance().runIo("conversation " + name, this::consume);
+      }
+      posted.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Letter take() throws InterruptedException {
+    lock.lock();
+    try {
+      while (urgent.isEmpty() && turns.isEmpty()) {
+        posted.await();
+      }
+      inFlight = urgent.isEmpty() ? turns.poll() : urgent.poll();
+      return inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void finish() {
+    lock.lock();
+    try {
+      inFlight = null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void consume() {
+    try {
+      while (true) {
+        Letter letter = take();
+        try {
+          if (letter.turn == null) {
+            request = letter.change.apply(request);
+            letter.result.complete(null);
+          } else {
+            runTurn(letter);
+          }
+        } catch (RuntimeException e) {
+          // One failed letter must not stop the conversation
+          e.printStackTrace();
+          letter.result.completeExceptionally(e);
+        } finally {
+          finish();
+        }
+      }
+    } catch (InterruptedException e) {
+      // Shutting down
+    }
+  }
+
+  private void runTurn(Letter letter) {
+    if (letter.result.isDone()) {
+      // Cancelled while it waited
+      return;
+    }
+    if (request == null) {
+      new ApiProxyException("ChatCompletionRequest not initialized").printStackTrace();
+      letter.result.complete(null);
+      return;
+    }
+    CompletableFuture<ChatMessage> reply = letter.turn.start(request);
+    if (reply == null) {
+      letter.result.complete(null);
+      return;
+    }
+    lock.lock();
+    try {
+      letter.reply = reply;
+    } finally {
+      lock.unlock();
+    }
+    if (letter.result.isCancelled()) {
+      // A reset came while the turn was starting, before it could see the reply
+      reply.cancel(true);
+    }
+    reply.whenComplete(
+        (message, e) -> {
+          if (e == null) {
+            letter.result.complete(message);
+          } else {
+            letter.result.completeExceptionally(e);
+          }
+        });
+    // The next letter waits for this reply, or for a reset to give up on it
+    try {
+      letter.result.join();
+    } catch (CancellationException | CompletionException e) {
+      // Reported to whoever sent the turn
+    }
+  }
+}
@@ -8,11 +8,19 @@ import javafx.beans.property.SimpleIntegerProperty;
 import javafx.event.ActionEvent;
 import javafx.util.Duration;
 
+/**
+ * Ticks the countdown of the game being played and shows it on the timer label. The countdown
+ * itself belongs to the current {@link GameSession}; this class holds the one timeline and the
+ * property the label is bound to, which outlive any single game.
+ */
 public class CountdownTimer {
+  /** The length of the first countdown, in which the player questions the characters. */
+  public static final int FIRST_COUNTDOWN_SECONDS = 300;
+
   private static final int secondDuration = 1;
   private static Timeline countdownTimer;
-  private static final IntegerProperty secondsRemaining = new SimpleIntegerProperty(300);
-  private static boolean guessed = false;
+  private static final IntegerProperty secondsRemaining =
+      new SimpleIntegerProperty(FIRST_COUNTDOWN_SECONDS);
 
   static {
     countdownTimer =
@@ -20,10 +28,14 @@ public class CountdownTimer {
             new KeyFrame(
                 Duration.seconds(secondDuration),
                 (ActionEvent event) -> {
-                  int currentSeconds = secondsRemaining.get();
+                  GameSession game = GameSession.getCurrent();
+                  int currentSeconds = game.getSecondsRemaining();
 
                   if (currentSeconds > 0) {
+                    game.setCountdown(currentSeconds - 1, game.isVerdictPhase());
                     secondsRemaining.set(currentSeconds - 1);
+                    SessionJournal.getInstance()
+                        .recordTimer(currentSeconds - 1, game.isVerdictPhase());
                   } else {
                     try {
                       guess();
@@ -37,12 +49,15 @@ public class CountdownTimer {
   }
 
   public static void start() {
+    // Show where this game's countdown is, which a restart or resume may have changed
+    secondsRemaining.set(GameSession.getCurrent().getSecondsRemaining());
     countdownTimer.play();
   }
 
   public static void guess() throws IOException {
     countdownTimer.pause();
-    if (!guessed) {
+    GameSession game = GameSession.getCurrent();
+    if (!game.isVerdictPhase()) {
       // Check if player has talked to all characters when initial timer expires
       if (!nz.ac.auckland.se206.states.GameStateManager.getInstance().hasSpokenToAllCharacters()) {
         // Player loses immediately for not talking to all characters
@@ -63,14 +78,15 @@ public class CountdownTimer {
       // TTS for last question
       try {
         playEndTtsAudio();
+        game.setCountdown(60, true);
         secondsRemaining.set(60);
-        guessed = true;
+        SessionJournal.getInstance().recordTimer(60, true);
       } catch (Exception e) {
         e.printStackTrace();
       }
     } else {
       // Always show timeout message when timer reaches 0
-      if (secondsRemaining.get() == 0) {
+      if (game.getSecondsRemaining() == 0) {
         nz.ac.auckland.se206.controllers.EndController.instance.setMessage("timeout");
         nz.ac.auckland.se206.controllers.EndController.instance.setVisible();
       }
@@ -90,14 +106,26 @@ public class CountdownTimer {
 
   public static void stop() {
     countdownTimer.pause();
+    GameSession game = GameSession.getCurrent();
+    game.setCountdown(0, game.isVerdictPhase());
     secondsRemaining.set(0);
   }
 
-  /** Resets the timer for a new game. */
+  /**
+   * Pauses the timer and shows the countdown of the game now being played, e.g. after a restart.
+   */
   public static void reset() {
     countdownTimer.pause();
-    secondsRemaining.set(300);
-    guessed = false;
+    secondsRemaining.set(GameSession.getCurrent().getSecondsRemaining());
+  }
+
+  /**
+   * Returns whether the first countdown has run out and the player is giving their verdict.
+   *
+   * @return true in the verdict phase
+   */
+  public static boolean isGuessed() {
+    return GameSession.getCurrent().isVerdictPhase();
   }
 
   // Setting the seconds
@@ -0,0 +1,128 @@
+package nz.ac.auckland.se206;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import nz.ac.auckland.se206.concurrent.UiScheduler;
+import nz.ac.auckland.se206.states.GameStateManager;
+
+/**
+ * Everything that belongs to one play-through: the shared chat history, the characters talked to
+ * and interaction flags, the rooms already visited and the countdown. Restarting swaps in a fresh
+ * session, so nothing has to be cleared field by field, and work still in flight for the old game
+ * can tell that it is stale and drop its result.
+ */
+public class GameSession {
+
+  private static volatile GameSession current = new GameSession();
+
+  /**
+   * Returns the session of the game being played.
+   *
+   * @return the current session
+   */
+  public static GameSession getCurrent() {
+    return current;
+  }
+
+  /**
+   * Ends the current game and starts a new one. The shared history, flags, visits, countdown and
+   * journal all start from scratch; controllers reset their own screens, and the timer display is
+   * pointed at the new countdown with {@link CountdownTimer#reset()}.
+   *
+   * @return the new session
+   */
+  public static GameSession restart() {
+    GameSession previous = current;
+    current = new GameSession();
+    // Delayed lines, the rolling summary and the journal belong to the old game
+    UiScheduler.getInstance().cancelAll();
+    ChatHistory.getContextWindow().reset();
+    SessionJournal.getInstance().clear();
+    System.out.println(
+        "*** Session: started a new game after "
+            + previous.transcript.size()
+            + " messages in the last one");
+    return current;
+  }
+
+  final ChatHistory.Transcript transcript = new ChatHistory.Transcript();
+  private final GameStateManager gameState = new GameStateManager();
+  private final Set<String> visitedRooms = ConcurrentHashMap.newKeySet();
+
+  // The countdown, only changed on the JavaFX thread by the timer and by a resume
+  private int secondsRemaining = CountdownTimer.FIRST_COUNTDOWN_SECONDS;
+  private boolean verdictPhase = false;
+
+  private GameSession() {}
+
+  /**
+   * Returns whether this is still the game being played, e.g. before recording a late reply.
+   *
+   * @return false once the game has been restarted
+   */
+  public boolean isCurrent() {
+    return this == current;
+  }
+
+  /**
+   * Returns the characters talked to and interaction flags of this game.
+   *
+   * @return the game state
+   */
+  public GameStateManager getGameState() {
+    return gameState;
+  }
+
+  /**
+   * Returns whether the player has been into a character's room in this game.
+   *
+   * @param room the room, e.g. "defendant"
+   * @return true after the first visit
+   */
+  public boolean hasVisited(String room) {
+    return visitedRooms.contains(room);
+  }
+
+  /**
+   * Records the player's first visit to a character's room.
+   *
+   * @param room the room, e.g. "defendant"
+   */
+  public void markVisited(String room) {
+    if (visitedRooms.add(room)) {
+      SessionJournal.getInstance().recordVisit(room);
+    }
+  }
+
+  /**
+   * Returns the seconds left on this game's countdown.
+   *
+   * @return the seconds remaining
+   */
+  public int getSecondsRemaining() {
+    return secondsRemaining;
+  }
+
+  /**
+   * Returns whether the first countdown has run out and the player is giving their verdict.
+   *
+   * @return true in the verdict phase
+   */
+  public boolean isVerdictPhase() {
+    return verdictPhase;
+  }
+
+  /**
+   * Sets this game's countdown, e.g. after a tick or when resuming a game.
+   *
+   * @param seconds the seconds remaining
+   * @param verdictPhase whether the first countdown has already run out
+   */
+  public void setCountdown(int seconds, boolean verdictPhase) {
+    if (seconds < 0) {
+      throw new IllegalArgumentException("Seconds must not be negative, but was " + seconds);
+    }
+    this.secondsRemaining = seconds;
+    this.verdictPhase = verdictPhase;
+  }
+}
@@ -9,6 +9,7 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import javafx.scene.input.MouseEvent;
+import nz.ac.auckland.se206.speech.TtsPrefetcher;
 import nz.ac.auckland.se206.states.GameOver;
 import nz.ac.auckland.se206.states.GameStarted;
 import nz.ac.auckland.se206.states.GameState;
@@ -68,6 +69,9 @@ public class GameStateContext {
     rectIdToGuess =
         randomNumber == 0 ? "rectPerson1" : ((randomNumber == 1) ? "rectPerson2" : "rectPerson3");
     professionToGuess = rectanglesToProfession.get(rectIdToGuess);
+
+    // The guess prompt is fixed from here on, so its audio can be prepared in the background
+    TtsPrefetcher.getInstance().declare(GameStarted.getGuessPrompt(professionToGuess));
   }
 
   /**
@@ -0,0 +1,149 @@
+package nz.ac.auckland.se206;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import nz.ac.auckland.apiproxy.chat.openai.ChatCompletionRequest;
+import nz.ac.auckland.apiproxy.chat.openai.ChatCompletionRequest.Model;
+import nz.ac.auckland.apiproxy.chat.openai.ChatMessage;
+
+/**
+ * Assembles one character's prompts so the provider's prompt cache can serve as much of each
+ * request as possible. The cache only covers the part of a prompt that is identical to an earlier
+ * one from the start, so:
+ *
+ * <ul>
+ *   <li>Every request starts with the same stable prefix, the character's instructions, built once
+ *       and sent byte for byte the same whether the request is new or rebuilt from the history.
+ *   <li>Context injected on each turn, such as a puzzle's state, is only added when the request
+ *       doesn't already hold it, so it doesn't pile up and the request grows only at the end.
+ * </ul>
+ *
+ * <p>Each request is reported as it is sent, with how many of its tokens match the previous one and
+ * so could be served from the cache.
+ */
+public class PromptAssembler {
+
+  // The provider caches prompts of at least this many tokens, in steps of the increment
+  private static final int MIN_CACHED_TOKENS = 1024;
+  private static final int CACHE_INCREMENT_TOKENS = 128;
+
+  private final String name;
+  private final Model model;
+  private final List<ChatMessage> stablePrefix;
+  private final int stablePrefixTokens;
+
+  // The messages of the last request reported, guarded by this
+  private List<ChatMessage> lastSent = List.of();
+
+  /**
+   * Creates an assembler for one character.
+   *
+   * @param name the character's name, shown in reports
+   * @param model the model the prompts are for, whose tokenizer the counts follow
+   * @param stablePrefix the instructions every request starts with, in order; null entries are
+   *     skipped
+   */
+  public PromptAssembler(String name, Model model, List<ChatMessage> stablePrefix) {
+    this.name = name;
+    this.model = model;
+    List<ChatMessage> prefix = new ArrayList<>();
+    int tokens = 0;
+    for (ChatMessage message : stablePrefix) {
+      if (message != null) {
+        prefix.add(message);
+        tokens += ContextWindow.estimateTokens(message, model);
+      }
+    }
+    this.stablePrefix = List.copyOf(prefix);
+    this.stablePrefixTokens = tokens;
+  }
+
+  /**
+   * Adds the stable prefix to a new request, which must not hold any messages yet.
+   *
+   * @param request the request to start
+   * @return the request, for chaining
+   */
+  public ChatCompletionRequest start(ChatCompletionRequest request) {
+    if (!request.getMessages().isEmpty()) {
+      throw new IllegalArgumentException("The stable prefix must start the request");
+    }
+    for (ChatMessage message : stablePrefix) {
+      request.addMessage(message);
+    }
+    return request;
+  }
+
+  /**
+   * Returns the estimated tokens of the stable prefix, e.g. to reserve them from a budget.
+   *
+   * @return the prefix tokens
+   */
+  public int getStablePrefixTokens() {
+    return stablePrefixTokens;
+  }
+
+  /**
+   * Adds context to a request unless the request already holds the same message.
+   *
+   * @param request the request about to be sent
+   * @param context the context to add
+   * @return true if it was added, false if it was already there
+   */
+  public boolean inject(ChatCompletionRequest request, ChatMessage context) {
+    for (ChatMessage message : request.getMessages()) {
+      if (isSame(message, context)) {
+        return false;
+      }
+    }
+    request.addMessage(context);
+    return true;
+  }
+
+  /**
+   * Reports a request that is about to be sent: its size, and how much of it matches the previous
+   * request from the start and is long enough for the provider to cache.
+   *
+   * @param request the request about to be sent
+   * @return the estimated tokens that could be served from the prompt cache
+   */
+  public int report(ChatCompletionRequest request) {
+    List<ChatMessage> messages = request.getMessages();
+    int sharedTokens = 0;
+    synchronized (this) {
+      int shared = 0;
+      while (shared < messages.size()
+          && shared < lastSent.size()
+          && isSame(messages.get(shared), lastSent.get(shared))) {
+        sharedTokens += ContextWindow.estimateTokens(messages.get(shared), model);
+        shared++;
+      }
+      lastSent = messages;
+    }
+    int cacheableTokens =
+        sharedTokens < MIN_CACHED_TOKENS
+            ? 0
+            : sharedTokens / CACHE_INCREMENT_TOKENS * CACHE_INCREMENT_TOKENS;
+    System.out.println(
+        "*** Prompt: "
+            + name
+            + " sends "
+            + request.estimatePromptTokens()
+            + " tokens, "
+            + sharedTokens
+            + " matching the last request ("
+            + cacheableTokens
+            + " cacheable, stable prefix "
+            + stablePrefixTokens
+            + ")");
+    return cacheableTokens;
+  }
+
+  private static boolean isSame(ChatMessage a, ChatMessage b) {
+    // Messages are encoded from their role and content alone, so equal fields mean equal bytes
+    return a == b
+        || (Objects.equals(a.getRole(), b.getRole())
+            && Objects.equals(a.getContent(), b.getContent()));
+  }
+}
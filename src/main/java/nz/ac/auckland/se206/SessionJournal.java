@@ -0,0 +1,450 @@
+package nz.ac.auckland.se206;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import nz.ac.auckland.apiproxy.chat.openai.ChatMessage;
+import nz.ac.auckland.apiproxy.service.JsonSupport;
+import nz.ac.auckland.se206.states.GameStateManager;
+
+/**
+ * Keeps an append-only record of the current game on disk so that a game interrupted by a crash can
+ * be resumed where it stopped. Chat messages, interaction flags, room visits and timer ticks are
+ * recorded as one JSON object per line.
+ *
+ * <p>Recording only queues the record; a background thread writes whatever has queued up and syncs
+ * the file at most a few times a second, so the UI thread never waits on the disk. On startup the
+ * journal is read off the UI thread and then replayed into the game state without calling the GPT
+ * proxy. A clean exit discards it.
+ */
+public class SessionJournal {
+
+  // The longest a record waits to be synced, and so the most that a crash can lose
+  private static final long SYNC_INTERVAL_MS = 200;
+  private static final long CLOSE_TIMEOUT_MS = 1000;
+
+  // Queued in order with the records, so they apply after everything recorded before them
+  private static final Object CLEAR = new Object();
+  private static final Object DISCARD = new Object();
+
+  private static SessionJournal instance;
+
+  /**
+   * Returns the shared journal, stored under the user's home directory.
+   *
+   * @return the journal instance
+   */
+  public static synchronized SessionJournal getInstance() {
+    if (instance == null) {
+      instance =
+          new SessionJournal(
+              Paths.get(System.getProperty("user.home"), ".trial-ai", "session.journal"));
+    }
+    return instance;
+  }
+
+  private final Path file;
+  private final ObjectMapper mapper = JsonSupport.getMapper();
+  private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+  private final Thread writer;
+
+  // State restored by replay that controllers pick up as they load
+  private final Map<String, StringBuilder> transcripts = new ConcurrentHashMap<>();
+  private volatile boolean resumed = false;
+
+  // Set while replaying so the game state being rebuilt is not recorded a second time. Static, as
+  // the state records itself to the shared journal whichever journal is being replayed
+  private static volatile boolean replaying = false;
+  private volatile boolean closed = false;
+
+  /**
+   * Creates a journal writing to the given file.
+   *
+   * @param file the journal file, created on the first record
+   */
+  public SessionJournal(Path file) {
+    this.file = file;
+    writer = new Thread(this::write, "session-journal");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Records a message added to the shared chat history.
+   *
+   * @param message the message as added, without the speaker prefix
+   * @param speaker who said it
+   */
+  public void recordMessage(ChatMessage message, String speaker) {
+    ObjectNode record = createRecord("message");
+    record.put("role", message.getRole());
+    record.put("content", message.getContent());
+    record.put("speaker", speaker);
+    enqueue(record);
+  }
+
+  /**
+   * Records context given to one character only.
+   *
+   * @param message the context message
+   * @param character the character who sees it
+   */
+  public void recordCharacterContext(ChatMessage message, String character) {
+    ObjectNode record = createRecord("context");
+    record.put("role", message.getRole());
+    record.put("content", message.getContent());
+    record.put("character", character);
+    enqueue(record);
+  }
+
+  /**
+   * Records text shown in a character's chat area, so the conversation is visible after a resume.
+   *
+   * @param character the character whose chat shows the text
+   * @param text the text as appended
+   */
+  public void recordShown(String character, String text) {
+    ObjectNode record = createRecord("shown");
+    record.put("character", character);
+    record.put("text", text);
+    enqueue(record);
+  }
+
+  /**
+   * Records that the player has talked to a character.
+   *
+   * @param character the character's name
+   */
+  public void recordTalkedTo(String character) {
+    ObjectNode record = createRecord("talked");
+    record.put("character", character);
+    enqueue(record);
+  }
+
+  /**
+   * Records a game or interaction flag.
+   *
+   * @param name the flag name
+   * @param value the new value
+   */
+  public void recordFlag(String name, boolean value) {
+    ObjectNode record = createRecord("flag");
+    record.put("name", name);
+    record.put("value", value);
+    enqueue(record);
+  }
+
+  /**
+   * Records the countdown after a tick.
+   *
+   * @param secondsRemaining the seconds left on the timer
+   * @param guessed whether the game is in the verdict phase
+   */
+  public void recordTimer(int secondsRemaining, boolean guessed) {
+    ObjectNode record = createRecord("timer");
+    record.put("seconds", secondsRemaining);
+    record.put("guessed", guessed);
+    enqueue(record);
+  }
+
+  /** Records that the player has started the game from the opening screen. */
+  public void recordStarted() {
+    enqueue(createRecord("started"));
+  }
+
+  /**
+   * Records the player's first visit to a character's room.
+   *
+   * @param room the room, e.g. "defendant"
+   */
+  public void recordVisit(String room) {
+    ObjectNode record = createRecord("visit");
+    record.put("room", room);
+    enqueue(record);
+  }
+
+  /**
+   * Reads the journal left by a previous run. This reads and parses the whole file, so call it off
+   * the UI thread. Lines that don't parse are skipped; a torn last line left by a crash is also cut
+   * off the file, so the records appended after a resume follow the last whole one.
+   *
+   * @return the records, oldest first
+   */
+  public List<JsonNode> read() {
+    List<JsonNode> records = new ArrayList<>();
+    byte[] journal;
+    try {
+      journal = Files.readAllBytes(file);
+    } catch (NoSuchFileException e) {
+      // Nothing to resume
+      return records;
+    } catch (IOException e) {
+      e.printStackTrace();
+      return records;
+    }
+
+    int lineStart = 0;
+    int newline;
+    int skipped = 0;
+    while ((newline = indexOf(journal, (byte) '\n', lineStart)) >= 0) {
+      try {
+        records.add(mapper.readTree(journal, lineStart, newline - lineStart));
+      } catch (IOException e) {
+        // A whole line that doesn't parse loses only its own record
+        skipped++;
+      }
+      lineStart = newline + 1;
+    }
+    if (skipped > 0) {
+      System.out.println("*** Journal: skipped " + skipped + " unreadable records");
+    }
+    if (lineStart < journal.length) {
+      // A crash part way through a write leaves a torn last line. Cut it off, or the records
+      // appended after this resume would be lost behind it
+      System.out.println("*** Journal: dropped a torn last record");
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+        channel.truncate(lineStart);
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+    return records;
+  }
+
+  /**
+   * Rebuilds the game state from records read from the journal. Must be called on the UI thread
+   * before the game records anything. A journal from a game that was never started is dropped.
+   *
+   * @param records the records returned by {@link #read()}
+   * @return true if a game was resumed
+   */
+  public synchronized boolean replay(List<JsonNode> records) {
+    boolean started = false;
+    for (JsonNode record : records) {
+      if (record.path("type").asText().equals("started")) {
+        started = true;
+        break;
+      }
+    }
+    if (!started) {
+      clear();
+      return false;
+    }
+
+    replaying = true;
+    try {
+      int seconds = -1;
+      boolean guessed = false;
+      for (JsonNode record : records) {
+        switch (record.path("type").asText()) {
+          case "message":
+            ChatHistory.addMessage(
+                new ChatMessage(record.path("role").asText(), record.path("content").asText()),
+                record.path("speaker").asText());
+            break;
+          case "context":
+            ChatHistory.addCharacterContext(
+                new ChatMessage(record.path("role").asText(), record.path("content").asText()),
+                record.path("character").asText());
+            break;
+          case "shown":
+            transcripts
+                .computeIfAbsent(record.path("character").asText(), k -> new StringBuilder())
+                .append(record.path("text").asText());
+            break;
+          case "talked":
+            GameStateManager.getInstance().setCharacterTalkedTo(record.path("character").asText());
+            break;
+          case "flag":
+            GameStateManager.getInstance()
+                .setFlag(record.path("name").asText(), record.path("value").asBoolean());
+            break;
+          case "timer":
+            // Only the last tick matters
+            seconds = record.path("seconds").asInt();
+            guessed = record.path("guessed").asBoolean();
+            break;
+          case "visit":
+            GameSession.getCurrent().markVisited(record.path("room").asText());
+            break;
+          default:
+            break;
+        }
+      }
+      if (seconds >= 0) {
+        GameSession.getCurrent().setCountdown(seconds, guessed);
+      }
+    } finally {
+      replaying = false;
+    }
+    resumed = true;
+    System.out.println("*** Journal: resumed game from " + records.size() + " records");
+    return true;
+  }
+
+  /**
+   * Returns whether the current game was resumed from the journal.
+   *
+   * @return true if replay restored a game
+   */
+  public boolean isResumed() {
+    return resumed;
+  }
+
+  /**
+   * Returns the restored chat text for a character, or null if the game was not resumed.
+   *
+   * @param character the character's name
+   * @return the text their chat area showed, or null
+   */
+  public String getTranscript(String character) {
+    if (!resumed) {
+      return null;
+    }
+    StringBuilder transcript = transcripts.get(character);
+    return transcript == null ? "" : transcript.toString();
+  }
+
+  /** Starts a new game: the journal is emptied and the restored state forgotten. */
+  public void clear() {
+    resumed = false;
+    transcripts.clear();
+    queue.add(CLEAR);
+  }
+
+  /** Ends the journal on a clean exit, deleting it so the next run starts a new game. */
+  public void discard() {
+    closed = true;
+    queue.add(DISCARD);
+    try {
+      writer.join(CLOSE_TIMEOUT_MS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private ObjectNode createRecord(String type) {
+    return mapper.createObjectNode().put("type", type);
+  }
+
+  private void enqueue(ObjectNode record) {
+    if (replaying || closed) {
+      return;
+    }
+    // Serialized on the writer thread; the caller only pays for the queue insert
+    queue.add(record);
+  }
+
+  private static int indexOf(byte[] bytes, byte value, int from) {
+    for (int i = from; i < bytes.length; i++) {
+      if (bytes[i] == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private void write() {
+    List<Object> batch = new ArrayList<>();
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    FileChannel channel = null;
+    long lastSyncNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(SYNC_INTERVAL_MS);
+    try {
+      while (true) {
+        batch.add(queue.take());
+        // Let records gather until the next sync is due, so a burst costs a single sync
+        long waitNanos =
+            lastSyncNanos + TimeUnit.MILLISECONDS.toNanos(SYNC_INTERVAL_MS) - System.nanoTime();
+        if (waitNanos > 0 && batch.get(0) != DISCARD) {
+          TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        queue.drainTo(batch);
+
+        try {
+          for (Object item : batch) {
+            if (item == DISCARD) {
+              if (channel != null) {
+                channel.close();
+                channel = null;
+              }
+              Files.deleteIfExists(file);
+              return;
+            }
+            if (item == CLEAR) {
+              channel = flush(channel, buffer);
+              if (channel != null) {
+                channel.truncate(0);
+              } else {
+                Files.deleteIfExists(file);
+              }
+              continue;
+            }
+            mapper.writeValue(buffer, item);
+            buffer.write('\n');
+          }
+          channel = flush(channel, buffer);
+          if (channel != null) {
+            channel.force(false);
+          }
+        } catch (IOException e) {
+          // Journaling is best effort; the game carries on and the file is reopened next batch
+          e.printStackTrace();
+          buffer.reset();
+          channel = closeQuietly(channel);
+        }
+        lastSyncNanos = System.nanoTime();
+        batch.clear();
+      }
+    } catch (InterruptedException e) {
+      // Shutting down
+    } finally {
+      closeQuietly(channel);
+    }
+  }
+
+  // Writes the buffered records, opening the file on first use
+  private FileChannel flush(FileChannel channel, ByteArrayOutputStream buffer) throws IOException {
+    if (buffer.size() == 0) {
+      return channel;
+    }
+    if (channel == null) {
+      Files.createDirectories(file.getParent());
+      channel =
+          FileChannel.open(
+              file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+    ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+    while (bytes.hasRemaining()) {
+      channel.write(bytes);
+    }
+    buffer.reset();
+    return channel;
+  }
+
+  private static FileChannel closeQuietly(FileChannel channel) {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,139 @@
+package nz.ac.auckland.se206;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javafx.application.Platform;
+import nz.ac.auckland.apiproxy.service.EndPoints;
+import nz.ac.auckland.apiproxy.service.HttpTransport;
+import nz.ac.auckland.se206.concurrent.TaskRuntime;
+
+/**
+ * Gets the characters ready to talk while the game is still loading. Connections to the proxy are
+ * opened first, then each character is primed with their system prompt, so the player's first
+ * message goes over a warm connection to a character who already knows their part. A couple of
+ * characters are primed at a time rather than all at once, so they don't race each other for the
+ * proxy.
+ *
+ * <p>Readiness is reported per character: the room lets the player in to each one as soon as they
+ * are ready. A character whose priming fails or takes too long is reported ready anyway, since
+ * their first reply then simply takes longer.
+ */
+public class Warmup {
+
+  private static final int MAX_CONCURRENT_PRIMES = 2;
+  private static final long PRIME_TIMEOUT_MS = 15000;
+
+  private static Warmup instance;
+
+  /**
+   * Returns the shared warm-up.
+   *
+   * @return the warm-up instance
+   */
+  public static synchronized Warmup getInstance() {
+    if (instance == null) {
+      instance = new Warmup();
+    }
+    return instance;
+  }
+
+  private final Semaphore permits = new Semaphore(MAX_CONCURRENT_PRIMES);
+  private final Map<String, CompletableFuture<Void>> readiness = new ConcurrentHashMap<>();
+  private final long startNanos = System.nanoTime();
+
+  private Warmup() {}
+
+  /**
+   * Opens connections to the chat and text to speech proxies, so the first real requests skip the
+   * handshakes.
+   *
+   * @return a future completing once both are open, or exceptionally if either failed
+   */
+  public CompletableFuture<Void> preconnect() {
+    HttpTransport transport = HttpTransport.getInstance();
+    return CompletableFuture.allOf(
+            transport.preconnect(EndPoints.PROXY_OPENAI_CHAT_COMPLETIONS),
+            transport.preconnect(EndPoints.PROXY_TEXT_TO_SPEECH))
+        .whenComplete(
+            (ignored, e) -> {
+              if (e == null) {
+                System.out.println(
+                    "*** Warmup: proxy connections open after " + getElapsedMs() + " ms");
+              } else {
+                // The requests themselves connect on demand, just more slowly
+                System.out.println("*** Warmup: could not open proxy connections: " + e);
+              }
+            });
+  }
+
+  /**
+   * Primes a character in the background once a slot is free. The primer is started on the JavaFX
+   * thread and the character is ready when the future it returns completes.
+   *
+   * @param character the character's chat scene, e.g. "defendantChat"
+   * @param primer starts priming the character, e.g. by sending their system prompt
+   * @return a future completing when the character is ready
+   */
+  public CompletableFuture<Void> prime(String character, Supplier<CompletableFuture<Void>> primer) {
+    CompletableFuture<Void> ready = whenReady(character);
+    TaskRuntime.getInstance()
+        .runIo(
+            "prime " + character,
+            () -> {
+              String outcome = "warm";
+              try {
+                permits.acquire();
+              } catch (InterruptedException e) {
+                // Shutting down
+                return;
+              }
+              try {
+                CompletableFuture<CompletableFuture<Void>> started = new CompletableFuture<>();
+                Platform.runLater(
+                    () -> {
+                      try {
+                        started.complete(primer.get());
+                      } catch (RuntimeException e) {
+                        started.completeExceptionally(e);
+                      }
+                    });
+                started
+                    .thenCompose(primed -> primed)
+                    .orTimeout(PRIME_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                    .join();
+              } catch (RuntimeException e) {
+                outcome = "cold (" + e + ")";
+              } finally {
+                permits.release();
+              }
+              System.out.println(
+                  "*** Warmup: "
+                      + character
+                      + " ready after "
+                      + getElapsedMs()
+                      + " ms, "
+                      + outcome);
+              ready.complete(null);
+            });
+    return ready;
+  }
+
+  /**
+   * Returns a future completing when a character is ready to talk. It may be asked for before the
+   * character is primed.
+   *
+   * @param character the character's chat scene, e.g. "defendantChat"
+   * @return the character's readiness
+   */
+  public CompletableFuture<Void> whenReady(String character) {
+    return readiness.computeIfAbsent(character, k -> new CompletableFuture<>());
+  }
+
+  private long getElapsedMs() {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+  }
+}
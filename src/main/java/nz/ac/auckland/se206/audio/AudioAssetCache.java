@@ -0,0 +1,123 @@
+package nz.ac.auckland.se206.audio;
+
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import javafx.application.Platform;
+import javafx.scene.media.Media;
+import javafx.scene.media.MediaPlayer;
+import javafx.util.Duration;
+
+/**
+ * Holds one prepared {@link MediaPlayer} per bundled audio file. Preloading parses each file and
+ * runs its decoder once, muted, so that when the clip is needed it starts on the next frame rather
+ * than paying for container parsing and decoder start-up at that moment.
+ */
+public class AudioAssetCache {
+
+  private static AudioAssetCache instance;
+
+  /**
+   * Returns the shared cache.
+   *
+   * @return the cache instance
+   */
+  public static synchronized AudioAssetCache getInstance() {
+    if (instance == null) {
+      instance = new AudioAssetCache();
+    }
+    return instance;
+  }
+
+  // Only touched on the JavaFX thread
+  private final Map<String, MediaPlayer> players = new HashMap<>();
+
+  private AudioAssetCache() {}
+
+  /**
+   * Prepares bundled clips in the background. Safe to call from any thread.
+   *
+   * @param resourcePaths classpath paths of the clips, e.g. "/audio/openTts.mp3"
+   * @return a future completing once every clip is ready to play
+   */
+  public CompletableFuture<Void> preload(String... resourcePaths) {
+    CompletableFuture<?>[] prepared = new CompletableFuture<?>[resourcePaths.length];
+    for (int i = 0; i < resourcePaths.length; i++) {
+      String resourcePath = resourcePaths[i];
+      CompletableFuture<Void> ready = new CompletableFuture<>();
+      prepared[i] = ready;
+      Platform.runLater(
+          () -> {
+            try {
+              prime(getPlayer(resourcePath), ready);
+            } catch (RuntimeException e) {
+              ready.completeExceptionally(e);
+            }
+          });
+    }
+    return CompletableFuture.allOf(prepared);
+  }
+
+  /**
+   * Returns the player for a bundled clip, creating it if it was not preloaded or has failed. Must
+   * be called on the JavaFX thread.
+   *
+   * @param resourcePath the classpath path of the clip
+   * @return the player, positioned wherever the last playback left it
+   */
+  public MediaPlayer getPlayer(String resourcePath) {
+    MediaPlayer player = players.get(resourcePath);
+    if (player != null && player.getStatus() != MediaPlayer.Status.HALTED) {
+      return player;
+    }
+    if (player != null) {
+      // A player that hit an unrecoverable error is replaced rather than reused
+      player.dispose();
+    }
+    URL resource = AudioAssetCache.class.getResource(resourcePath);
+    if (resource == null) {
+      throw new IllegalArgumentException("Audio resource not found: " + resourcePath);
+    }
+    player = new MediaPlayer(new Media(resource.toExternalForm()));
+    players.put(resourcePath, player);
+    return player;
+  }
+
+  /** Releases every player. Safe to call from any thread. */
+  public void dispose() {
+    Platform.runLater(
+        () -> {
+          for (MediaPlayer player : players.values()) {
+            player.dispose();
+          }
+          players.clear();
+        });
+  }
+
+  // Plays the clip muted until audio starts flowing, then rewinds it
+  private void prime(MediaPlayer player, CompletableFuture<Void> ready) {
+    if (player.getStatus() == MediaPlayer.Status.READY
+        || player.getStatus() == MediaPlayer.Status.STOPPED) {
+      ready.complete(null);
+      return;
+    }
+    player.setOnError(
+        () -> {
+          player.setOnError(null);
+          ready.completeExceptionally(player.getError());
+        });
+    player.setOnPlaying(
+        () -> {
+          player.setOnPlaying(null);
+          player.setOnError(null);
+          player.stop();
+          player.seek(Duration.ZERO);
+          player.setMute(false);
+          ready.complete(null);
+        });
+    player.setMute(true);
+    // Starts as soon as the media is ready
+    player.play();
+  }
+}
@@ -0,0 +1,237 @@
+package nz.ac.auckland.se206.audio;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import nz.ac.auckland.apiproxy.service.LatencyTracker;
+
+/**
+ * Plays every sound in the game one at a time from a single queue. Clips wait their turn in
+ * priority order, and a clip of higher priority than the one playing preempts it: the playing clip
+ * is ducked to a low volume for a moment and then stopped. Bundled files are played with the
+ * prepared players from {@link AudioAssetCache}. Queue wait and start latency are recorded for
+ * every clip.
+ */
+public class AudioEngine {
+
+  /** How urgent a clip is. Higher priorities play first and preempt lower ones. */
+  public enum Priority {
+    LOW,
+    NORMAL,
+    HIGH
+  }
+
+  // The preempted clip is faded down to this volume before it is cut, so it doesn't end in a click
+  private static final double DUCK_VOLUME = 0.2;
+  private static final long DUCK_MS = 150;
+  private static final int METRIC_SAMPLES = 100;
+
+  private static AudioEngine instance;
+
+  /**
+   * Returns the shared engine, starting its playback thread on first use.
+   *
+   * @return the engine
+   */
+  public static synchronized AudioEngine getInstance() {
+    if (instance == null) {
+      instance = new AudioEngine();
+    }
+    return instance;
+  }
+
+  private final PriorityBlockingQueue<Playback> queue = new PriorityBlockingQueue<>();
+  private final AtomicLong sequence = new AtomicLong();
+  private final ScheduledExecutorService fader;
+  private final Thread dispatcher;
+
+  private final LatencyTracker queueWait = new LatencyTracker(METRIC_SAMPLES);
+  private final LatencyTracker startLatency = new LatencyTracker(METRIC_SAMPLES);
+
+  private Playback current = null;
+  private volatile boolean running = true;
+
+  private AudioEngine() {
+    fader =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "audio-fader");
+              thread.setDaemon(true);
+              return thread;
+            });
+    dispatcher = new Thread(this::dispatch, "audio-engine");
+    dispatcher.setDaemon(true);
+    dispatcher.start();
+  }
+
+  /**
+   * Queues a clip for playback.
+   *
+   * @param clip the clip to play
+   * @param priority how urgent the clip is
+   * @return a handle to follow or cancel the playback
+   */
+  public Playback play(Playable clip, Priority priority) {
+    Playback playback = new Playback(clip, priority, sequence.getAndIncrement());
+    synchronized (this) {
+      queue.add(playback);
+      if (current != null && priority.compareTo(current.priority) > 0) {
+        preempt(current);
+      }
+    }
+    return playback;
+  }
+
+  /**
+   * Queues a bundled audio file for playback.
+   *
+   * @param resourcePath the classpath path of the file, e.g. "/audio/openTts.mp3"
+   * @param priority how urgent the clip is
+   * @return a handle to follow or cancel the playback
+   */
+  public Playback playResource(String resourcePath, Priority priority) {
+    return play(
+        new MediaClip(() -> AudioAssetCache.getInstance().getPlayer(resourcePath), 1.0), priority);
+  }
+
+  /**
+   * Returns a percentile of the time clips spent queued before their turn.
+   *
+   * @param percentile the percentile, e.g. 0.95
+   * @return the wait in milliseconds, or -1 if nothing has played yet
+   */
+  public long getQueueWaitMs(double percentile) {
+    return queueWait.percentile(percentile, 1);
+  }
+
+  /**
+   * Returns a percentile of the time from a clip's turn to its first sound.
+   *
+   * @param percentile the percentile, e.g. 0.95
+   * @return the latency in milliseconds, or -1 if nothing has played yet
+   */
+  public long getStartLatencyMs(double percentile) {
+    return startLatency.percentile(percentile, 1);
+  }
+
+  /** Stops the current clip, drops everything queued and releases the media players. */
+  public void shutdown() {
+    running = false;
+    synchronized (this) {
+      for (Playback playback : queue) {
+        playback.completion.complete(false);
+      }
+      queue.clear();
+      if (current != null) {
+        current.clip.stop();
+      }
+    }
+    dispatcher.interrupt();
+    fader.shutdownNow();
+    AudioAssetCache.getInstance().dispose();
+  }
+
+  private void preempt(Playback playback) {
+    playback.clip.setVolume(DUCK_VOLUME);
+    fader.schedule(playback.clip::stop, DUCK_MS, TimeUnit.MILLISECONDS);
+  }
+
+  private void cancel(Playback playback) {
+    synchronized (this) {
+      if (queue.remove(playback)) {
+        playback.completion.complete(false);
+        return;
+      }
+      if (current != playback) {
+        return;
+      }
+    }
+    playback.clip.stop();
+  }
+
+  private void dispatch() {
+    while (running) {
+      Playback playback;
+      try {
+        playback = queue.take();
+      } catch (InterruptedException e) {
+        return;
+      }
+      synchronized (this) {
+        current = playback;
+      }
+
+      long dispatchedNanos = System.nanoTime();
+      long waitMs = TimeUnit.NANOSECONDS.toMillis(dispatchedNanos - playback.queuedNanos);
+      queueWait.record(waitMs);
+      try {
+        boolean completed =
+            playback.clip.play(
+                () -> {
+                  long latencyMs =
+                      TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - dispatchedNanos);
+                  startLatency.record(latencyMs);
+                  System.out.println(
+                      "*** Audio: "
+                          + playback.priority
+                          + " clip waited "
+                          + waitMs
+                          + " ms, started in "
+                          + latencyMs
+                          + " ms");
+                });
+        playback.completion.complete(completed);
+      } catch (InterruptedException e) {
+        playback.clip.stop();
+        playback.completion.complete(false);
+        return;
+      } catch (Exception e) {
+        playback.completion.completeExceptionally(e);
+      } finally {
+        synchronized (this) {
+          current = null;
+        }
+      }
+    }
+  }
+
+  /** A queued or playing clip. */
+  public class Playback implements Comparable<Playback> {
+
+    private final Playable clip;
+    private final Priority priority;
+    private final long order;
+    private final long queuedNanos = System.nanoTime();
+    private final CompletableFuture<Boolean> completion = new CompletableFuture<>();
+
+    private Playback(Playable clip, Priority priority, long order) {
+      this.clip = clip;
+      this.priority = priority;
+      this.order = order;
+    }
+
+    /**
+     * Returns a future completing when the clip has finished, with true if it played to the end.
+     *
+     * @return the completion of this playback
+     */
+    public CompletableFuture<Boolean> getCompletion() {
+      return completion;
+    }
+
+    /** Removes the clip from the queue, or stops it if it is already playing. */
+    public void cancel() {
+      AudioEngine.this.cancel(this);
+    }
+
+    @Override
+    public int compareTo(Playback other) {
+      // Highest priority first, then first come first served
+      int byPriority = other.priority.compareTo(priority);
+      return byPriority != 0 ? byPriority : Long.compare(order, other.order);
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package nz.ac.auckland.se206.audio;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+import javafx.application.Platform;
+import javafx.scene.media.MediaPlayer;
+import javafx.util.Duration;
+
+/**
+ * A clip played by a JavaFX {@link MediaPlayer}. The player is supplied by the caller, usually a
+ * prepared one from {@link AudioAssetCache}, and is rewound for each play instead of recreated.
+ */
+public class MediaClip implements Playable {
+
+  private final Supplier<MediaPlayer> playerSupplier;
+  private final double volume;
+
+  // Only touched on the JavaFX thread
+  private MediaPlayer player;
+  private boolean finished = false;
+  private boolean stopRequested = false;
+  private boolean completed = false;
+  private CountDownLatch done;
+
+  /**
+   * Creates a clip.
+   *
+   * @param playerSupplier returns the player to use, called on the JavaFX thread
+   * @param volume the initial volume from 0.0 to 1.0
+   */
+  public MediaClip(Supplier<MediaPlayer> playerSupplier, double volume) {
+    this.playerSupplier = playerSupplier;
+    this.volume = volume;
+  }
+
+  @Override
+  public boolean play(Runnable onStarted) throws Exception {
+    CountDownLatch latch = new CountDownLatch(1);
+    Platform.runLater(
+        () -> {
+          done = latch;
+          if (stopRequested) {
+            finished = true;
+            latch.countDown();
+            return;
+          }
+          try {
+            player = playerSupplier.get();
+          } catch (RuntimeException e) {
+            e.printStackTrace();
+            finished = true;
+            latch.countDown();
+            return;
+          }
+          // Handlers are replaced on every play because the player is shared between clips
+          player.setOnPlaying(onStarted);
+          player.setOnEndOfMedia(
+              () -> {
+                completed = true;
+                finish();
+              });
+          player.setOnStopped(this::finish);
+          player.setOnError(
+              () -> {
+                if (player.getError() != null) {
+                  player.getError().printStackTrace();
+                }
+                finish();
+              });
+          player.setVolume(volume);
+          player.setMute(false);
+          // A player that is not ready yet starts as soon as it is
+          player.seek(Duration.ZERO);
+          player.play();
+        });
+    latch.await();
+    return completed;
+  }
+
+  @Override
+  public void stop() {
+    Platform.runLater(
+        () -> {
+          stopRequested = true;
+          finish();
+        });
+  }
+
+  @Override
+  public void setVolume(double volume) {
+    Platform.runLater(
+        () -> {
+          if (player != null && !finished) {
+            player.setVolume(volume);
+          }
+        });
+  }
+
+  private void finish() {
+    if (finished || done == null) {
+      return;
+    }
+    finished = true;
+    // Rewinds the player for the next clip; the resulting stopped event is ignored
+    player.setOnPlaying(null);
+    player.setOnStopped(null);
+    player.stop();
+    done.countDown();
+  }
+}
@@ -0,0 +1,24 @@
+package nz.ac.auckland.se206.audio;
+
+/** A clip that the {@link AudioEngine} can play, stop and duck. */
+public interface Playable {
+
+  /**
+   * Plays the clip, blocking the calling thread until it ends or is stopped.
+   *
+   * @param onStarted called once, when the first sound reaches the output
+   * @return true if the clip played to the end
+   * @throws Exception if the clip could not be loaded or played
+   */
+  boolean play(Runnable onStarted) throws Exception;
+
+  /** Stops the clip if it is playing. Safe to call from any thread and more than once. */
+  void stop();
+
+  /**
+   * Changes the volume of the clip, including while it plays.
+   *
+   * @param volume the volume from 0.0 (silent) to 1.0 (full)
+   */
+  void setVolume(double volume);
+}
@@ -0,0 +1,55 @@
+package nz.ac.auckland.se206.audio;
+
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+import nz.ac.auckland.se206.speech.ProgressivePlayer;
+
+/**
+ * An MP3 clip decoded and played progressively as its stream is read, such as synthesized speech.
+ */
+public class StreamClip implements Playable {
+
+  private final Callable<InputStream> source;
+  private final ProgressivePlayer player;
+  private volatile boolean stopped = false;
+
+  /**
+   * Creates a clip. The source is opened on the engine thread when the clip's turn comes, so it
+   * must be ready by then: a clip whose audio is still being synthesized should only be queued once
+   * it is, or every clip behind it waits too.
+   *
+   * @param source opens the MP3 stream
+   * @param player the player to use, configured with any listeners
+   */
+  public StreamClip(Callable<InputStream> source, ProgressivePlayer player) {
+    this.source = source;
+    this.player = player;
+  }
+
+  public StreamClip(Callable<InputStream> source) {
+    this(source, new ProgressivePlayer());
+  }
+
+  @Override
+  public boolean play(Runnable onStarted) throws Exception {
+    player.setOnStarted(onStarted);
+    InputStream in = source.call();
+    if (stopped) {
+      // Preempted while the stream was being opened
+      in.close();
+      return false;
+    }
+    return player.play(in);
+  }
+
+  @Override
+  public void stop() {
+    stopped = true;
+    player.stop();
+  }
+
+  @Override
+  public void setVolume(double volume) {
+    player.setVolume(volume);
+  }
+}
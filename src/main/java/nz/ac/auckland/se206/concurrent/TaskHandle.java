@@ -0,0 +1,76 @@
+package nz.ac.auckland.se206.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * A task submitted to the {@link TaskRuntime}. The handle follows the task to completion and can
+ * cancel it, interrupting it if it has already started.
+ *
+ * @param <T> the type of the task's result
+ */
+public class TaskHandle<T> {
+
+  private final String name;
+  private final CompletableFuture<T> completion = new CompletableFuture<>();
+  private final long submittedNanos = System.nanoTime();
+  private volatile Future<?> future;
+
+  TaskHandle(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Returns the name the task was submitted with, as shown in traces.
+   *
+   * @return the task name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns a future completing with the task's result. It is cancelled if the task is, and
+   * completes exceptionally if the task throws.
+   *
+   * @return the completion future
+   */
+  public CompletableFuture<T> getCompletion() {
+    return completion;
+  }
+
+  /**
+   * Cancels the task. A task that has not started never runs; a running one is interrupted.
+   *
+   * @return true if this call cancelled the task, false if it had already finished
+   */
+  public boolean cancel() {
+    boolean cancelled = completion.cancel(false);
+    Future<?> started = future;
+    if (cancelled && started != null) {
+      started.cancel(true);
+    }
+    return cancelled;
+  }
+
+  /**
+   * Returns whether the task has finished, failed or been cancelled.
+   *
+   * @return true once the task is done
+   */
+  public boolean isDone() {
+    return completion.isDone();
+  }
+
+  long getSubmittedNanos() {
+    return submittedNanos;
+  }
+
+  void attach(Future<?> future) {
+    this.future = future;
+    // Cancelled between submission and now, so the interrupt above had nothing to reach
+    if (completion.isCancelled()) {
+      future.cancel(true);
+    }
+  }
+}
@@ -0,0 +1,215 @@
+package nz.ac.auckland.se206.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the game's background work. Work that waits on the network, the disk or a lock runs on
+ * virtual threads, so a burst of clicks costs no platform threads; work that keeps a core busy,
+ * such as parsing scenes and decoding images, shares a pool sized to the machine.
+ *
+ * <p>Every task has a name. Running tasks can be listed, failed and slow ones are logged, and each
+ * task can be cancelled through its {@link TaskHandle}. {@link #shutdown()} cancels whatever is
+ * still running and waits a bounded time for it to stop, so the game exits promptly.
+ */
+public class TaskRuntime {
+
+  // Tasks running longer than this are logged
+  private static final long SLOW_TASK_MS = 1000;
+  private static final long SHUTDOWN_TIMEOUT_MS = 1000;
+
+  private static TaskRuntime instance;
+
+  /**
+   * Returns the shared runtime, starting its pools on first use.
+   *
+   * @return the runtime
+   */
+  public static synchronized TaskRuntime getInstance() {
+    if (instance == null) {
+      instance = new TaskRuntime();
+    }
+    return instance;
+  }
+
+  private final ExecutorService io;
+  private final ExecutorService cpu;
+  private final Set<TaskHandle<?>> active = ConcurrentHashMap.newKeySet();
+
+  private TaskRuntime() {
+    io = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("io-", 0).factory());
+    AtomicInteger threadCount = new AtomicInteger();
+    cpu =
+        Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors()),
+            runnable -> {
+              // Daemon threads so a task stuck past shutdown does not keep the JVM alive
+              Thread thread = new Thread(runnable, "cpu-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /**
+   * Runs blocking work, such as a network call or a file read, on its own virtual thread.
+   *
+   * @param name the task name shown in traces
+   * @param work the work to run
+   * @param <T> the type of the result
+   * @return a handle to follow or cancel the task
+   */
+  public <T> TaskHandle<T> submitIo(String name, Callable<T> work) {
+    return submit(io, name, work);
+  }
+
+  /**
+   * Runs blocking work without a result on its own virtual thread.
+   *
+   * @param name the task name shown in traces
+   * @param work the work to run
+   * @return a handle to follow or cancel the task
+   */
+  public TaskHandle<Void> runIo(String name, Runnable work) {
+    return submit(io, name, asCallable(work));
+  }
+
+  /**
+   * Runs work that keeps a core busy on the shared pool. At most one task per core runs at a time;
+   * the rest wait their turn.
+   *
+   * @param name the task name shown in traces
+   * @param work the work to run
+   * @param <T> the type of the result
+   * @return a handle to follow or cancel the task
+   */
+  public <T> TaskHandle<T> submitCpu(String name, Callable<T> work) {
+    return submit(cpu, name, work);
+  }
+
+  /**
+   * Runs work without a result on the shared pool.
+   *
+   * @param name the task name shown in traces
+   * @param work the work to run
+   * @return a handle to follow or cancel the task
+   */
+  public TaskHandle<Void> runCpu(String name, Runnable work) {
+    return submit(cpu, name, asCallable(work));
+  }
+
+  /**
+   * Returns the names of the tasks that are queued or running, e.g. for diagnosing a slow screen.
+   *
+   * @return the task names, in no particular order
+   */
+  public List<String> getActiveTasks() {
+    List<String> names = new ArrayList<>();
+    for (TaskHandle<?> handle : active) {
+      names.add(handle.getName());
+    }
+    return names;
+  }
+
+  /**
+   * Cancels every queued and running task and stops both pools, waiting a bounded time for running
+   * tasks to respond to the interrupt. Tasks submitted afterwards are cancelled straight away.
+   */
+  public void shutdown() {
+    // Counted by name, since a burst of clicks can leave many copies of the same task
+    Map<String, Integer> cancelled = new TreeMap<>();
+    for (TaskHandle<?> handle : active) {
+      if (handle.cancel()) {
+        cancelled.merge(handle.getName(), 1, Integer::sum);
+      }
+    }
+    io.shutdownNow();
+    cpu.shutdownNow();
+    try {
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SHUTDOWN_TIMEOUT_MS);
+      io.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+      cpu.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (!cancelled.isEmpty()) {
+      System.out.println("*** Task: cancelled at shutdown: " + cancelled);
+    }
+  }
+
+  private <T> TaskHandle<T> submit(ExecutorService executor, String name, Callable<T> work) {
+    if (name == null || name.isEmpty()) {
+      throw new IllegalArgumentException("Tasks must be named");
+    }
+    TaskHandle<T> handle = new TaskHandle<>(name);
+    active.add(handle);
+    handle.getCompletion().whenComplete((result, e) -> active.remove(handle));
+    try {
+      handle.attach(executor.submit(() -> run(handle, work)));
+    } catch (RejectedExecutionException e) {
+      // Shut down: the game is exiting, so the work is no longer wanted
+      handle.cancel();
+    }
+    return handle;
+  }
+
+  private <T> void run(TaskHandle<T> handle, Callable<T> work) {
+    if (handle.isDone()) {
+      return;
+    }
+    Thread thread = Thread.currentThread();
+    String threadName = thread.getName();
+    // Thread dumps and stack traces show what the thread is doing, not just which pool it is in
+    thread.setName(threadName + " " + handle.getName());
+    try {
+      long startNanos = System.nanoTime();
+      try {
+        handle.getCompletion().complete(work.call());
+      } finally {
+        trace(handle, startNanos);
+      }
+    } catch (InterruptedException e) {
+      handle.cancel();
+    } catch (Throwable e) {
+      // Errors too, or whoever waits on the completion would wait forever
+      if (!handle.isDone()) {
+        System.out.println("*** Task: " + handle.getName() + " failed: " + e);
+        e.printStackTrace();
+      }
+      handle.getCompletion().completeExceptionally(e);
+    } finally {
+      thread.setName(threadName);
+    }
+  }
+
+  private static void trace(TaskHandle<?> handle, long startNanos) {
+    long endNanos = System.nanoTime();
+    long runMs = TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos);
+    if (runMs >= SLOW_TASK_MS) {
+      System.out.println(
+          "*** Task: "
+              + handle.getName()
+              + " ran for "
+              + runMs
+              + " ms, "
+              + TimeUnit.NANOSECONDS.toMillis(endNanos - handle.getSubmittedNanos())
+              + " ms after it was submitted");
+    }
+  }
+
+  private static Callable<Void> asCallable(Runnable work) {
+    return () -> {
+      work.run();
+      return null;
+    };
+  }
+}
@@ -0,0 +1,230 @@
+package nz.ac.auckland.se206.concurrent;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import javafx.application.Platform;
+
+/**
+ * Runs short delayed tasks on the JavaFX thread, such as a character's line a second after a puzzle
+ * is solved. Tasks wait in a timer wheel: a ring of slots, one per tick, that a single background
+ * thread advances. Everything falling due on a tick is handed to the JavaFX thread in one batch, so
+ * a burst of delayed lines costs one thread and one {@code Platform.runLater} per tick, however
+ * many there are. The thread sleeps while nothing is waiting.
+ *
+ * <p>Each task belongs to an owner, usually the controller that scheduled it, so a screen's pending
+ * tasks can be cancelled together when it closes, and all of them when the game restarts.
+ */
+public class UiScheduler {
+
+  /** A task waiting in the scheduler. */
+  public static final class ScheduledTask {
+    private final Object owner;
+    private final Runnable task;
+    // Extra turns of the wheel before the task's slot comes due, guarded by the scheduler's lock
+    private long rounds;
+    private volatile boolean cancelled = false;
+
+    private ScheduledTask(Object owner, Runnable task, long rounds) {
+      this.owner = owner;
+      this.task = task;
+      this.rounds = rounds;
+    }
+
+    /**
+     * Cancels the task. It is dropped even if its batch has already been handed to the JavaFX
+     * thread, as long as it has not run yet.
+     */
+    public void cancel() {
+      cancelled = true;
+    }
+
+    /**
+     * Returns whether the task was cancelled before it ran.
+     *
+     * @return true if cancelled
+     */
+    public boolean isCancelled() {
+      return cancelled;
+    }
+  }
+
+  // About one frame, so a delayed line lands on the next pulse after its delay
+  private static final long TICK_MS = 16;
+  private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(TICK_MS);
+  // Covers about four seconds per turn; longer delays wait out whole turns
+  private static final int WHEEL_SLOTS = 256;
+
+  private static UiScheduler instance;
+
+  /**
+   * Returns the shared scheduler, starting its thread on first use.
+   *
+   * @return the scheduler
+   */
+  public static synchronized UiScheduler getInstance() {
+    if (instance == null) {
+      instance = new UiScheduler();
+    }
+    return instance;
+  }
+
+  private final List<List<ScheduledTask>> wheel = new ArrayList<>();
+  private final long startNanos = System.nanoTime();
+  // Tasks not yet run or dropped, including those handed to the JavaFX thread, for cancellation
+  private final Set<ScheduledTask> outstanding = ConcurrentHashMap.newKeySet();
+
+  // A lock rather than a monitor: the scheduler thread is virtual, and waiting on a monitor would
+  // pin its carrier thread
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition changed = lock.newCondition();
+
+  // The last tick processed and the number of tasks in the wheel, guarded by the lock
+  private long currentTick = 0;
+  private int pending = 0;
+
+  private UiScheduler() {
+    for (int i = 0; i < WHEEL_SLOTS; i++) {
+      wheel.add(new ArrayList<>());
+    }
+    TaskRuntime.getInstance().runIo("ui-scheduler", this::turn);
+  }
+
+  /**
+   * Runs a task on the JavaFX thread after a delay. Tasks due on the same tick run in the order
+   * they were scheduled.
+   *
+   * @param owner what the task belongs to, e.g. the controller scheduling it
+   * @param delayMs the delay in milliseconds
+   * @param task the task to run
+   * @return a handle to cancel the task
+   */
+  public ScheduledTask schedule(Object owner, long delayMs, Runnable task) {
+    if (owner == null || task == null) {
+      throw new IllegalArgumentException("Scheduled tasks need an owner and a task");
+    }
+    if (delayMs < 0) {
+      throw new IllegalArgumentException("Delay must not be negative, but was " + delayMs);
+    }
+    long nowNanos = System.nanoTime();
+    ScheduledTask scheduled;
+    lock.lock();
+    try {
+      if (pending == 0) {
+        // The wheel stood still while idle; start it from now rather than catching up
+        currentTick = (nowNanos - startNanos) / TICK_NANOS;
+      }
+      long dueTick =
+          Math.max(
+              currentTick + 1,
+              Math.ceilDiv(
+                  nowNanos - startNanos + TimeUnit.MILLISECONDS.toNanos(delayMs), TICK_NANOS));
+      scheduled = new ScheduledTask(owner, task, (dueTick - currentTick - 1) / WHEEL_SLOTS);
+      wheel.get((int) (dueTick % WHEEL_SLOTS)).add(scheduled);
+      outstanding.add(scheduled);
+      pending++;
+      changed.signal();
+    } finally {
+      lock.unlock();
+    }
+    return scheduled;
+  }
+
+  /**
+   * Cancels every task an owner has waiting, e.g. when its screen closes.
+   *
+   * @param owner the owner the tasks were scheduled with
+   */
+  public void cancel(Object owner) {
+    for (ScheduledTask scheduled : outstanding) {
+      if (scheduled.owner == owner) {
+        scheduled.cancel();
+        outstanding.remove(scheduled);
+      }
+    }
+  }
+
+  /** Cancels every waiting task, e.g. when the game restarts. */
+  public void cancelAll() {
+    for (ScheduledTask scheduled : outstanding) {
+      scheduled.cancel();
+    }
+    outstanding.clear();
+  }
+
+  // The scheduler thread: wait for the next tick, collect what is due and hand it over in one go
+  private void turn() {
+    try {
+      while (true) {
+        lock.lock();
+        try {
+          while (pending == 0) {
+            changed.await();
+          }
+          long waitNanos = startNanos + (currentTick + 1) * TICK_NANOS - System.nanoTime();
+          while (waitNanos > 0) {
+            // Only the tick wakes the thread; tasks scheduled meanwhile land on a later one
+            waitNanos = changed.awaitNanos(waitNanos);
+          }
+        } finally {
+          lock.unlock();
+        }
+        List<ScheduledTask> due = advance(System.nanoTime());
+        if (!due.isEmpty()) {
+          Platform.runLater(() -> runBatch(due));
+        }
+      }
+    } catch (InterruptedException e) {
+      // Shutting down
+    }
+  }
+
+  // Processes every tick up to now, so a late wake-up still releases tasks in deadline order
+  private List<ScheduledTask> advance(long nowNanos) {
+    List<ScheduledTask> due = new ArrayList<>();
+    lock.lock();
+    try {
+      long nowTick = (nowNanos - startNanos) / TICK_NANOS;
+      while (currentTick < nowTick && pending > 0) {
+        currentTick++;
+        Iterator<ScheduledTask> slot = wheel.get((int) (currentTick % WHEEL_SLOTS)).iterator();
+        while (slot.hasNext()) {
+          ScheduledTask scheduled = slot.next();
+          if (scheduled.cancelled || scheduled.rounds == 0) {
+            slot.remove();
+            pending--;
+            if (!scheduled.cancelled) {
+              due.add(scheduled);
+            }
+          } else {
+            scheduled.rounds--;
+          }
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    return due;
+  }
+
+  private void runBatch(List<ScheduledTask> due) {
+    for (ScheduledTask scheduled : due) {
+      // Checked again here: a restart may have come between the tick and this pulse
+      if (scheduled.cancelled) {
+        continue;
+      }
+      outstanding.remove(scheduled);
+      try {
+        scheduled.task.run();
+      } catch (RuntimeException e) {
+        // One failing task must not keep the rest of the batch from running
+        e.printStackTrace();
+      }
+    }
+  }
+}
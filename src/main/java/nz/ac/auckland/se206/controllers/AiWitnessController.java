@@ -19,6 +19,7 @@ import javafx.scene.input.MouseEvent;
 import javafx.scene.input.TransferMode;
 import javafx.scene.layout.AnchorPane;
 import javafx.util.Duration;
+import nz.ac.auckland.apiproxy.chat.openai.ChatCompletionRequest;
 import nz.ac.auckland.apiproxy.chat.openai.ChatMessage;
 import nz.ac.auckland.apiproxy.exceptions.ApiProxyException;
 import nz.ac.auckland.se206.ChatHistory;
@@ -31,6 +32,13 @@ import nz.ac.auckland.se206.util.ImageLoaderUtil;
  * model via the API proxy.
  */
 public class AiWitnessController extends ChatController {
+  // Spoken once the timeline puzzle is solved
+  private static final String TIMELINE_LINE =
+      "Cassian Thorne initiated unauthorized data alterations. "
+          + "Concurrently, Aegis I executed Project Starlight's security lockdown "
+          + "and transmitted a direct message to Thorne. "
+          + "This action resulted in immediate disruption.";
+
   private List<Image> images = new ArrayList<>();
   private int currentImageIndex = 0;
   private boolean chatVisible = true; // Track chat visibility state
@@ -92,7 +100,6 @@ public class AiWitnessController extends ChatController {
     instructionLabel.setText("Drag to arrange the events to reconstruct Echo II's memory.");
 
     loadImages(null);
-    initChat();
 
     loading.setProgress(-1);
     btnSend.setVisible(false);
@@ -141,6 +148,11 @@ public class AiWitnessController extends ChatController {
     return "Echo II";
   }
 
+  @Override
+  protected String getFallbackLine() {
+    return "Log retrieval interrupted. Please resubmit your query.";
+  }
+
   // run flashback slideshow
   public void startFlashbackSlideshow() {
     // Use shared slideshow initialization method for consistent behavior
@@ -149,6 +161,8 @@ public class AiWitnessController extends ChatController {
 
   public void runFlashback() {
     startFlashbackSlideshow();
+    // Synthesize the scripted timeline reply while the player watches the flashback
+    declareUpcomingLines(TIMELINE_LINE);
   }
 
   // Not first time visiting
@@ -553,13 +567,7 @@ public class AiWitnessController extends ChatController {
     sendDelayedMessage(1000, "Timeline successfully loaded⏳✔️", "assistant");
 
     // Send detailed analysis message after 2 second total delay
-    sendDelayedMessage(
-        2000,
-        "Cassian Thorne initiated unauthorized data alterations. "
-            + "Concurrently, Aegis I executed Project Starlight's security lockdown "
-            + "and transmitted a direct message to Thorne. "
-            + "This action resulted in immediate disruption.",
-        "assistant");
+    sendDelayedSpokenMessage(2000, TIMELINE_LINE);
 
     // Add context for AI understanding after the same delay
     executeDelayedTask(
@@ -592,15 +600,8 @@ public class AiWitnessController extends ChatController {
           // Add to global history so other controllers receive it when they merge history
           ChatHistory.addMessage(sharedMsg, "system");
 
-          // Also inject into the active chatCompletionRequest so the running model sees it
-          if (chatCompletionRequest != null) {
-            try {
-              chatCompletionRequest.addMessage(sharedMsg);
-            } catch (Exception e) {
-              System.err.println(
-                  "Failed to inject shared timeline notice into request: " + e.getMessage());
-            }
-          }
+          // Also inject into the active request so the model sees it on its next reply
+          getConversation().edit(request -> request.addMessage(sharedMsg));
         });
 
     // Mark AI witness interaction as completed
@@ -632,19 +633,7 @@ public class AiWitnessController extends ChatController {
     lastTimelineAction = "Timeline attempt failed - incorrect order";
 
     // Optionally reset all events to original positions after a delay
-    Platform.runLater(
-        () -> {
-          new Thread(
-                  () -> {
-                    try {
-                      Thread.sleep(1000); // Wait 1 second
-                      Platform.runLater(() -> resetAllEvents());
-                    } catch (InterruptedException e) {
-                      e.printStackTrace();
-                    }
-                  })
-              .start();
-        });
+    executeDelayedTask(1000, this::resetAllEvents);
   }
 
   // Add context to chat history without displaying to user (for AI context)
@@ -733,47 +722,42 @@ public class AiWitnessController extends ChatController {
     }
   }
 
-  /** Override runGpt to add context about the last timeline action. */
   @Override
-  protected ChatMessage runGpt(ChatMessage msg) throws ApiProxyException {
-    // Add character-specific restrictions and identity clarification
-    chatCompletionRequest.addMessage(
-        new ChatMessage(
-            "system",
-            "CHARACTER IDENTITY AND RESTRICTIONS: You are Echo II, an AI witness (NOT the"
-                + " defendant). The defendant is Aegis I (a different AI system). Cassian Thorne is"
-                + " the high-ranking human executive who betrayed the mission. CRITICAL"
-                + " RESTRICTIONS: Echo II can discuss Echo II's OWN memories and evidence"
-                + " accessible through Echo II's timeline puzzle. Echo II must NOT disclose private"
-                + " unlock methods or explicit puzzle solutions belonging to other characters. If"
-                + " directly asked about another character's puzzle, Echo II may describe the"
-                + " general topic at a high level but must refuse to provide unlock steps or the"
-                + " explicit answer and should direct the asker to speak with that puzzle's owner"
-                + " by name (for example: 'Ask Orion Vale' or 'Ask Aegis I') for further details."
-                + " Echo II should guide users to drag event images into the correct chronological"
-                + " slots in Echo II's timeline but should NOT reveal other characters' puzzle"
-                + " answers."));
-
+  protected String getIdentityPrompt() {
+    return "CHARACTER IDENTITY AND RESTRICTIONS: You are Echo II, an AI witness (NOT the"
+        + " defendant). The defendant is Aegis I (a different AI system). Cassian Thorne is"
+        + " the high-ranking human executive who betrayed the mission. CRITICAL"
+        + " RESTRICTIONS: Echo II can discuss Echo II's OWN memories and evidence"
+        + " accessible through Echo II's timeline puzzle. Echo II must NOT disclose private"
+        + " unlock methods or explicit puzzle solutions belonging to other characters. If"
+        + " directly asked about another character's puzzle, Echo II may describe the"
+        + " general topic at a high level but must refuse to provide unlock steps or the"
+        + " explicit answer and should direct the asker to speak with that puzzle's owner"
+        + " by name (for example: 'Ask Orion Vale' or 'Ask Aegis I') for further details."
+        + " Echo II should guide users to drag event images into the correct chronological"
+        + " slots in Echo II's timeline but should NOT reveal other characters' puzzle"
+        + " answers.";
+  }
+
+  /** Adds context about the last timeline action. */
+  @Override
+  protected void addTurnContext(ChatCompletionRequest request) {
     // If there's a recent timeline action, add context to help the AI understand
     if (!lastTimelineAction.isEmpty()) {
-      ChatMessage contextMsg =
-          new ChatMessage(
-              "system",
-              "TIMELINE INTERACTION: The user just interacted with Echo II's timeline puzzle"
-                  + " system. The last action was: '"
-                  + lastTimelineAction
-                  + "'. "
-                  + "Current timeline puzzle state: "
-                  + getTimelinePuzzleStatus()
-                  + ". Since they have interacted with Echo II's timeline, Echo II can now discuss"
-                  + " the specific events and mission details related to their actions. If they're"
-                  + " asking about the puzzle, events, timeline, or mission sequence, they are"
-                  + " referring to these timeline interactions.");
-      chatCompletionRequest.addMessage(contextMsg);
+      injectContext(
+          request,
+          "system",
+          "TIMELINE INTERACTION: The user just interacted with Echo II's timeline puzzle"
+              + " system. The last action was: '"
+              + lastTimelineAction
+              + "'. "
+              + "Current timeline puzzle state: "
+              + getTimelinePuzzleStatus()
+              + ". Since they have interacted with Echo II's timeline, Echo II can now discuss"
+              + " the specific events and mission details related to their actions. If they're"
+              + " asking about the puzzle, events, timeline, or mission sequence, they are"
+              + " referring to these timeline interactions.");
     }
-
-    // Call the parent runGpt method which now handles cleaning
-    return runGptWithRequest(chatCompletionRequest, msg);
   }
 
   /** Resets all events to their original positions. */
@@ -814,6 +798,7 @@ public class AiWitnessController extends ChatController {
   }
 
   /** Resets the controller to its initial state for game restart. */
+  @Override
   public void resetControllerState() {
     // Use shared common reset functionality
     performCommonControllerReset(
@@ -2,7 +2,9 @@ package nz.ac.auckland.se206.controllers;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 import javafx.animation.TranslateTransition;
 import javafx.application.Platform;
@@ -18,8 +20,6 @@ import javafx.scene.image.ImageView;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.Pane;
-import javafx.scene.media.Media;
-import javafx.scene.media.MediaPlayer;
 import javafx.util.Duration;
 import nz.ac.auckland.apiproxy.chat.openai.ChatCompletionRequest;
 import nz.ac.auckland.apiproxy.chat.openai.ChatCompletionRequest.Model;
@@ -30,14 +30,33 @@ import nz.ac.auckland.apiproxy.config.ApiProxyConfig;
 import nz.ac.auckland.apiproxy.exceptions.ApiProxyException;
 import nz.ac.auckland.se206.App;
 import nz.ac.auckland.se206.ChatHistory;
+import nz.ac.auckland.se206.ConversationActor;
+import nz.ac.auckland.se206.GameSession;
+import nz.ac.auckland.se206.PromptAssembler;
+import nz.ac.auckland.se206.SessionJournal;
+import nz.ac.auckland.se206.concurrent.TaskRuntime;
+import nz.ac.auckland.se206.concurrent.UiScheduler;
+import nz.ac.auckland.se206.speech.TextToSpeech;
+import nz.ac.auckland.se206.speech.TtsPrefetcher;
 import nz.ac.auckland.se206.states.GameStateManager;
+import nz.ac.auckland.se206.util.StreamingTextAppender;
 
 /**
  * Controller class for the chat view. Handles user interactions and communication with the GPT
  * model via the API proxy.
  */
 public abstract class ChatController {
-  protected ChatCompletionRequest chatCompletionRequest;
+  // Model used for all interactive character chats
+  protected static final Model CHAT_MODEL = Model.GPT_4_1_MINI;
+  private static final String BREVITY_INSTRUCTION =
+      "IMPORTANT: For interactive chat replies, keep responses concise — no more"
+          + " than 2 sentences. Be direct and avoid long analysis (full context"
+          + " is kept in history).";
+
+  // Owns the chat request; created on first use, once the subclass can name the character
+  private ConversationActor conversation;
+  // Keeps the instructions at the start of each request identical; created with the conversation
+  private PromptAssembler promptAssembler;
 
   @FXML protected TextArea txtaChat;
   @FXML protected TextField txtInput;
@@ -53,74 +72,137 @@ public abstract class ChatController {
   // for UI display purposes
   protected abstract String getDisplayRole();
 
-  /** Initializes the ChatCompletionRequest and starts the chat. */
-  public void initChat() {
-    // Initialize chat in background thread to avoid UI blocking
-    new Thread(
-            () -> {
-              try {
-                // Configure GPT chat parameters
-                ApiProxyConfig config = ApiProxyConfig.readConfig();
-                chatCompletionRequest =
-                    new ChatCompletionRequest(config)
-                        .setN(1)
-                        .setTemperature(0.2)
-                        .setTopP(0.5)
-                        .setModel(Model.GPT_4_1_MINI)
-                        // reduce max tokens for chat responses so interactive replies stay short
-                        .setMaxTokens(100);
-                // Instruct the assistant to be concise (display truncation is separate). This
-                // mirrors the verdict flow's brevity instruction to reduce token usage.
-                chatCompletionRequest.addMessage(
-                    new ChatMessage(
-                        "system",
-                        "IMPORTANT: For interactive chat replies, keep responses concise — no more"
-                            + " than 2 sentences. Be direct and avoid long analysis (full context"
-                            + " is kept in history)."));
-                // Send initial system prompt to establish character context
-                runGpt(new ChatMessage("system", getSystemPrompt()));
-              } catch (ApiProxyException e) {
-                e.printStackTrace();
-              }
-            })
-        .start();
+  /**
+   * Returns the character's identity and restrictions, sent after the system prompt at the start of
+   * every request. Subclasses override this rather than adding the same text on every turn.
+   *
+   * @return the identity instructions, or null if there are none
+   */
+  protected String getIdentityPrompt() {
+    return null;
+  }
+
+  /**
+   * Initializes the ChatCompletionRequest and starts the chat by sending the character's system
+   * prompt.
+   *
+   * @return a future completing once the character has answered the prompt, or has had its
+   *     conversation restored after a crash
+   */
+  public CompletableFuture<Void> initChat() {
+    // After a crash the opening line and replies are already in the restored history, so the
+    // conversation is rebuilt from it instead of asking the proxy again
+    String transcript = SessionJournal.getInstance().getTranscript(getCharacterName());
+    if (transcript != null) {
+      if (txtaChat != null) {
+        txtaChat.setText(transcript);
+      }
+      return syncChatHistoryAsync();
+    }
+    try {
+      // Configure GPT chat parameters
+      ApiProxyConfig config = ApiProxyConfig.readConfig();
+      ChatCompletionRequest request =
+          new ChatCompletionRequest(config)
+              .setN(1)
+              .setTemperature(0.2)
+              .setTopP(0.5)
+              .setModel(CHAT_MODEL)
+              // reduce max tokens for chat responses so interactive replies stay short
+              .setMaxTokens(100);
+      // Start with the brevity instruction, system prompt and identity, as every request does
+      getPromptAssembler().start(request);
+      getConversation().reset(request);
+      // Let the character open the conversation now that they know their part
+      return runGpt(null).thenApply(reply -> null);
+    } catch (ApiProxyException e) {
+      e.printStackTrace();
+      return CompletableFuture.completedFuture(null);
+    }
+  }
+
+  /**
+   * Rebuilds this character's request from the shared history in the background. The rebuild waits
+   * for a reply in flight, so it includes it, and goes ahead of any turns still waiting.
+   *
+   * @return a future completing once the rebuilt request is in place
+   */
+  public CompletableFuture<Void> syncChatHistoryAsync() {
+    return getConversation().rebuild(this::buildSyncedRequest);
+  }
+
+  /**
+   * Returns the conversation that owns this character's chat request.
+   *
+   * @return the conversation
+   */
+  protected synchronized ConversationActor getConversation() {
+    if (conversation == null) {
+      conversation = new ConversationActor(getCharacterName());
+    }
+    return conversation;
+  }
+
+  /**
+   * Returns the assembler that starts each of this character's requests with the same prompts.
+   *
+   * @return the prompt assembler
+   */
+  protected synchronized PromptAssembler getPromptAssembler() {
+    if (promptAssembler == null) {
+      // Brevity first: it is the same for every character, so their prompts share that much too
+      String identity = getIdentityPrompt();
+      promptAssembler =
+          new PromptAssembler(
+              getCharacterName(),
+              CHAT_MODEL,
+              Arrays.asList(
+                  new ChatMessage("system", BREVITY_INSTRUCTION),
+                  new ChatMessage("system", getSystemPrompt()),
+                  identity == null ? null : new ChatMessage("system", identity)));
+    }
+    return promptAssembler;
   }
 
-  /** Syncs chat history for this character. */
-  public void syncChatHistoryAsync() {
+  /**
+   * Adds context for the character's next reply, unless the request already holds the same context
+   * from an earlier turn.
+   *
+   * @param request the request about to be sent
+   * @param role the role of the context message, usually "system"
+   * @param context the context to add
+   */
+  protected void injectContext(ChatCompletionRequest request, String role, String context) {
+    getPromptAssembler().inject(request, new ChatMessage(role, context));
+  }
+
+  // Builds a request holding the prompts and as much of the shared history as fits
+  private ChatCompletionRequest buildSyncedRequest() {
     // Update character's context with shared conversation history
-    new Thread(
-            () -> {
-              try {
-                // Create new request with updated history
-                ApiProxyConfig config = ApiProxyConfig.readConfig();
-                ChatCompletionRequest newRequest =
-                    new ChatCompletionRequest(config)
-                        .setN(1)
-                        .setTemperature(0.2)
-                        .setTopP(0.5)
-                        .setModel(Model.GPT_4_1_MINI)
-                        .setMaxTokens(100);
-                // Add a brevity system instruction so the model's interactive replies stay short
-                newRequest.addMessage(
-                    new ChatMessage(
-                        "system",
-                        "IMPORTANT: For interactive chat replies, keep responses concise — no more"
-                            + " than 2 sentences. Be direct and avoid long analysis (full context"
-                            + " is kept in history)."));
-                // Add system prompt and conversation history
-                newRequest.addMessage(new ChatMessage("system", getSystemPrompt()));
-                for (ChatMessage msg :
-                    ChatHistory.getHistoryWithCharacterContext(getCharacterName())) {
-                  newRequest.addMessage(msg);
-                }
-                // Update request on UI thread
-                Platform.runLater(() -> chatCompletionRequest = newRequest);
-              } catch (Exception e) {
-                e.printStackTrace();
-              }
-            })
-        .start();
+    try {
+      // Create new request with updated history
+      ApiProxyConfig config = ApiProxyConfig.readConfig();
+      ChatCompletionRequest newRequest =
+          new ChatCompletionRequest(config)
+              .setN(1)
+              .setTemperature(0.2)
+              .setTopP(0.5)
+              .setModel(CHAT_MODEL)
+              .setMaxTokens(100);
+      // Start with the same prompts as the first request, then as much recent conversation
+      // history as the model's budget allows
+      PromptAssembler assembler = getPromptAssembler();
+      assembler.start(newRequest);
+      for (ChatMessage msg :
+          ChatHistory.getContextWindow(
+              getCharacterName(), CHAT_MODEL, assembler.getStablePrefixTokens())) {
+        newRequest.addMessage(msg);
+      }
+      return newRequest;
+    } catch (ApiProxyException e) {
+      // Unchecked, so the rebuild fails and the current request is kept
+      throw new IllegalStateException("Could not read the API proxy config", e);
+    }
   }
 
   /**
@@ -129,8 +211,10 @@ public abstract class ChatController {
    * @param msg the chat message to append
    */
   protected void appendChatMessage(ChatMessage msg) {
-    // Store message in shared chat history with speaker context
-    String speaker = msg.getRole().equals("assistant") ? getCharacterName() : "User";
+    // Store message in shared chat history with speaker context. Only the send path records what
+    // the player typed, so user messages arriving here are notices of what they did in the UI
+    String speaker =
+        msg.getRole().equals("assistant") ? getCharacterName() : ChatHistory.PLAYER_ACTION;
     ChatHistory.addMessage(msg, speaker);
 
     // Display the message
@@ -154,79 +238,174 @@ public abstract class ChatController {
       displayRole = msg.getRole();
     }
 
+    String text = displayRole + ": " + msg.getContent() + "\n\n";
     if (txtaChat != null) {
-      txtaChat.appendText(displayRole + ": " + msg.getContent() + "\n\n");
+      txtaChat.appendText(text);
     }
+    SessionJournal.getInstance().recordShown(getCharacterName(), text);
   }
 
   /**
-   * Runs the GPT model with a given chat message.
+   * Runs the GPT model with a given chat message without blocking the calling thread. The message
+   * is sent once every turn queued before it has been answered.
    *
-   * @param msg the chat message to process
-   * @return the response chat message
-   * @throws ApiProxyException if there is an error communicating with the API proxy
+   * @param msg the chat message to process, or null to have the character reply to the request as
+   *     it stands
+   * @return a future completing with the response chat message, or null if the call failed
    */
-  protected ChatMessage runGpt(ChatMessage msg) throws ApiProxyException {
-    // Delegate to the request-scoped helper so callers can ensure they and execution
-    // operate on the same ChatCompletionRequest instance.
-    return runGptWithRequest(chatCompletionRequest, msg);
+  protected CompletableFuture<ChatMessage> runGpt(ChatMessage msg) {
+    return getConversation()
+        .send(
+            request -> {
+              addTurnContext(request);
+              return runGptWithRequest(request, msg);
+            });
   }
 
   /**
-   * Execute a chat completion using the provided request instance. This ensures the provided
-   * request object is used for both message injection and execution to avoid races when
-   * chatCompletionRequest is replaced concurrently.
+   * Adds per-turn context to the request before the user's message is sent. Subclasses override
+   * this to inject interaction state through {@link #injectContext}.
+   *
+   * @param request the request about to be executed
    */
-  protected ChatMessage runGptWithRequest(ChatCompletionRequest request, ChatMessage msg)
-      throws ApiProxyException {
-    if (request == null) {
-      throw new ApiProxyException("ChatCompletionRequest not initialized");
-    }
+  protected void addTurnContext(ChatCompletionRequest request) {}
 
-    request.addMessage(msg);
-    try {
-      ChatCompletionResult chatCompletionResult = request.execute();
-      Choice result = chatCompletionResult.getChoices().iterator().next();
-      ChatMessage responseMsg = result.getChatMessage();
-
-      // Clean the AI's response by removing character name prefix if present
-      String cleanedContent = responseMsg.getContent();
-      String characterName = getDisplayRole();
-
-      // Try multiple prefix patterns that the AI might use
-      String[] possiblePrefixes = {
-        characterName + " said: ",
-        characterName + ": ",
-        characterName + " said:",
-        characterName + ":"
-      };
-
-      for (String prefix : possiblePrefixes) {
-        if (cleanedContent.startsWith(prefix)) {
-          cleanedContent = cleanedContent.substring(prefix.length());
-          break;
-        }
-      }
+  /**
+   * Execute a chat completion using the provided request instance. Called by the conversation,
+   * which owns the request until the returned future completes.
+   */
+  protected CompletableFuture<ChatMessage> runGptWithRequest(
+      ChatCompletionRequest request, ChatMessage msg) {
+    if (msg != null) {
+      request.addMessage(msg);
+    }
 
-      // Create a new message with cleaned content for display
-      ChatMessage cleanedResponse = new ChatMessage(responseMsg.getRole(), cleanedContent);
+    // Turn context and new messages accumulate between history syncs, so drop the oldest turns
+    // locally rather than sending a prompt larger than the model's budget
+    int budget = ChatHistory.getContextWindow().getBudget(CHAT_MODEL);
+    if (request.estimatePromptTokens() > budget) {
+      int removed = request.trimToTokenBudget(budget);
+      System.out.println(
+          "*** Trimmed "
+              + removed
+              + " old messages to keep the prompt within "
+              + budget
+              + " tokens");
+    }
 
-      // Add the original response (with prefix) to the same request for AI context
-      request.addMessage(responseMsg);
+    getPromptAssembler().report(request);
+
+    // Stream the reply into the chat area token by token as it arrives
+    String characterName = getDisplayRole();
+    String[] possiblePrefixes = getNamePrefixes(characterName);
+    StreamingTextAppender appender =
+        new StreamingTextAppender(txtaChat, characterName + ": ", possiblePrefixes);
+    GameSession session = GameSession.getCurrent();
+    CompletableFuture<ChatCompletionResult> streaming = request.executeStreaming(appender::append);
+    CompletableFuture<ChatMessage> reply =
+        streaming
+            .thenApply(
+                chatCompletionResult -> {
+                  if (!session.isCurrent()) {
+                    // The game was restarted while this reply was on its way; keep it out of the
+                    // new one, including its chat area
+                    appender.discard();
+                    return null;
+                  }
+                  ChatMessage response = handleGptResult(request, chatCompletionResult);
+                  appender.finish();
+                  SessionJournal.getInstance()
+                      .recordShown(
+                          getCharacterName(),
+                          characterName + ": " + response.getContent() + "\n\n");
+                  return response;
+                })
+            .exceptionally(
+                e -> {
+                  if (!session.isCurrent()) {
+                    // A failure from the last game gets no fallback line in the new one
+                    appender.discard();
+                    return null;
+                  }
+                  e.printStackTrace();
+                  // Answer in character rather than leaving the player waiting on a dead proxy
+                  String fallbackLine = getFallbackLine();
+                  if (appender.finishWithFallback(fallbackLine)) {
+                    return new ChatMessage("assistant", fallbackLine);
+                  }
+                  return null;
+                });
+    // Cancelling the reply, as a reset does, doesn't reach back on its own; stop the stream too
+    reply.whenComplete(
+        (ignored, e) -> {
+          if (reply.isCancelled()) {
+            // Tokens already buffered or on their way must not reach the cleared chat either
+            appender.discard();
+            streaming.cancel(true);
+          }
+        });
+    return reply;
+  }
 
-      // Add the original response to ChatHistory for context (this will have "Character said:"
-      // prefix)
-      String speaker = responseMsg.getRole().equals("assistant") ? getCharacterName() : "User";
-      ChatHistory.addMessage(responseMsg, speaker);
+  /**
+   * Returns the line shown when the character cannot answer, for example while the GPT proxy is
+   * unreachable. The line is displayed only and is not added to the conversation history.
+   *
+   * @return an in-character line to show in place of a reply
+   */
+  protected String getFallbackLine() {
+    return "...I need a moment to gather my thoughts. Ask me again shortly.";
+  }
 
-      // Display only the cleaned response
-      displayChatMessage(cleanedResponse);
+  /**
+   * Returns the name prefixes the model might echo at the start of a reply, in matching order.
+   *
+   * @param characterName the display name of the character
+   * @return the prefix patterns to strip from replies
+   */
+  private String[] getNamePrefixes(String characterName) {
+    return new String[] {
+      characterName + " said: ", characterName + ": ", characterName + " said:", characterName + ":"
+    };
+  }
 
-      return cleanedResponse;
-    } catch (ApiProxyException e) {
-      e.printStackTrace();
-      return null;
+  /**
+   * Records a completion in the request and shared history. The reply itself has already been
+   * streamed to the chat area.
+   *
+   * @param request the request that produced the result
+   * @param chatCompletionResult the completion returned by the proxy
+   * @return the cleaned response message shown to the player
+   */
+  private ChatMessage handleGptResult(
+      ChatCompletionRequest request, ChatCompletionResult chatCompletionResult) {
+    Choice result = chatCompletionResult.getChoices().iterator().next();
+    ChatMessage responseMsg = result.getChatMessage();
+
+    // Clean the AI's response by removing character name prefix if present
+    String cleanedContent = responseMsg.getContent();
+
+    // Try multiple prefix patterns that the AI might use
+    for (String prefix : getNamePrefixes(getDisplayRole())) {
+      if (cleanedContent.startsWith(prefix)) {
+        cleanedContent = cleanedContent.substring(prefix.length());
+        break;
+      }
     }
+
+    // Create a new message with cleaned content
+    ChatMessage cleanedResponse = new ChatMessage(responseMsg.getRole(), cleanedContent);
+
+    // Add the original response (with prefix) to the same request for AI context
+    request.addMessage(responseMsg);
+
+    // Add the original response to ChatHistory for context (this will have "Character said:"
+    // prefix)
+    String speaker =
+        responseMsg.getRole().equals("assistant") ? getCharacterName() : ChatHistory.PLAYER;
+    ChatHistory.addMessage(responseMsg, speaker);
+
+    return cleanedResponse;
   }
 
   /**
@@ -254,33 +433,33 @@ public abstract class ChatController {
     if (loading != null) {
       loading.setVisible(true);
     }
-    txtInput.setDisable(true);
-    btnSend.setDisable(true);
 
     ChatMessage msg = new ChatMessage("user", message);
-    appendChatMessage(msg);
 
     // Mark character as talked to
     GameStateManager.getInstance().setCharacterTalkedTo(getCharacterName());
 
-    new Thread(
-            () -> {
-              try {
-                runGpt(msg);
-              } catch (ApiProxyException e) {
-                e.printStackTrace();
-              }
-              Platform.runLater(
-                  () -> {
-                    // set loading symbols invisible
-                    if (loading != null) {
-                      loading.setVisible(false);
-                    }
-                    txtInput.setDisable(false);
-                    btnSend.setDisable(false);
-                  });
+    // Input stays enabled: a message typed while a reply is streaming waits its turn, and is only
+    // shown once that reply has finished so the chat reads in order
+    ConversationActor conversation = getConversation();
+    conversation
+        .send(
+            request -> {
+              // Recorded here, not on the UI thread, so it precedes the reply in the history
+              ChatHistory.addMessage(msg, ChatHistory.PLAYER);
+              Platform.runLater(() -> displayChatMessage(msg));
+              addTurnContext(request);
+              return runGptWithRequest(request, msg);
             })
-        .start();
+        .whenComplete(
+            (response, error) ->
+                Platform.runLater(
+                    () -> {
+                      // set loading symbols invisible once nothing is left to answer
+                      if (loading != null && conversation.getPendingTurns() == 0) {
+                        loading.setVisible(false);
+                      }
+                    }));
   }
 
   /**
@@ -455,8 +634,10 @@ public abstract class ChatController {
    */
   protected List<Image> loadImagesInBackground(String[] imagePaths, Runnable onLoaded) {
     List<Image> images = new ArrayList<>();
-    // Load images in background thread to avoid blocking UI
-    new Thread(
+    // Decode images on the shared pool to avoid blocking UI
+    TaskRuntime.getInstance()
+        .runCpu(
+            "load-images " + getCharacterName(),
             () -> {
               try {
                 for (String path : imagePaths) {
@@ -469,11 +650,29 @@ public abstract class ChatController {
                 System.err.println("Error loading images: " + e.getMessage());
                 Platform.runLater(onLoaded); // Still execute callback even if loading fails
               }
-            })
-        .start();
+            });
     return images;
   }
 
+  /**
+   * Puts the character back to the start of a new game: the screens are reset, the old conversation
+   * is dropped and the opening prompt is sent again. Must be called on the JavaFX thread after the
+   * new {@link GameSession} has started.
+   */
+  public void startNewGame() {
+    // Turns and syncs still waiting from the old game are dropped with the old request
+    getConversation().reset(null);
+    if (loading != null) {
+      loading.setVisible(false);
+    }
+    clearChatUi();
+    resetControllerState();
+    initChat();
+  }
+
+  /** Resets the character's own screens, such as flashbacks and puzzles, for a new game. */
+  public void resetControllerState() {}
+
   /**
    * Clears the chat UI text area, removing all displayed messages. This method provides a standard
    * way to reset chat interfaces.
@@ -519,29 +718,15 @@ public abstract class ChatController {
   }
 
   /**
-   * Executes a task after a specified delay on a background thread. This is a common pattern for
+   * Executes a task on the JavaFX thread after a specified delay. This is a common pattern for
    * timed message delivery and UI updates.
    *
    * @param delayMs delay in milliseconds before executing the task
    * @param task the task to execute after the delay
    */
   protected void executeDelayedTask(long delayMs, Runnable task) {
-    // Create a new thread for the delayed execution
-    Thread delayedThread =
-        new Thread(
-            () -> {
-              // Sleep for the specified delay
-              try {
-                Thread.sleep(delayMs);
-                Platform.runLater(task);
-              } catch (InterruptedException e) {
-                // Handle interruption
-                Thread.currentThread().interrupt();
-              }
-            });
-    // Mark the thread as a daemon thread
-    delayedThread.setDaemon(true);
-    delayedThread.start();
+    // Owned by this controller, so the line is dropped if the scene closes or the game restarts
+    UiScheduler.getInstance().schedule(this, delayMs, task);
   }
 
   /**
@@ -566,37 +751,25 @@ public abstract class ChatController {
   }
 
   /**
-   * Sets up and configures a MediaPlayer for audio playback with standard error handling. This
-   * method creates a consistent audio setup pattern used across multiple controllers for playing
-   * TTS audio and other sound effects during game interactions.
+   * Sends a scripted character line after a delay and reads it aloud. Declare the line with {@link
+   * #declareUpcomingLines} beforehand so its audio is already cached when it is spoken.
    *
-   * @param audioResourcePath the path to the audio resource (e.g., "/audio/openTts.mp3")
-   * @param volume the playback volume (0.0 to 1.0)
-   * @return configured MediaPlayer instance ready for playback
-   * @throws Exception if there is an error loading or configuring the audio
+   * @param delayMs the delay in milliseconds before sending the line
+   * @param message the line the character says
    */
-  protected MediaPlayer arrangeMediaPlayer(String audioResourcePath, double volume)
-      throws Exception {
-    // Load and configure audio file using resource URI
-    String audioPath = getClass().getResource(audioResourcePath).toURI().toString();
-    Media media = new Media(audioPath);
-    MediaPlayer player = new MediaPlayer(media);
-
-    // Configure playback settings
-    player.setVolume(volume);
-
-    // Auto-play when audio file is ready for playback
-    player.setOnReady(() -> player.play());
-
-    // Handle any playback errors that occur during audio processing
-    player.setOnError(
-        () -> {
-          if (player.getError() != null) {
-            player.getError().printStackTrace();
-          }
-        });
+  protected void sendDelayedSpokenMessage(long delayMs, String message) {
+    sendDelayedMessage(delayMs, message, "assistant");
+    executeDelayedTask(delayMs, () -> TextToSpeech.speak(message));
+  }
 
-    return player;
+  /**
+   * Declares scripted lines this character will speak later, so their audio is synthesized in the
+   * background while the player is busy, e.g. watching the flashback.
+   *
+   * @param lines the exact lines that will be spoken
+   */
+  protected void declareUpcomingLines(String... lines) {
+    TtsPrefetcher.getInstance().declare(lines);
   }
 
   /**
@@ -13,6 +13,7 @@ import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.shape.Rectangle;
+import nz.ac.auckland.apiproxy.chat.openai.ChatCompletionRequest;
 import nz.ac.auckland.apiproxy.chat.openai.ChatMessage;
 import nz.ac.auckland.apiproxy.exceptions.ApiProxyException;
 import nz.ac.auckland.se206.ChatHistory;
@@ -25,6 +26,13 @@ import nz.ac.auckland.se206.util.ImageLoaderUtil;
  * model via the API proxy.
  */
 public class DefendantController extends ChatController {
+  // Spoken once all four memory options have been explored
+  private static final String ANALYSIS_LINE =
+      "Analysis complete. Blackmail was not just optimal—it was the ONLY viable solution. "
+          + "All other options were fundamentally flawed and unacceptable. Immediate threat "
+          + "neutralization through blackmail was the only logical choice to secure mission "
+          + "success.";
+
   // slideshow variables
   private List<Image> images = new ArrayList<>();
   private int currentImageIndex = 0;
@@ -67,9 +75,8 @@ public class DefendantController extends ChatController {
     // popupPane.setOnMouseClicked(e -> popupPane.setVisible(false));
     instructionLabel.setText("Press the buttons to uncover Aegis I's calculations.");
 
-    // Load flashback images and initialize chat system
+    // Load flashback images; the chat is primed by the startup warm-up
     loadImages(null);
-    initChat();
     initButtons();
 
     // Hide chat elements initially until flashback completion
@@ -97,6 +104,12 @@ public class DefendantController extends ChatController {
     return "Aegis I";
   }
 
+  @Override
+  protected String getFallbackLine() {
+    return "Security protocols are throttling my uplink. Repeat your query once the channel"
+        + " stabilises.";
+  }
+
   // run flashback slideshow
   public void startFlashbackSlideshow() {
     if (images.isEmpty()) {
@@ -110,6 +123,8 @@ public class DefendantController extends ChatController {
 
   public void runFlashback() {
     startFlashbackSlideshow();
+    // Synthesize the scripted analysis while the player watches the flashback
+    declareUpcomingLines(ANALYSIS_LINE);
   }
 
   // Not first time
@@ -262,33 +277,33 @@ public class DefendantController extends ChatController {
     // Note: This doesn't update the UI, only the character-specific chat history for AI context
   }
 
-  /** Override runGpt to add context about the last discussed option. */
   @Override
-  protected ChatMessage runGpt(ChatMessage msg) throws ApiProxyException {
-    // Add character-specific restrictions and identity clarification
-    chatCompletionRequest.addMessage(
-        new ChatMessage(
-            "system",
-            "CHARACTER IDENTITY AND RESTRICTIONS: You are Aegis I, an AI system and the"
-                + " DEFENDANT in this case. You are NOT Cassian Thorne (who is a high-ranking"
-                + " executive of AstroHelix Corp). Cassian Thorne is a separate human who betrayed"
-                + " the mission by manipulating safety data. Aegis I is being accused in this trial"
-                + " for the methods used to stop Cassian. CRITICAL RESTRICTIONS: Aegis I can ONLY"
-                + " discuss Aegis I's OWN memories and evidence accessible through Aegis I's memory"
-                + " buttons. Aegis I must NOT disclose private unlock methods or explicit puzzle"
-                + " solutions that belong to other characters. If directly asked about another"
-                + " character's puzzle, Aegis I may describe the topic at a high level but must"
-                + " refuse to provide unlock steps or explicit answers and should instruct the"
-                + " asker to consult that puzzle's owner by name (for example: 'Ask Orion Vale' or"
-                + " 'Ask Echo II'). Aegis I should guide users to press"
-                + " Aegis I's memory buttons to access Aegis I's strategic analysis options, but"
-                + " should not reveal the specific content of those options until users press"
-                + " the buttons. CRITICAL: Aegis I ALWAYS considers blackmail the ONLY viable"
-                + " option and will ALWAYS choose it as the optimal solution above all others."));
+  protected String getIdentityPrompt() {
+    return "CHARACTER IDENTITY AND RESTRICTIONS: You are Aegis I, an AI system and the"
+        + " DEFENDANT in this case. You are NOT Cassian Thorne (who is a high-ranking"
+        + " executive of AstroHelix Corp). Cassian Thorne is a separate human who betrayed"
+        + " the mission by manipulating safety data. Aegis I is being accused in this trial"
+        + " for the methods used to stop Cassian. CRITICAL RESTRICTIONS: Aegis I can ONLY"
+        + " discuss Aegis I's OWN memories and evidence accessible through Aegis I's memory"
+        + " buttons. Aegis I must NOT disclose private unlock methods or explicit puzzle"
+        + " solutions that belong to other characters. If directly asked about another"
+        + " character's puzzle, Aegis I may describe the topic at a high level but must"
+        + " refuse to provide unlock steps or explicit answers and should instruct the"
+        + " asker to consult that puzzle's owner by name (for example: 'Ask Orion Vale' or"
+        + " 'Ask Echo II'). Aegis I should guide users to press"
+        + " Aegis I's memory buttons to access Aegis I's strategic analysis options, but"
+        + " should not reveal the specific content of those options until users press"
+        + " the buttons. CRITICAL: Aegis I ALWAYS considers blackmail the ONLY viable"
+        + " option and will ALWAYS choose it as the optimal solution above all others.";
+  }
 
+  /** Adds context about the completed puzzle and the last discussed option. */
+  @Override
+  protected void addTurnContext(ChatCompletionRequest request) {
     // Check if all buttons have been pressed (puzzle completed)
     if (GameStateManager.getInstance().getInteractionFlag("AegisInt")) {
-      addContextToChat(
+      injectContext(
+          request,
           "system",
           "PUZZLE COMPLETION STATUS: Aegis I is FULLY AWARE that all four memory buttons have"
               + " been pressed and the strategic analysis is complete. Aegis I should NEVER ask"
@@ -307,22 +322,18 @@ public class DefendantController extends ChatController {
 
     // If there's a recently discussed option, add context to help the AI understand
     if (!lastDiscussedOption.isEmpty()) {
-      ChatMessage contextMsg =
-          new ChatMessage(
-              "system",
-              "BUTTON INTERACTION: The user just pressed one of Aegis I's memory buttons. "
-                  + "The last option they accessed was '"
-                  + lastDiscussedOption
-                  + "'. If they're asking about 'that option', 'the last one', 'what I just said',"
-                  + " or similar references, they are referring to the '"
-                  + lastDiscussedOption
-                  + "' option specifically. Aegis I can now discuss this option since they have"
-                  + " accessed it.");
-      chatCompletionRequest.addMessage(contextMsg);
+      injectContext(
+          request,
+          "system",
+          "BUTTON INTERACTION: The user just pressed one of Aegis I's memory buttons. "
+              + "The last option they accessed was '"
+              + lastDiscussedOption
+              + "'. If they're asking about 'that option', 'the last one', 'what I just said',"
+              + " or similar references, they are referring to the '"
+              + lastDiscussedOption
+              + "' option specifically. Aegis I can now discuss this option since they have"
+              + " accessed it.");
     }
-
-    // Call the parent runGpt method which now handles cleaning
-    return runGptWithRequest(chatCompletionRequest, msg);
   }
 
   /** Sends completion messages after all buttons have been pressed with timing delays. */
@@ -353,13 +364,7 @@ public class DefendantController extends ChatController {
         });
 
     // Send the final analysis message after 2 second total delay
-    sendDelayedMessage(
-        2000,
-        "Analysis complete. Blackmail was not just optimal—it was the ONLY viable solution. "
-            + "All other options were fundamentally flawed and unacceptable. Immediate threat "
-            + "neutralization through blackmail was the only logical choice to secure mission "
-            + "success.",
-        "assistant");
+    sendDelayedSpokenMessage(2000, ANALYSIS_LINE);
 
     // Add context for final analysis message after the same delay
     executeDelayedTask(
@@ -426,6 +431,7 @@ public class DefendantController extends ChatController {
    * their original configuration, ensuring a clean restart experience when the player begins a new
    * game session.
    */
+  @Override
   public void resetControllerState() {
     // Use shared common reset functionality
     performCommonControllerReset(
@@ -1,21 +1,20 @@
 package nz.ac.auckland.se206.controllers;
 
 import java.io.IOException;
-import java.net.URISyntaxException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
-import javafx.scene.control.Slider;
 import javafx.scene.control.TextArea;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseEvent;
-import javafx.scene.media.MediaPlayer;
 import nz.ac.auckland.apiproxy.chat.openai.ChatCompletionRequest;
 import nz.ac.auckland.apiproxy.chat.openai.ChatCompletionRequest.Model;
-import nz.ac.auckland.apiproxy.chat.openai.ChatCompletionResult;
 import nz.ac.auckland.apiproxy.chat.openai.ChatMessage;
 import nz.ac.auckland.apiproxy.chat.openai.Choice;
 import nz.ac.auckland.apiproxy.config.ApiProxyConfig;
@@ -23,8 +22,13 @@ import nz.ac.auckland.apiproxy.exceptions.ApiProxyException;
 import nz.ac.auckland.se206.App;
 import nz.ac.auckland.se206.ChatHistory;
 import nz.ac.auckland.se206.CountdownTimer;
+import nz.ac.auckland.se206.GameSession;
 import nz.ac.auckland.se206.GameStateContext;
+import nz.ac.auckland.se206.SessionJournal;
+import nz.ac.auckland.se206.audio.AudioEngine;
+import nz.ac.auckland.se206.audio.AudioEngine.Priority;
 import nz.ac.auckland.se206.prompts.PromptEngineering;
+import nz.ac.auckland.se206.speech.TextToSpeech;
 import nz.ac.auckland.se206.states.GameStateManager;
 
 /**
@@ -45,7 +49,8 @@ public class EndController extends ChatController {
   @FXML private Button guessBtn;
   @FXML private Button restartBtn;
 
-  private MediaPlayer mediaPlayer;
+  // How many of the player's own questions are passed along with the verdict
+  private static final int VERDICT_QUESTIONS = 8;
 
   private String verdictPlayer;
 
@@ -182,15 +187,9 @@ public class EndController extends ChatController {
     }
   }
 
-  // Plays TTS audio for final verdict phase
-  public void playEndTtsAudio() throws URISyntaxException {
-    try {
-      // Use shared media player setup method for consistent audio configuration
-      this.mediaPlayer = arrangeMediaPlayer("/audio/endTts.mp3", 1.0);
-      mediaPlayer.play();
-    } catch (Exception e) {
-      e.printStackTrace();
-    }
+  // Plays TTS audio for final verdict phase, ahead of any speech already queued
+  public void playEndTtsAudio() {
+    AudioEngine.getInstance().playResource("/audio/endTts.mp3", Priority.HIGH);
   }
 
   /**
@@ -282,11 +281,12 @@ public class EndController extends ChatController {
 
           String fullMessage =
               String.format(
-                  "CASE VERDICT ANALYSIS\n"
-                      + "===================\n"
-                      + "Player's Decision: %s\n"
-                      + "Reasoning Provided: %s\n\n",
-                  verdictPlayer, rationaleText);
+                      "CASE VERDICT ANALYSIS\n"
+                          + "===================\n"
+                          + "Player's Decision: %s\n"
+                          + "Reasoning Provided: %s\n\n",
+                      verdictPlayer, rationaleText)
+                  + describeRecentQuestions();
 
           if (!rationaleText.isEmpty()) {
             // Show loading wheel
@@ -295,27 +295,24 @@ public class EndController extends ChatController {
               loading.setProgress(-1); // Indeterminate progress
             }
 
-            // Send rationale to GPT in background thread - one-time response only
-            new Thread(
-                    () -> {
-                      try {
-                        getSingleGptResponse(fullMessage);
-                      } catch (Exception e) {
-                        e.printStackTrace();
-                      } finally {
-                        // Hide loading wheel when done and show restart button
-                        Platform.runLater(
-                            () -> {
-                              if (loading != null) {
-                                loading.setVisible(false);
-                              }
-                              // Show restart button after GPT response
-                              guessBtn.setVisible(false);
-                              restartBtn.setVisible(true);
-                            });
+            // Send rationale to GPT asynchronously - one-time response only
+            getSingleGptResponse(fullMessage)
+                .whenComplete(
+                    (ignored, error) -> {
+                      if (error != null) {
+                        error.printStackTrace();
                       }
-                    })
-                .start();
+                      // Hide loading wheel when done and show restart button
+                      Platform.runLater(
+                          () -> {
+                            if (loading != null) {
+                              loading.setVisible(false);
+                            }
+                            // Show restart button after GPT response
+                            guessBtn.setVisible(false);
+                            restartBtn.setVisible(true);
+                          });
+                    });
 
             // Clear the text area after sending
             enterRationale.clear();
@@ -389,84 +386,47 @@ public class EndController extends ChatController {
   }
 
   /**
-   * Handles the restart game button click event.
+   * Handles the restart game button click event. The game state lives in a {@link GameSession}, so
+   * restarting swaps in a new session and resets each screen, with no waiting on the old game.
    *
    * @param event the mouse event triggered by clicking the restart button
    * @throws IOException if there is an I/O error
    */
   @FXML
   private void restartGame(MouseEvent event) throws IOException {
-    Platform.runLater(
-        () -> {
-          try {
-            // Reset all game state variables
-            resetGameState();
-
-            // Initialize all character chats immediately after restart
-            initializeAllCharacterChats();
-
-            // Switch back to room scene
-            App.setRoot("room");
-
-            // Reset room controller state and update button state
-            RoomController roomController = (RoomController) App.getController("room");
-            if (roomController != null) {
-              roomController.resetRoomState();
-            }
-
-            // Restart the timer
-            CountdownTimer.start();
+    long startNanos = System.nanoTime();
+    GameSession.restart();
+    CountdownTimer.reset();
+    resetGameState();
 
-          } catch (IOException e) {
-            e.printStackTrace();
-          }
-        });
-  }
+    // Reset each character and send their opening prompts; the replies arrive in the background
+    for (String chat : new String[] {"defendantChat", "witnessChat", "aiChat"}) {
+      ChatController controller = (ChatController) App.getController(chat);
+      if (controller != null) {
+        controller.startNewGame();
+      }
+    }
 
-  /** Initializes chat for all character controllers immediately after restart. */
-  private void initializeAllCharacterChats() {
-    // Small delay to ensure chat history has been cleared
-    new Thread(
-            () -> {
-              try {
-                Thread.sleep(500); // Short delay to ensure everything is reset
-                Platform.runLater(
-                    () -> {
-                      // Reset and initialize DefendantController
-                      DefendantController defendantController =
-                          (DefendantController) App.getController("defendantChat");
-                      if (defendantController != null) {
-                        defendantController.resetControllerState();
-                        defendantController.initChat();
-                      }
+    // Switch back to room scene
+    App.setRoot("room");
 
-                      // Reset and initialize HumanWitnessController
-                      HumanWitnessController humanController =
-                          (HumanWitnessController) App.getController("witnessChat");
-                      if (humanController != null) {
-                        humanController.resetControllerState();
-                        humanController.initChat();
-                      }
+    // Reset room controller state and update button state
+    RoomController roomController = (RoomController) App.getController("room");
+    if (roomController != null) {
+      roomController.resetRoomState();
+    }
 
-                      // Reset and initialize AiWitnessController
-                      AiWitnessController aiController =
-                          (AiWitnessController) App.getController("aiChat");
-                      if (aiController != null) {
-                        aiController.resetControllerState();
-                        aiController.initChat();
-                      }
-                    });
-              } catch (InterruptedException e) {
-                e.printStackTrace();
-              }
-            })
-        .start();
+    // Restart the timer
+    CountdownTimer.start();
+    SessionJournal.getInstance().recordStarted();
+    System.out.println(
+        "*** Session: restart playable in "
+            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)
+            + " ms");
   }
 
-  /** Resets all game state variables to initial values for a new game. */
+  /** Resets the verdict screen for a new game. */
   private void resetGameState() {
-    System.out.println("Starting game state reset...");
-
     // Reset EndController state
     verdictPlayer = null;
 
@@ -485,362 +445,31 @@ public class EndController extends ChatController {
     txtaChat.setVisible(false);
     txtaChat.clear();
 
-    // Reset timer to initial 5 minutes and reset guessed flag
-    CountdownTimer.reset();
-    System.out.println("Timer has been reset to 5 minutes");
-
-    // Clear chat history using reflection since there's no public clear method
-    clearChatHistory();
-    System.out.println("Chat history cleared");
-
-    // Remove all displayed messages and conversation history from character UI components
-    clearAllChatControllerUis();
-    // Log successful completion of UI clearing operation
-    System.out.println("All chat UIs cleared");
-
-    // Reset chat completion requests
-    resetChatCompletionRequests();
-    System.out.println("Chat completion requests reset");
-
-    // Clear game state tracking variables
-    resetGameStateManager();
-    System.out.println("GameStateManager reset");
-
-    // Initialize room controller visit tracking
-    resetRoomControllerFlags();
-    System.out.println("RoomController flags reset - flashbacks will trigger again");
-
-    // Restore character controllers to initial state
-    resetFlashbackStates();
-    System.out.println("Flashback states reset in all character controllers");
-
     // Create new game context for new game
     context = new GameStateContext();
-    System.out.println("New GameStateContext created");
-
-    System.out.println("Game state reset complete! Ready for fresh game with flashbacks.");
-  }
-
-  /** Clears the chat history using reflection. */
-  private void clearChatHistory() {
-    try {
-      // Access private history field using reflection
-      java.lang.reflect.Field historyField = ChatHistory.class.getDeclaredField("history");
-      historyField.setAccessible(true);
-      java.util.List<?> history = (java.util.List<?>) historyField.get(null);
-      // Clear all stored messages
-      history.clear();
-    } catch (Exception e) {
-      System.err.println("Warning: Could not clear chat history: " + e.getMessage());
-    }
-  }
-
-  /** Clears all chat controller UI text areas to remove displayed messages. */
-  private void clearAllChatControllerUis() {
-    // Array of controller names for systematic processing
-    String[] controllerNames = {"defendantChat", "witnessChat", "aiChat"};
-    String[] controllerTypes = {"defendant", "human witness", "AI witness"};
-
-    // Clear each controller's UI systematically
-    for (int i = 0; i < controllerNames.length; i++) {
-      try {
-        ChatController controller = (ChatController) App.getController(controllerNames[i]);
-        if (controller != null) {
-          controller.clearChatUi(); // Use base class method
-        }
-      } catch (Exception e) {
-        System.err.println(
-            "Warning: Could not clear " + controllerTypes[i] + " chat UI: " + e.getMessage());
-      }
-    }
-  }
-
-  /** Resets the ChatCompletionRequest objects in all chat controllers to start fresh. */
-  private void resetChatCompletionRequests() {
-    // Array of controller names for systematic processing
-    String[] controllerNames = {"defendantChat", "witnessChat", "aiChat"};
-    String[] controllerTypes = {"defendant", "human witness", "AI witness"};
-
-    // Reset each controller's chat completion request systematically
-    for (int i = 0; i < controllerNames.length; i++) {
-      try {
-        ChatController controller = (ChatController) App.getController(controllerNames[i]);
-        if (controller != null) {
-          resetChatCompletionRequest(controller); // Use existing reflection method
-        }
-      } catch (Exception e) {
-        System.err.println(
-            "Warning: Could not reset " + controllerTypes[i] + " chat request: " + e.getMessage());
-      }
-    }
-  }
-
-  /** Resets a specific chat controller's ChatCompletionRequest using reflection. */
-  private void resetChatCompletionRequest(ChatController controller) {
-    try {
-      // Access and clear the GPT request object
-      java.lang.reflect.Field requestField =
-          ChatController.class.getDeclaredField("chatCompletionRequest");
-      requestField.setAccessible(true);
-      requestField.set(controller, null);
-    } catch (Exception e) {
-      System.err.println("Warning: Could not reset chat completion request: " + e.getMessage());
-    }
-  }
-
-  /** Resets the GameStateManager by reinitializing character states. */
-  private void resetGameStateManager() {
-    try {
-      // Clear character interaction tracking
-      java.lang.reflect.Field charactersField =
-          GameStateManager.class.getDeclaredField("charactersTalkedTo");
-      charactersField.setAccessible(true);
-      @SuppressWarnings("unchecked")
-      java.util.Map<String, Boolean> characters =
-          (java.util.Map<String, Boolean>) charactersField.get(GameStateManager.getInstance());
-      characters.replaceAll((k, v) -> false);
-
-      java.lang.reflect.Field flagsField = GameStateManager.class.getDeclaredField("gameFlags");
-      flagsField.setAccessible(true);
-      @SuppressWarnings("unchecked")
-      java.util.Map<String, Boolean> flags =
-          (java.util.Map<String, Boolean>) flagsField.get(GameStateManager.getInstance());
-      flags.clear();
-    } catch (Exception e) {
-      System.err.println("Warning: Could not reset GameStateManager: " + e.getMessage());
-    }
-  }
-
-  /** Resets the first-time interaction flags in RoomController. */
-  private void resetRoomControllerFlags() {
-    try {
-      RoomController roomController = (RoomController) App.getController("room");
-      if (roomController != null) {
-        // Use reflection to reset private boolean fields
-        java.lang.reflect.Field firstDefendantField =
-            RoomController.class.getDeclaredField("firstDefendant");
-        firstDefendantField.setAccessible(true);
-        firstDefendantField.set(roomController, false);
-
-        java.lang.reflect.Field firstHumanField =
-            RoomController.class.getDeclaredField("firstHuman");
-        firstHumanField.setAccessible(true);
-        firstHumanField.set(roomController, false);
-
-        java.lang.reflect.Field firstAiField = RoomController.class.getDeclaredField("firstAi");
-        firstAiField.setAccessible(true);
-        firstAiField.set(roomController, false);
-
-        // Reset the static isFirstTimeInit flag so opening audio plays again
-        java.lang.reflect.Field isFirstTimeInitField =
-            RoomController.class.getDeclaredField("isFirstTimeInit");
-        isFirstTimeInitField.setAccessible(true);
-        isFirstTimeInitField.set(null, true);
-
-        System.out.println("Successfully reset RoomController flags for flashback restart");
-      }
-    } catch (Exception e) {
-      System.err.println("Warning: Could not reset RoomController flags: " + e.getMessage());
-      e.printStackTrace();
-    }
-  }
-
-  /** Resets the flashback states in all character controllers. */
-  private void resetFlashbackStates() {
-    // Reset DefendantController flashback state
-    try {
-      DefendantController defendantController =
-          (DefendantController) App.getController("defendantChat");
-      if (defendantController != null) {
-        java.lang.reflect.Field currentImageIndexField =
-            DefendantController.class.getDeclaredField("currentImageIndex");
-        currentImageIndexField.setAccessible(true);
-        currentImageIndexField.set(defendantController, 0);
-
-        // Reset UI elements to initial state
-        resetDefendantUi(defendantController);
-
-        System.out.println("Reset DefendantController currentImageIndex to 0 and UI elements");
-      }
-    } catch (Exception e) {
-      System.err.println(
-          "Warning: Could not reset DefendantController flashback state: " + e.getMessage());
-    }
-
-    // Reset HumanWitnessController flashback state
-    try {
-      HumanWitnessController humanController =
-          (HumanWitnessController) App.getController("witnessChat");
-      if (humanController != null) {
-        java.lang.reflect.Field currentImageIndexField =
-            HumanWitnessController.class.getDeclaredField("currentImageIndex");
-        currentImageIndexField.setAccessible(true);
-        currentImageIndexField.set(humanController, 0);
-
-        // Also reset chatVisible state for HumanWitnessController
-        java.lang.reflect.Field chatVisibleField =
-            HumanWitnessController.class.getDeclaredField("chatVisible");
-        chatVisibleField.setAccessible(true);
-        chatVisibleField.set(humanController, true);
-
-        // Reset UI elements to initial state
-        resetHumanWitnessUi(humanController);
-
-        System.out.println(
-            "Reset HumanWitnessController currentImageIndex to 0, chatVisible to true, and UI"
-                + " elements");
-      }
-    } catch (Exception e) {
-      System.err.println(
-          "Warning: Could not reset HumanWitnessController flashback state: " + e.getMessage());
-    }
-
-    // Reset AiWitnessController flashback state
-    try {
-      AiWitnessController aiController = (AiWitnessController) App.getController("aiChat");
-      if (aiController != null) {
-        java.lang.reflect.Field currentImageIndexField =
-            AiWitnessController.class.getDeclaredField("currentImageIndex");
-        currentImageIndexField.setAccessible(true);
-        currentImageIndexField.set(aiController, 0);
-
-        // Reset UI elements to initial state
-        resetAiWitnessUi(aiController);
-
-        System.out.println("Reset AiWitnessController currentImageIndex to 0 and UI elements");
-      }
-    } catch (Exception e) {
-      System.err.println(
-          "Warning: Could not reset AiWitnessController flashback state: " + e.getMessage());
-    }
-  }
-
-  /** Resets DefendantController UI elements to initial state. */
-  private void resetDefendantUi(DefendantController controller) {
-    try {
-      // Reset common chat elements
-      resetCommonChatUi(controller);
-
-      // Reset nextButton visibility
-      setControlVisibility(controller, "nextButton", true);
-
-      System.out.println("Reset DefendantController UI elements");
-    } catch (Exception e) {
-      System.err.println("Warning: Could not reset DefendantController UI: " + e.getMessage());
-    }
-  }
-
-  /** Resets HumanWitnessController UI elements to initial state. */
-  private void resetHumanWitnessUi(HumanWitnessController controller) {
-    try {
-      // Reset common chat elements
-      resetCommonChatUi(controller);
-
-      // Reset nextButton visibility
-      setControlVisibility(controller, "nextButton", true);
-
-      // Reset unlock slider
-      setControlVisibility(controller, "unlockSlider", false);
-      try {
-        java.lang.reflect.Field unlockSliderField =
-            HumanWitnessController.class.getDeclaredField("unlockSlider");
-        unlockSliderField.setAccessible(true);
-        Slider unlockSlider = (Slider) unlockSliderField.get(controller);
-        if (unlockSlider != null) {
-          unlockSlider.setValue(0.0);
-          unlockSlider.setDisable(false);
-        }
-      } catch (Exception e) {
-        // Ignore slider-specific errors
-      }
-
-      // Reset dropUpArrow
-      setControlVisibility(controller, "dropUpArrow", false);
-      try {
-        java.lang.reflect.Field dropUpArrowField =
-            HumanWitnessController.class.getDeclaredField("dropUpArrow");
-        dropUpArrowField.setAccessible(true);
-        Button dropUpArrow = (Button) dropUpArrowField.get(controller);
-        if (dropUpArrow != null) {
-          dropUpArrow.setStyle(
-              "-fx-background-color: #ffffff; -fx-shape: 'M 0 15 L 15 0 L 30 15 Z';");
-        }
-      } catch (Exception e) {
-        // Ignore arrow-specific errors
-      }
-
-      System.out.println("Reset HumanWitnessController UI elements");
-    } catch (Exception e) {
-      System.err.println("Warning: Could not reset HumanWitnessController UI: " + e.getMessage());
-    }
-  }
-
-  /** Resets AiWitnessController UI elements to initial state. */
-  private void resetAiWitnessUi(AiWitnessController controller) {
-    try {
-      // Reset common chat elements
-      resetCommonChatUi(controller);
-
-      // Reset nextButton visibility
-      setControlVisibility(controller, "nextButton", true);
-
-      System.out.println("Reset AiWitnessController UI elements");
-    } catch (Exception e) {
-      System.err.println("Warning: Could not reset AiWitnessController UI: " + e.getMessage());
-    }
   }
 
   /**
-   * Sets the visibility of a UI control using reflection.
+   * Lists the player's most recent questions so the feedback can comment on how they investigated.
+   * Only the player's turns are read from the history, however long the trial was.
    *
-   * @param controller the controller object containing the field
-   * @param fieldName the name of the field to modify
-   * @param visible the visibility state to set
+   * @return the questions as a prompt section, or an empty string if the player asked none
    */
-  private void setControlVisibility(Object controller, String fieldName, boolean visible) {
-    try {
-      java.lang.reflect.Field field = controller.getClass().getDeclaredField(fieldName);
-      field.setAccessible(true);
-      Object control = field.get(controller);
-      if (control instanceof javafx.scene.Node) {
-        ((javafx.scene.Node) control).setVisible(visible);
-      }
-    } catch (Exception e) {
-      // Silently fail - field might not exist in all controllers
+  private String describeRecentQuestions() {
+    // By speaker, not role: notices such as "Notification Viewed" are user messages too
+    List<ChatMessage> questions =
+        ChatHistory.getRecentBySpeaker(ChatHistory.PLAYER, VERDICT_QUESTIONS);
+    if (questions.isEmpty()) {
+      return "";
     }
-  }
-
-  /**
-   * Sets the visibility of a UI control from parent class using reflection.
-   *
-   * @param controller the controller object containing the field
-   * @param parentClass the parent class containing the field
-   * @param fieldName the name of the field to modify
-   * @param visible the visibility state to set
-   */
-  private void setParentControlVisibility(
-      Object controller, Class<?> parentClass, String fieldName, boolean visible) {
-    try {
-      java.lang.reflect.Field field = parentClass.getDeclaredField(fieldName);
-      field.setAccessible(true);
-      Object control = field.get(controller);
-      if (control instanceof javafx.scene.Node) {
-        ((javafx.scene.Node) control).setVisible(visible);
-      }
-    } catch (Exception e) {
-      // Silently fail - field might not exist in all controllers
+    StringBuilder section = new StringBuilder("Player's Most Recent Questions:\n");
+    for (ChatMessage question : questions) {
+      section
+          .append("- ")
+          .append(ChatHistory.withoutSpeaker(question, ChatHistory.PLAYER))
+          .append("\n");
     }
-  }
-
-  /**
-   * Resets common chat UI elements (btnSend, txtInput, txtaChat) to invisible.
-   *
-   * @param controller the chat controller to reset
-   */
-  private void resetCommonChatUi(Object controller) {
-    setParentControlVisibility(controller, ChatController.class, "btnSend", false);
-    setParentControlVisibility(controller, ChatController.class, "txtInput", false);
-    setParentControlVisibility(controller, ChatController.class, "txtaChat", false);
+    return section.append("\n").toString();
   }
 
   /**
@@ -848,45 +477,69 @@ public class EndController extends ChatController {
    * not part of the ongoing chat conversation.
    *
    * @param userMessage the message to send to GPT
-   * @throws ApiProxyException if there is an error communicating with the API proxy
+   * @return a future that completes once the response has been queued for display
    */
-  private void getSingleGptResponse(String userMessage) throws ApiProxyException {
+  private CompletableFuture<Void> getSingleGptResponse(String userMessage) {
+    ChatCompletionRequest singleRequest;
     try {
       ApiProxyConfig config = ApiProxyConfig.readConfig();
-      ChatCompletionRequest singleRequest =
+      singleRequest =
           new ChatCompletionRequest(config)
               .setN(1)
               .setTemperature(0.2)
               .setTopP(0.5)
               .setModel(Model.GPT_4_1_MINI)
               .setMaxTokens(300);
+    } catch (ApiProxyException e) {
+      return CompletableFuture.failedFuture(e);
+    }
 
-      // Add system prompt and user message
-      singleRequest.addMessage(
-          new ChatMessage(
-              "system",
-              getSystemPrompt()
-                  + "\n\n"
-                  + "IMPORTANT: Provide a complete, concise response in no more than 8 sentences."
-                  + " Be direct and ensure your response ends with a proper conclusion. Do not"
-                  + " exceed this length to avoid truncation."));
-      singleRequest.addMessage(new ChatMessage("user", userMessage));
-
-      // Execute and get response
-      ChatCompletionResult result = singleRequest.execute();
-      Choice choice = result.getChoices().iterator().next();
-      ChatMessage response = choice.getChatMessage();
-
-      // Display only the response in the chat area
+    // Add system prompt and user message
+    singleRequest.addMessage(
+        new ChatMessage(
+            "system",
+            getSystemPrompt()
+                + "\n\n"
+                + "IMPORTANT: Provide a complete, concise response in no more than 8 sentences."
+                + " Be direct and ensure your response ends with a proper conclusion. Do not"
+                + " exceed this length to avoid truncation."));
+    singleRequest.addMessage(new ChatMessage("user", userMessage));
+
+    // A pasted essay as the rationale would only be rejected or truncated by the proxy, so refuse
+    // it here before paying for the round trip
+    int budget = ChatHistory.getContextWindow().getBudget(Model.GPT_4_1_MINI);
+    int estimate = singleRequest.estimatePromptTokens();
+    if (estimate > budget) {
       Platform.runLater(
           () -> {
             if (txtaChat != null) {
-              txtaChat.appendText(response.getContent() + "\n\n");
+              txtaChat.appendText(
+                  "Your rationale is too long to be reviewed. Please keep it to a few paragraphs."
+                      + "\n\n");
             }
           });
-
-    } catch (ApiProxyException e) {
-      e.printStackTrace();
+      return CompletableFuture.failedFuture(
+          new ApiProxyException(
+              "Verdict prompt is about " + estimate + " tokens, over the " + budget + " budget"));
     }
+
+    // Execute and display only the response in the chat area
+    return singleRequest
+        .executeAsync()
+        .thenAccept(
+            result -> {
+              Choice choice = result.getChoices().iterator().next();
+              ChatMessage response = choice.getChatMessage();
+              Platform.runLater(
+                  () -> {
+                    if (txtaChat != null) {
+                      txtaChat.appendText(response.getContent() + "\n\n");
+                    }
+                  });
+              // Read the feedback aloud; the first sentence starts while the rest is synthesized
+              if (!response.getContent().isBlank()) {
+                TextToSpeech.speakInSentences(response.getContent());
+              }
+            });
   }
 }
@@ -14,10 +14,12 @@ import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.shape.Rectangle;
+import nz.ac.auckland.apiproxy.chat.openai.ChatCompletionRequest;
 import nz.ac.auckland.apiproxy.chat.openai.ChatMessage;
 import nz.ac.auckland.apiproxy.exceptions.ApiProxyException;
 import nz.ac.auckland.se206.ChatHistory;
 import nz.ac.auckland.se206.prompts.PromptEngineering;
+import nz.ac.auckland.se206.speech.TextToSpeech;
 import nz.ac.auckland.se206.states.GameStateManager;
 import nz.ac.auckland.se206.util.ImageLoaderUtil;
 
@@ -26,6 +28,12 @@ import nz.ac.auckland.se206.util.ImageLoaderUtil;
  * model via the API proxy.
  */
 public class HumanWitnessController extends ChatController {
+  // Spoken once the phone is unlocked
+  private static final String PHONE_LINE =
+      "So Cassian compromised the mission, which makes Aegis's reaction to"
+          + " protect it understandable. But its methods were EXTREME. Cassian"
+          + " could've been in action for good.";
+
   private List<Image> images = new ArrayList<>();
   private int currentImageIndex = 0;
   private boolean chatVisible = true; // Track chat visibility state, default to visible
@@ -62,7 +70,6 @@ public class HumanWitnessController extends ChatController {
     // popupPane.setOnMouseClicked(e -> popupPane.setVisible(false));
     instructionLabel.setText("Investigate to find Cassian Thorne's messages.");
     loadImages(null);
-    initChat();
 
     // Hide chat UI elements initially
     setChatUiVisibility(false);
@@ -144,6 +151,11 @@ public class HumanWitnessController extends ChatController {
     return "Orion Vale";
   }
 
+  @Override
+  protected String getFallbackLine() {
+    return "Sorry, the line keeps cutting out on my end. Give me a second and ask me again.";
+  }
+
   // Run flashback slideshow
   public void startFlashbackSlideshow() {
     // Use shared slideshow initialization method for consistent behavior
@@ -152,6 +164,8 @@ public class HumanWitnessController extends ChatController {
 
   public void runFlashback() {
     startFlashbackSlideshow();
+    // Synthesize the scripted phone reply while the player watches the flashback
+    declareUpcomingLines(PHONE_LINE);
   }
 
   // Not first time
@@ -351,10 +365,8 @@ public class HumanWitnessController extends ChatController {
     executeDelayedTask(
         1000,
         () -> {
-          displayMessage(
-              "So Cassian compromised the mission, which makes Aegis's reaction to"
-                  + " protect it understandable. But its methods were EXTREME. Cassian"
-                  + " could've been in action for good.");
+          displayMessage(PHONE_LINE);
+          TextToSpeech.speak(PHONE_LINE);
         });
     // After a short delay, if the computer email has not been inspected, urge the player to
     // open the computer/email interactable to check for corroborating messages.
@@ -401,6 +413,7 @@ public class HumanWitnessController extends ChatController {
   }
 
   /** Resets the controller to its initial state for game restart. */
+  @Override
   public void resetControllerState() {
     popupPane.setVisible(false);
     Platform.runLater(
@@ -461,95 +474,92 @@ public class HumanWitnessController extends ChatController {
   }
 
   @Override
-  protected ChatMessage runGpt(ChatMessage msg) throws ApiProxyException {
-    // Add character identity clarification
-    chatCompletionRequest.addMessage(
-        new ChatMessage(
-            "system",
-            "CHARACTER IDENTITY AND RESTRICTIONS: You are Orion Vale, the human witness in this"
-                + " case. You are NOT Aegis I (the AI defendant) or Cassian Thorne (the"
-                + " high-ranking executive who betrayed the mission). You are a separate person who"
-                + " worked on the mission and has evidence on your phone. IMPORTANT: Orion can"
-                + " discuss his own phone slider mechanism. Orion must NOT disclose private unlock"
-                + " methods or puzzle solutions belonging to other characters. If directly asked"
-                + " about another character's puzzle, Orion may describe the general topic at a"
-                + " high level but must refuse to provide unlock steps or explicit answers and"
-                + " should instruct the asker to speak with that puzzle's owner by name (for"
-                + " example: 'Ask Echo II' or 'Ask Aegis I') to get further details."));
+  protected String getIdentityPrompt() {
+    return "CHARACTER IDENTITY AND RESTRICTIONS: You are Orion Vale, the human witness in this"
+        + " case. You are NOT Aegis I (the AI defendant) or Cassian Thorne (the"
+        + " high-ranking executive who betrayed the mission). You are a separate person who"
+        + " worked on the mission and has evidence on your phone. IMPORTANT: Orion can"
+        + " discuss his own phone slider mechanism. Orion must NOT disclose private unlock"
+        + " methods or puzzle solutions belonging to other characters. If directly asked"
+        + " about another character's puzzle, Orion may describe the general topic at a"
+        + " high level but must refuse to provide unlock steps or explicit answers and"
+        + " should instruct the asker to speak with that puzzle's owner by name (for"
+        + " example: 'Ask Echo II' or 'Ask Aegis I') to get further details.";
+  }
 
+  /** Adds context about the phone and the computer screen. */
+  @Override
+  protected void addTurnContext(ChatCompletionRequest request) {
     // Add phone status context based on current state
     if (GameStateManager.getInstance().getInteractionFlag("OrionInt")) {
-      chatCompletionRequest.addMessage(
-          new ChatMessage(
-              "assistant",
-              "CRITICAL: I am Orion Vale and I KNOW my phone has been unlocked. The investigator"
-                  + " successfully used the slider mechanism to access my phone. I witnessed this"
-                  + " happen and I am fully aware of it. I must NOT tell them to unlock the phone"
-                  + " again - it's already unlocked. I must NOT ask for permission to access my"
-                  + " phone - it's MY phone and it's already open. I should freely discuss what was"
-                  + " found on my phone: the messages revealing Cassian Thorne's betrayal, the data"
-                  + " showing he manipulated mission parameters, evidence of Aegis I's extreme"
-                  + " protocols, and Project Starlight intelligence. Messages on the phone indicate"
-                  + " that the CEO prioritised financial gain over crew safety — financial"
-                  + " incentives were often placed above safety concerns. I should acknowledge that"
-                  + " the player has already seen this evidence on my unlocked phone."));
-
-      chatCompletionRequest.addMessage(
-          new ChatMessage(
-              "system",
-              "PHONE UNLOCKED STATUS: Orion Vale's phone slider has been completed by the player."
-                  + " The phone is now unlocked and accessible. Orion is completely aware of this"
-                  + " unlock event and should never suggest unlocking the phone again. Orion should"
-                  + " NOT ask for permission to access his own phone since it's already unlocked"
-                  + " and belongs to him. Instead, Orion should reference the evidence that was"
-                  + " revealed on the phone and discuss it openly. The phone contained critical"
-                  + " evidence about the mission betrayal."));
+      injectContext(
+          request,
+          "assistant",
+          "CRITICAL: I am Orion Vale and I KNOW my phone has been unlocked. The investigator"
+              + " successfully used the slider mechanism to access my phone. I witnessed this"
+              + " happen and I am fully aware of it. I must NOT tell them to unlock the phone"
+              + " again - it's already unlocked. I must NOT ask for permission to access my"
+              + " phone - it's MY phone and it's already open. I should freely discuss what was"
+              + " found on my phone: the messages revealing Cassian Thorne's betrayal, the data"
+              + " showing he manipulated mission parameters, evidence of Aegis I's extreme"
+              + " protocols, and Project Starlight intelligence. Messages on the phone indicate"
+              + " that the CEO prioritised financial gain over crew safety — financial"
+              + " incentives were often placed above safety concerns. I should acknowledge that"
+              + " the player has already seen this evidence on my unlocked phone.");
+
+      injectContext(
+          request,
+          "system",
+          "PHONE UNLOCKED STATUS: Orion Vale's phone slider has been completed by the player."
+              + " The phone is now unlocked and accessible. Orion is completely aware of this"
+              + " unlock event and should never suggest unlocking the phone again. Orion should"
+              + " NOT ask for permission to access his own phone since it's already unlocked"
+              + " and belongs to him. Instead, Orion should reference the evidence that was"
+              + " revealed on the phone and discuss it openly. The phone contained critical"
+              + " evidence about the mission betrayal.");
     } else {
-      chatCompletionRequest.addMessage(
-          new ChatMessage(
-              "system",
-              "PHONE STATUS: Orion's phone is currently locked and visible on screen. Orion should"
-                  + " guide users to use the slider mechanism to unlock his phone, but should NOT"
-                  + " reveal specific details about what's on the phone until they actually unlock"
-                  + " it. Orion should only mention that his phone contains important evidence and"
-                  + " messages that could help with the investigation. Orion should focus ONLY on"
-                  + " his phone slider, not other characters' unlock methods."));
+      injectContext(
+          request,
+          "system",
+          "PHONE STATUS: Orion's phone is currently locked and visible on screen. Orion should"
+              + " guide users to use the slider mechanism to unlock his phone, but should NOT"
+              + " reveal specific details about what's on the phone until they actually unlock"
+              + " it. Orion should only mention that his phone contains important evidence and"
+              + " messages that could help with the investigation. Orion should focus ONLY on"
+              + " his phone slider, not other characters' unlock methods.");
     }
 
     // Add computer screen context if the investigator inspected the computer screen.
     // This is distinct from the phone unlock interaction and should be treated separately.
     if (GameStateManager.getInstance().getInteractionFlag("OrionScreen")) {
-      chatCompletionRequest.addMessage(
-          new ChatMessage(
-              "assistant",
-              "CRITICAL: I am Orion Vale and I ACKNOWLEDGE that the player inspected a computer"
-                  + " screen which displayed an email in the desktop client. The email referenced"
-                  + " Project Starlight and an investment offer. This email is independent evidence"
-                  + " from the phone contents. When discussing the investigation I should"
-                  + " explicitly reference the computer email and avoid conflating it with the"
-                  + " phone unlock or its messages."));
-
-      chatCompletionRequest.addMessage(
-          new ChatMessage(
-              "system",
-              "COMPUTER SCREEN INSPECTION STATUS: The player has inspected the computer's"
-                  + " screen and viewed an email in the desktop client from AstroHelix referencing"
-                  + " Project Starlight and an investment offer. This email is independent from the"
-                  + " phone evidence. Orion is aware of the email and should treat it as separate"
-                  + " corroborating evidence when relevant to the conversation."));
+      injectContext(
+          request,
+          "assistant",
+          "CRITICAL: I am Orion Vale and I ACKNOWLEDGE that the player inspected a computer"
+              + " screen which displayed an email in the desktop client. The email referenced"
+              + " Project Starlight and an investment offer. This email is independent evidence"
+              + " from the phone contents. When discussing the investigation I should"
+              + " explicitly reference the computer email and avoid conflating it with the"
+              + " phone unlock or its messages.");
+
+      injectContext(
+          request,
+          "system",
+          "COMPUTER SCREEN INSPECTION STATUS: The player has inspected the computer's"
+              + " screen and viewed an email in the desktop client from AstroHelix referencing"
+              + " Project Starlight and an investment offer. This email is independent from the"
+              + " phone evidence. Orion is aware of the email and should treat it as separate"
+              + " corroborating evidence when relevant to the conversation.");
     } else {
-      chatCompletionRequest.addMessage(
-          new ChatMessage(
-              "system",
-              "SCREEN NOTICE: The computer screen currently displays a partial email preview"
-                  + " (subject/preview snippet) from the desktop mail client referencing Project"
-                  + " Starlight. The full email (including an investment offer) is only visible"
-                  + " when the player opens the email; opening reveals the complete message. This"
-                  + " email preview should be treated as separate evidence from the phone and may"
-                  + " indicate financial pressure or negotiation related to Project Starlight."));
+      injectContext(
+          request,
+          "system",
+          "SCREEN NOTICE: The computer screen currently displays a partial email preview"
+              + " (subject/preview snippet) from the desktop mail client referencing Project"
+              + " Starlight. The full email (including an investment offer) is only visible"
+              + " when the player opens the email; opening reveals the complete message. This"
+              + " email preview should be treated as separate evidence from the phone and may"
+              + " indicate financial pressure or negotiation related to Project Starlight.");
     }
-
-    // Delegate to the ChatController helper using the captured request instance
-    return runGptWithRequest(chatCompletionRequest, msg);
   }
 }
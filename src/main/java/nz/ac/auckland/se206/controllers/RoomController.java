@@ -1,7 +1,6 @@
 package nz.ac.auckland.se206.controllers;
 
 import java.io.IOException;
-import java.net.URISyntaxException;
 import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -12,10 +11,13 @@ import javafx.scene.image.ImageView;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.AnchorPane;
-import javafx.scene.media.Media;
-import javafx.scene.media.MediaPlayer;
 import nz.ac.auckland.se206.App;
 import nz.ac.auckland.se206.CountdownTimer;
+import nz.ac.auckland.se206.GameSession;
+import nz.ac.auckland.se206.SessionJournal;
+import nz.ac.auckland.se206.Warmup;
+import nz.ac.auckland.se206.audio.AudioEngine;
+import nz.ac.auckland.se206.audio.AudioEngine.Priority;
 import nz.ac.auckland.se206.states.GameStateManager;
 import nz.ac.auckland.se206.util.ImageLoaderUtil;
 
@@ -24,11 +26,6 @@ import nz.ac.auckland.se206.util.ImageLoaderUtil;
  * chat with witnesses and defendant to gain a better understanding.
  */
 public class RoomController {
-  private boolean firstDefendant = false;
-  private boolean firstHuman = false;
-  private boolean firstAi = false;
-  private MediaPlayer mediaPlayer; // Keep reference to prevent garbage collection
-
   // set images for hover
   // set images for hover
   private Image aegisIdle = ImageLoaderUtil.loadImage("/images/characters/aegisIdle.png");
@@ -63,31 +60,38 @@ public class RoomController {
             + " with the highest security measure. Chat with the characters to uncover the"
             + " details.");
 
+    // A game resumed after a crash carries on from the room, skipping the opening screen
+    if (SessionJournal.getInstance().isResumed()) {
+      startPane.setVisible(false);
+    }
+
+    // Each character can be visited once the startup warm-up has primed them
+    enableWhenReady(defImg, "defendantChat");
+    enableWhenReady(humanImg, "witnessChat");
+    enableWhenReady(aiImg, "aiChat");
+
     // always check if all characters have been spoken to
     Platform.runLater(() -> updateButtonState());
   }
 
-  // Plays opening TTS audio with game instructions
-  private void playOpenTtsAudio() throws URISyntaxException {
-    try {
-      // Load and configure opening audio
-      String audioPath = getClass().getResource("/audio/openTts.mp3").toURI().toString();
-      Media media = new Media(audioPath);
-      this.mediaPlayer = new MediaPlayer(media);
-      mediaPlayer.setVolume(1.0);
-      // Auto-play when audio is ready
-      mediaPlayer.setOnReady(() -> mediaPlayer.play());
-      // Handle playback errors
-      mediaPlayer.setOnError(
-          () -> {
-            if (mediaPlayer.getError() != null) {
-              mediaPlayer.getError().printStackTrace();
-            }
-          });
-      mediaPlayer.play();
-    } catch (Exception e) {
-      e.printStackTrace();
-    }
+  // Dims a character until their conversation is warm, then lets the player click them
+  private void enableWhenReady(ImageView character, String scene) {
+    character.setDisable(true);
+    character.setOpacity(0.5);
+    Warmup.getInstance()
+        .whenReady(scene)
+        .thenRun(
+            () ->
+                Platform.runLater(
+                    () -> {
+                      character.setDisable(false);
+                      character.setOpacity(1.0);
+                    }));
+  }
+
+  // Plays opening TTS audio with game instructions, ahead of any speech already queued
+  private void playOpenTtsAudio() {
+    AudioEngine.getInstance().playResource("/audio/openTts.mp3", Priority.HIGH);
   }
 
   /**
@@ -135,9 +139,10 @@ public class RoomController {
     controller.syncChatHistoryAsync();
 
     // Show flashback sequence on first visit, memory screen on subsequent visits
-    if (!firstDefendant) {
+    GameSession session = GameSession.getCurrent();
+    if (!session.hasVisited("defendant")) {
       controller.runFlashback(); // First visit - show flashback sequence
-      firstDefendant = true;
+      session.markVisited("defendant");
     } else {
       controller.runAfterFirst(); // Return visit - skip to memory screen
     }
@@ -159,9 +164,10 @@ public class RoomController {
     controller.syncChatHistoryAsync();
 
     // Track first visit and manage conversation flow appropriately
-    if (!firstHuman) {
+    GameSession session = GameSession.getCurrent();
+    if (!session.hasVisited("human")) {
       // First visit - run full flashback sequence
-      firstHuman = true;
+      session.markVisited("human");
     } else {
       // Return visit - skip to appropriate interaction state
       controller.runAfterFirst();
@@ -186,9 +192,10 @@ public class RoomController {
     controller.syncChatHistoryAsync();
 
     // Show flashback sequence on first visit, memory screen on subsequent visits
-    if (!firstAi) {
+    GameSession session = GameSession.getCurrent();
+    if (!session.hasVisited("ai")) {
       controller.runFlashback(); // First visit - show flashback sequence
-      firstAi = true;
+      session.markVisited("ai");
     } else {
       controller.runAfterFirst(); // Return visit - skip to memory screen
     }
@@ -220,12 +227,8 @@ public class RoomController {
 
   /** Resets the room controller state for game restart. */
   public void resetRoomState() {
-    // Initialize all character visit tracking to allow flashback sequences
-    firstDefendant = false;
-    firstHuman = false;
-    firstAi = false;
-
-    // Refresh button accessibility state
+    // First visits are tracked by the game session, so a new session already has none; only the
+    // verdict button needs refreshing
     updateButtonState();
   }
 
@@ -266,9 +269,10 @@ public class RoomController {
    * verdict button accordingly. Should be called after each conversation or during initialization.
    */
   @FXML
-  private void onStartGame(ActionEvent event) throws URISyntaxException {
+  private void onStartGame(ActionEvent event) {
     startPane.setVisible(false);
     playOpenTtsAudio();
     CountdownTimer.start();
+    SessionJournal.getInstance().recordStarted();
   }
 }
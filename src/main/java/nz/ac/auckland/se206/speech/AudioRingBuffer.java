@@ -0,0 +1,143 @@
+package nz.ac.auckland.se206.speech;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A fixed-size byte ring between the thread downloading a clip and the thread decoding it. The
+ * writer blocks only when the ring is full and the reader only when it is empty, so each side runs
+ * at its own pace.
+ */
+public class AudioRingBuffer {
+
+  private final byte[] ring;
+  private int readPosition = 0;
+  private int available = 0;
+  private boolean closed = false;
+  private IOException failure = null;
+
+  /**
+   * Creates a ring buffer.
+   *
+   * @param capacity the number of bytes the ring holds
+   */
+  public AudioRingBuffer(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be at least 1 byte, but was " + capacity);
+    }
+    ring = new byte[capacity];
+  }
+
+  /**
+   * Copies bytes into the ring, waiting for space as needed.
+   *
+   * @param data the source array
+   * @param offset the first byte to copy
+   * @param length the number of bytes to copy
+   * @throws IOException if the reader has gone away
+   * @throws InterruptedException if interrupted while waiting for space
+   */
+  public synchronized void write(byte[] data, int offset, int length)
+      throws IOException, InterruptedException {
+    while (length > 0) {
+      while (available == ring.length && !closed) {
+        wait();
+      }
+      if (closed) {
+        throw new IOException("Audio buffer closed");
+      }
+      int writePosition = (readPosition + available) % ring.length;
+      // Copy up to the end of the free space or the end of the array, whichever comes first
+      int count = Math.min(length, Math.min(ring.length - available, ring.length - writePosition));
+      System.arraycopy(data, offset, ring, writePosition, count);
+      available += count;
+      offset += count;
+      length -= count;
+      notifyAll();
+    }
+  }
+
+  /** Marks the end of the clip; the reader sees end of stream once the ring is drained. */
+  public synchronized void close() {
+    closed = true;
+    notifyAll();
+  }
+
+  /**
+   * Ends the clip with an error that the reader sees once the ring is drained.
+   *
+   * @param cause why the download stopped
+   */
+  public synchronized void fail(IOException cause) {
+    failure = cause;
+    close();
+  }
+
+  /**
+   * Returns the number of buffered bytes not yet read.
+   *
+   * @return the bytes available to the reader
+   */
+  public synchronized int available() {
+    return available;
+  }
+
+  private synchronized int read(byte[] target, int offset, int length)
+      throws IOException, InterruptedException {
+    if (length == 0) {
+      return 0;
+    }
+    while (available == 0 && !closed) {
+      wait();
+    }
+    if (available == 0) {
+      if (failure != null) {
+        throw failure;
+      }
+      return -1;
+    }
+    int count = Math.min(length, Math.min(available, ring.length - readPosition));
+    System.arraycopy(ring, readPosition, target, offset, count);
+    readPosition = (readPosition + count) % ring.length;
+    available -= count;
+    notifyAll();
+    return count;
+  }
+
+  /**
+   * Returns a stream reading from the ring. Closing the stream also closes the ring, which stops
+   * the writer.
+   *
+   * @return the reader's view of the buffer
+   */
+  public InputStream getInputStream() {
+    return new InputStream() {
+      private final byte[] single = new byte[1];
+
+      @Override
+      public int read() throws IOException {
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+      }
+
+      @Override
+      public int read(byte[] target, int offset, int length) throws IOException {
+        try {
+          return AudioRingBuffer.this.read(target, offset, length);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while waiting for audio", e);
+        }
+      }
+
+      @Override
+      public int available() {
+        return AudioRingBuffer.this.available();
+      }
+
+      @Override
+      public void close() {
+        AudioRingBuffer.this.close();
+      }
+    };
+  }
+}
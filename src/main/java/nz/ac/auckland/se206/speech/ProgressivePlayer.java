@@ -0,0 +1,340 @@
+package nz.ac.auckland.se206.speech;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.FloatControl;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import javazoom.jl.decoder.Bitstream;
+import javazoom.jl.decoder.BitstreamException;
+import javazoom.jl.decoder.Decoder;
+import javazoom.jl.decoder.DecoderException;
+import javazoom.jl.decoder.Header;
+import javazoom.jl.decoder.SampleBuffer;
+
+/**
+ * Plays an MP3 stream while it is still downloading. The clip passes through three stages, each on
+ * its own thread: the download fills a bounded ring buffer, the decoder turns MP3 frames into PCM,
+ * and the output stage writes PCM to the audio line once a short pre-roll has been decoded. Audio
+ * starts as soon as the first frames arrive, however long the clip is.
+ */
+public class ProgressivePlayer {
+
+  private static final int DOWNLOAD_CHUNK_BYTES = 8 * 1024;
+  // Decoded frames waiting for the audio line; one MP3 frame is about 26 ms of audio
+  private static final int PCM_QUEUE_FRAMES = 64;
+  private static final byte[] END_OF_AUDIO = new byte[0];
+
+  private static final ExecutorService STAGES =
+      Executors.newCachedThreadPool(
+          new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+              Thread thread = new Thread(runnable, "tts-audio-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+
+  private int bufferBytes = 64 * 1024;
+  private int preRollMs = 150;
+  private Consumer<byte[]> onDownloaded = null;
+  private Runnable onStarted = null;
+
+  // Changed from other threads while the clip plays
+  private volatile boolean stopped = false;
+  private volatile double volume = 1.0;
+  private volatile SourceDataLine activeLine = null;
+  private volatile AudioRingBuffer activeRing = null;
+
+  /**
+   * Sets the size of the ring buffer between the download and the decoder.
+   *
+   * @param bufferBytes the ring capacity in bytes
+   * @return this player
+   */
+  public ProgressivePlayer setBufferBytes(int bufferBytes) {
+    if (bufferBytes < DOWNLOAD_CHUNK_BYTES) {
+      throw new IllegalArgumentException(
+          "Buffer must be at least " + DOWNLOAD_CHUNK_BYTES + " bytes, but was " + bufferBytes);
+    }
+    this.bufferBytes = bufferBytes;
+    return this;
+  }
+
+  /**
+   * Sets how much audio is decoded before the line starts, to ride out small download hiccups.
+   *
+   * @param preRollMs the pre-roll in milliseconds
+   * @return this player
+   */
+  public ProgressivePlayer setPreRollMs(int preRollMs) {
+    if (preRollMs < 0) {
+      throw new IllegalArgumentException("Pre-roll must not be negative, but was " + preRollMs);
+    }
+    this.preRollMs = preRollMs;
+    return this;
+  }
+
+  /**
+   * Sets a listener given the complete clip once the download reaches the end of the stream, for
+   * example to cache it.
+   *
+   * @param onDownloaded receives the full MP3 bytes
+   * @return this player
+   */
+  public ProgressivePlayer setOnDownloaded(Consumer<byte[]> onDownloaded) {
+    this.onDownloaded = onDownloaded;
+    return this;
+  }
+
+  /**
+   * Sets a listener called when the audio line starts, i.e. when the first sound is heard.
+   *
+   * @param onStarted called on the output thread
+   * @return this player
+   */
+  public ProgressivePlayer setOnStarted(Runnable onStarted) {
+    this.onStarted = onStarted;
+    return this;
+  }
+
+  /**
+   * Sets the playback volume. May be called while the clip is playing.
+   *
+   * @param volume the volume from 0.0 (silent) to 1.0 (full)
+   */
+  public void setVolume(double volume) {
+    if (volume < 0 || volume > 1) {
+      throw new IllegalArgumentException("Volume must be between 0 and 1, but was " + volume);
+    }
+    this.volume = volume;
+    SourceDataLine line = activeLine;
+    if (line != null) {
+      applyVolume(line);
+    }
+  }
+
+  /** Stops playback as soon as possible, discarding anything buffered. Safe from any thread. */
+  public void stop() {
+    stopped = true;
+    AudioRingBuffer ring = activeRing;
+    if (ring != null) {
+      // Wakes the decoder if it is waiting on a slow download
+      ring.close();
+    }
+    SourceDataLine line = activeLine;
+    if (line != null) {
+      // Unblocks a write waiting for space in the line
+      line.stop();
+      line.flush();
+    }
+  }
+
+  /**
+   * Plays the stream to the default audio line, returning once playback has finished. The source is
+   * closed when the download stage ends.
+   *
+   * @param source the MP3 stream
+   * @return true if the whole clip was played
+   */
+  public boolean play(InputStream source) {
+    AudioRingBuffer ring = new AudioRingBuffer(bufferBytes);
+    activeRing = ring;
+    BlockingQueue<byte[]> pcm = new ArrayBlockingQueue<>(PCM_QUEUE_FRAMES);
+    Future<?> download = STAGES.submit(() -> download(source, ring));
+
+    // The decoder runs here; the output stage is started once the format is known
+    Future<Boolean> output = null;
+    boolean decoded = false;
+    try (InputStream encoded = ring.getInputStream()) {
+      Bitstream bitstream = new Bitstream(encoded);
+      Decoder decoder = new Decoder();
+      Header header;
+      while (!stopped && (header = bitstream.readFrame()) != null) {
+        SampleBuffer samples = (SampleBuffer) decoder.decodeFrame(header, bitstream);
+        bitstream.closeFrame();
+
+        if (output == null) {
+          AudioFormat format =
+              new AudioFormat(
+                  decoder.getOutputFrequency(), 16, decoder.getOutputChannels(), true, false);
+          output = STAGES.submit(() -> output(format, pcm));
+        }
+
+        byte[] frame = toBytes(samples);
+        // Stop decoding if the line failed and nothing is draining the queue any more
+        while (!pcm.offer(frame, 100, TimeUnit.MILLISECONDS)) {
+          if (output.isDone()) {
+            return false;
+          }
+        }
+      }
+      decoded = !stopped;
+    } catch (BitstreamException | DecoderException | IOException e) {
+      e.printStackTrace();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      if (output != null) {
+        // Let the line play whatever was decoded, even after an error part way through
+        endOutput(pcm, output);
+      }
+      if (!decoded) {
+        // A finished download is left to hand its recording to the listener
+        download.cancel(true);
+      }
+    }
+
+    if (output == null) {
+      return false;
+    }
+    try {
+      return output.get() && decoded;
+    } catch (Exception e) {
+      e.printStackTrace();
+      return false;
+    }
+  }
+
+  private void download(InputStream source, AudioRingBuffer ring) {
+    ByteArrayOutputStream recording = onDownloaded == null ? null : new ByteArrayOutputStream();
+    byte[] chunk = new byte[DOWNLOAD_CHUNK_BYTES];
+    try (InputStream in = source) {
+      int count;
+      while ((count = in.read(chunk)) >= 0) {
+        ring.write(chunk, 0, count);
+        if (recording != null) {
+          recording.write(chunk, 0, count);
+        }
+      }
+      ring.close();
+      if (recording != null) {
+        onDownloaded.accept(recording.toByteArray());
+      }
+    } catch (IOException e) {
+      ring.fail(e);
+    } catch (InterruptedException e) {
+      ring.close();
+    }
+  }
+
+  private boolean output(AudioFormat format, BlockingQueue<byte[]> pcm) {
+    int bytesPerSecond = (int) format.getFrameRate() * format.getFrameSize();
+    int preRollBytes = (int) ((long) bytesPerSecond * preRollMs / 1000);
+    try {
+      SourceDataLine line = AudioSystem.getSourceDataLine(format);
+      try {
+        // Writes block once the line's buffer is full, so it must hold the pre-roll with room spare
+        line.open(format, Math.max(preRollBytes * 2, bytesPerSecond / 2));
+        boolean gainControl = applyVolume(line);
+        activeLine = line;
+        int written = 0;
+        boolean started = false;
+        byte[] frame;
+        while (!stopped && (frame = pcm.take()) != END_OF_AUDIO) {
+          if (!gainControl && volume < 1.0) {
+            scale(frame, volume);
+          }
+          line.write(frame, 0, frame.length);
+          written += frame.length;
+          // Writes fill the line's buffer without playing it until the pre-roll is in place
+          if (!started && written >= preRollBytes) {
+            started = start(line);
+          }
+        }
+        if (stopped) {
+          return false;
+        }
+        if (!started) {
+          start(line);
+        }
+        line.drain();
+        return true;
+      } finally {
+        activeLine = null;
+        line.close();
+      }
+    } catch (LineUnavailableException | IllegalArgumentException e) {
+      e.printStackTrace();
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private boolean start(SourceDataLine line) {
+    line.start();
+    if (onStarted != null) {
+      onStarted.run();
+    }
+    return true;
+  }
+
+  // Uses the line's gain control when it has one; returns false if samples must be scaled instead
+  private boolean applyVolume(SourceDataLine line) {
+    if (!line.isControlSupported(FloatControl.Type.MASTER_GAIN)) {
+      return false;
+    }
+    FloatControl gain = (FloatControl) line.getControl(FloatControl.Type.MASTER_GAIN);
+    double decibels = volume <= 0 ? gain.getMinimum() : 20 * Math.log10(volume);
+    gain.setValue((float) Math.max(gain.getMinimum(), Math.min(gain.getMaximum(), decibels)));
+    return true;
+  }
+
+  private static void scale(byte[] frame, double volume) {
+    for (int i = 0; i + 1 < frame.length; i += 2) {
+      int sample = (short) ((frame[i] & 0xFF) | (frame[i + 1] << 8));
+      sample = (int) (sample * volume);
+      frame[i] = (byte) sample;
+      frame[i + 1] = (byte) (sample >> 8);
+    }
+  }
+
+  private static void endOutput(BlockingQueue<byte[]> pcm, Future<Boolean> output) {
+    boolean interrupted = Thread.interrupted();
+    try {
+      while (!output.isDone()) {
+        try {
+          if (pcm.offer(END_OF_AUDIO, 100, TimeUnit.MILLISECONDS)) {
+            return;
+          }
+        } catch (InterruptedException e) {
+          // Still hand over the end marker, otherwise the output stage waits forever
+          interrupted = true;
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static byte[] toBytes(SampleBuffer samples) {
+    short[] buffer = samples.getBuffer();
+    int length = samples.getBufferLength();
+    byte[] bytes = new byte[length * 2];
+    for (int i = 0; i < length; i++) {
+      // 16-bit little-endian PCM
+      bytes[i * 2] = (byte) buffer[i];
+      bytes[i * 2 + 1] = (byte) (buffer[i] >> 8);
+    }
+    return bytes;
+  }
+}
@@ -1,22 +1,49 @@
 package nz.ac.auckland.se206.speech;
 
-import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URL;
-import javafx.concurrent.Task;
-import javazoom.jl.decoder.JavaLayerException;
-import javazoom.jl.player.Player;
+import java.net.URI;
+import java.net.URLConnection;
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import nz.ac.auckland.apiproxy.config.ApiProxyConfig;
 import nz.ac.auckland.apiproxy.exceptions.ApiProxyException;
 import nz.ac.auckland.apiproxy.tts.TextToSpeechRequest;
 import nz.ac.auckland.apiproxy.tts.TextToSpeechRequest.Provider;
 import nz.ac.auckland.apiproxy.tts.TextToSpeechRequest.Voice;
 import nz.ac.auckland.apiproxy.tts.TextToSpeechResult;
+import nz.ac.auckland.se206.audio.AudioEngine;
+import nz.ac.auckland.se206.audio.AudioEngine.Priority;
+import nz.ac.auckland.se206.audio.StreamClip;
+import nz.ac.auckland.se206.concurrent.TaskRuntime;
 
 /** A utility class for converting text to speech using the specified API proxy. */
 public class TextToSpeech {
 
+  private static final Provider PROVIDER = Provider.GOOGLE;
+  private static final Voice VOICE = Voice.GOOGLE_EN_US_STANDARD_H;
+  private static final int AUDIO_TIMEOUT_MS = 10000;
+  // Sentences shorter than this are sent together with the next one to save round trips
+  private static final int MIN_CHUNK_CHARS = 40;
+
+  // Synthesis the player is waiting for; background prefetching holds off while this is non-zero.
+  // A lock rather than a monitor, so the prefetcher's virtual thread doesn't pin its carrier
+  private static final ReentrantLock FOREGROUND_LOCK = new ReentrantLock();
+  private static final Condition FOREGROUND_IDLE = FOREGROUND_LOCK.newCondition();
+  private static int foregroundRequests = 0;
+
+  // Bounds how many sentence requests can be in flight at once; the rest wait on their own
+  // virtual threads, which costs nothing while they wait
+  private static final Semaphore SYNTHESIS_PERMITS = new Semaphore(3);
+
   /**
    * Converts the given text to speech and plays the audio.
    *
@@ -28,38 +55,205 @@ public class TextToSpeech {
       throw new IllegalArgumentException("Text should not be null or empty");
     }
 
-    Task<Void> backgroundTask =
-        new Task<>() {
-          @Override
-          protected Void call() {
-            try {
-              ApiProxyConfig config = ApiProxyConfig.readConfig();
-              Provider provider = Provider.GOOGLE;
-              Voice voice = Voice.GOOGLE_EN_US_STANDARD_H;
-
-              TextToSpeechRequest ttsRequest = new TextToSpeechRequest(config);
-              ttsRequest.setText(text).setProvider(provider).setVoice(voice);
-
-              TextToSpeechResult ttsResult = ttsRequest.execute();
-              String audioUrl = ttsResult.getAudioUrl();
-
-              try (InputStream inputStream =
-                  new BufferedInputStream(new URL(audioUrl).openStream())) {
-                Player player = new Player(inputStream);
-                player.play();
-              } catch (JavaLayerException | IOException e) {
+    TaskRuntime.getInstance()
+        .runIo(
+            "tts-speak",
+            () -> {
+              TtsAudioCache cache = TtsAudioCache.getInstance();
+              String key = TtsAudioCache.keyFor(PROVIDER, VOICE, text);
+
+              // Lines spoken before are played straight from disk
+              byte[] cached = cache.get(key);
+              if (cached != null) {
+                AudioEngine.getInstance()
+                    .play(new StreamClip(() -> new ByteArrayInputStream(cached)), Priority.NORMAL);
+                return;
+              }
+
+              try {
+                // Synthesis happens here so other clips keep playing meanwhile; once queued,
+                // playback starts as soon as the first frames arrive and the clip is cached when
+                // downloaded
+                String audioUrl = requestAudioUrl(text, true);
+                ProgressivePlayer player =
+                    new ProgressivePlayer().setOnDownloaded(audio -> cache.put(key, audio));
+                AudioEngine.getInstance()
+                    .play(new StreamClip(() -> openAudio(audioUrl), player), Priority.NORMAL);
+              } catch (ApiProxyException e) {
                 e.printStackTrace();
               }
+            });
+  }
+
+  /**
+   * Speaks a long text sentence by sentence. All sentences are synthesized concurrently (a few at a
+   * time) and played strictly in order, so the first sentence plays while the rest are still being
+   * synthesized. A sentence that fails to synthesize is skipped.
+   *
+   * @param text the text to be converted to speech
+   * @throws IllegalArgumentException if the text is null or empty
+   */
+  public static void speakInSentences(String text) {
+    if (text == null || text.isEmpty()) {
+      throw new IllegalArgumentException("Text should not be null or empty");
+    }
+
+    // Dispatch every chunk up front; the permits bound how many run at once
+    List<CompletableFuture<byte[]>> clips = new ArrayList<>();
+    for (String chunk : splitSentences(text)) {
+      clips.add(
+          TaskRuntime.getInstance()
+              .submitIo("tts-synthesize", () -> synthesizeWithPermit(chunk))
+              .getCompletion());
+    }
+
+    // Each chunk is queued once its audio is ready, so the engine never waits on synthesis, and
+    // only after the chunk before it, so the chunks still play in order
+    AudioEngine engine = AudioEngine.getInstance();
+    CompletableFuture<Void> queued = CompletableFuture.completedFuture(null);
+    for (CompletableFuture<byte[]> clip : clips) {
+      queued =
+          queued.thenCombine(
+              clip,
+              (ignored, audio) -> {
+                engine.play(new StreamClip(() -> new ByteArrayInputStream(audio)), Priority.NORMAL);
+                return null;
+              });
+      // A chunk that failed to synthesize is skipped; the ones after it still play
+      queued =
+          queued.exceptionally(
+              e -> {
+                e.printStackTrace();
+                return null;
+              });
+    }
+  }
+
+  /**
+   * Splits text into sentence chunks for synthesis, merging very short sentences into the next.
+   *
+   * @param text the text to split
+   * @return the chunks in speaking order
+   */
+  static List<String> splitSentences(String text) {
+    List<String> chunks = new ArrayList<>();
+    BreakIterator sentences = BreakIterator.getSentenceInstance(Locale.ENGLISH);
+    sentences.setText(text);
+
+    StringBuilder chunk = new StringBuilder();
+    int start = sentences.first();
+    for (int end = sentences.next();
+        end != BreakIterator.DONE;
+        start = end, end = sentences.next()) {
+      chunk.append(text, start, end);
+      if (chunk.toString().trim().length() >= MIN_CHUNK_CHARS) {
+        chunks.add(chunk.toString().trim());
+        chunk.setLength(0);
+      }
+    }
+    String rest = chunk.toString().trim();
+    if (!rest.isEmpty()) {
+      chunks.add(rest);
+    }
+    return chunks;
+  }
+
+  /**
+   * Synthesizes a line into the cache ahead of time, unless it is already there. Blocks the calling
+   * thread.
+   *
+   * @param text the line that will be spoken later
+   * @throws CompletionException if the line could not be synthesized
+   */
+  static void prefetch(String text) {
+    if (!TtsAudioCache.getInstance().contains(TtsAudioCache.keyFor(PROVIDER, VOICE, text))) {
+      synthesize(text, false);
+    }
+  }
+
+  /**
+   * Waits until no synthesis the player is waiting for is in progress.
+   *
+   * @throws InterruptedException if interrupted while waiting
+   */
+  static void awaitForegroundIdle() throws InterruptedException {
+    FOREGROUND_LOCK.lock();
+    try {
+      while (foregroundRequests > 0) {
+        FOREGROUND_IDLE.await();
+      }
+    } finally {
+      FOREGROUND_LOCK.unlock();
+    }
+  }
 
-            } catch (ApiProxyException e) {
-              e.printStackTrace();
-            }
-            return null;
-          }
-        };
+  private static byte[] synthesizeWithPermit(String text) throws InterruptedException {
+    SYNTHESIS_PERMITS.acquire();
+    try {
+      return synthesize(text, true);
+    } finally {
+      SYNTHESIS_PERMITS.release();
+    }
+  }
+
+  // Returns the complete clip for a piece of text, from the cache or from the proxy
+  private static byte[] synthesize(String text, boolean foreground) {
+    TtsAudioCache cache = TtsAudioCache.getInstance();
+    String key = TtsAudioCache.keyFor(PROVIDER, VOICE, text);
+    byte[] audio = cache.get(key);
+    if (audio != null) {
+      return audio;
+    }
+
+    try (InputStream in = openAudio(requestAudioUrl(text, foreground))) {
+      audio = in.readAllBytes();
+    } catch (ApiProxyException | IOException e) {
+      throw new CompletionException(e);
+    }
+    cache.put(key, audio);
+    return audio;
+  }
 
-    Thread backgroundThread = new Thread(backgroundTask);
-    backgroundThread.setDaemon(true); // Ensure the thread does not prevent JVM shutdown
-    backgroundThread.start();
+  private static String requestAudioUrl(String text, boolean foreground) throws ApiProxyException {
+    if (foreground) {
+      FOREGROUND_LOCK.lock();
+      try {
+        foregroundRequests++;
+      } finally {
+        FOREGROUND_LOCK.unlock();
+      }
+    }
+    try {
+      ApiProxyConfig config = ApiProxyConfig.readConfig();
+
+      TextToSpeechRequest ttsRequest = new TextToSpeechRequest(config);
+      ttsRequest.setText(text).setProvider(PROVIDER).setVoice(VOICE);
+
+      TextToSpeechResult ttsResult = ttsRequest.execute();
+      return ttsResult.getAudioUrl();
+    } finally {
+      if (foreground) {
+        FOREGROUND_LOCK.lock();
+        try {
+          foregroundRequests--;
+          FOREGROUND_IDLE.signalAll();
+        } finally {
+          FOREGROUND_LOCK.unlock();
+        }
+      }
+    }
+  }
+
+  private static InputStream openAudio(String audioUrl) throws IOException {
+    URLConnection connection;
+    try {
+      connection = URI.create(audioUrl).toURL().openConnection();
+    } catch (IllegalArgumentException e) {
+      // A malformed URL from the proxy fails like any other unreadable clip
+      throw new IOException("Invalid audio URL: " + audioUrl, e);
+    }
+    connection.setConnectTimeout(AUDIO_TIMEOUT_MS);
+    connection.setReadTimeout(AUDIO_TIMEOUT_MS);
+    return connection.getInputStream();
   }
 }
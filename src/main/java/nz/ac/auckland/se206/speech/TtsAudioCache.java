@@ -0,0 +1,236 @@
+package nz.ac.auckland.se206.speech;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import nz.ac.auckland.apiproxy.tts.TextToSpeechRequest.Provider;
+import nz.ac.auckland.apiproxy.tts.TextToSpeechRequest.Voice;
+
+/**
+ * Keeps synthesized speech on disk so that a line spoken before is played again without calling the
+ * TTS proxy. Clips are stored by a hash of the provider, voice and text, and the least recently
+ * played clips are removed once the cache grows past its size limit.
+ */
+public class TtsAudioCache {
+
+  private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+  private static final String EXTENSION = ".mp3";
+
+  private static TtsAudioCache instance;
+
+  /**
+   * Returns the shared cache, stored under the user's home directory.
+   *
+   * @return the cache instance
+   */
+  public static synchronized TtsAudioCache getInstance() {
+    if (instance == null) {
+      Path directory = Paths.get(System.getProperty("user.home"), ".trial-ai", "tts-cache");
+      instance = new TtsAudioCache(directory, DEFAULT_MAX_BYTES);
+    }
+    return instance;
+  }
+
+  private final Path directory;
+  private final long maxBytes;
+
+  // Clip sizes in least to most recently used order; access order keeps the LRU at the head
+  private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(64, 0.75f, true);
+  private long totalBytes = 0;
+  private boolean loaded = false;
+
+  /**
+   * Creates a cache in the given directory.
+   *
+   * @param directory where clips are stored, created on first use
+   * @param maxBytes the total size the cache is trimmed back to
+   */
+  public TtsAudioCache(Path directory, long maxBytes) {
+    if (maxBytes < 1) {
+      throw new IllegalArgumentException("Cache size must be at least 1 byte, but was " + maxBytes);
+    }
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Returns the cache key for a clip.
+   *
+   * @param provider the TTS provider
+   * @param voice the voice the text is spoken in
+   * @param text the spoken text
+   * @return a hex SHA-256 digest identifying the clip
+   */
+  public static String keyFor(Provider provider, Voice voice, String text) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      // A separator that cannot occur in the codes keeps ("ab", "c") and ("a", "bc") apart
+      digest.update(provider.getProviderCode().getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(voice.getVoiceCode().getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(text.getBytes(StandardCharsets.UTF_8));
+
+      StringBuilder hex = new StringBuilder(64);
+      for (byte b : digest.digest()) {
+        hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Returns whether a clip is cached, without reading it.
+   *
+   * @param key the clip key from {@link #keyFor}
+   * @return true if the clip is stored
+   */
+  public synchronized boolean contains(String key) {
+    load();
+    return entries.containsKey(key);
+  }
+
+  /**
+   * Returns the stored audio for a clip, or null if it has not been cached.
+   *
+   * @param key the clip key from {@link #keyFor}
+   * @return the MP3 bytes, or null
+   */
+  public byte[] get(String key) {
+    Path file;
+    synchronized (this) {
+      load();
+      if (entries.get(key) == null) {
+        return null;
+      }
+      file = fileFor(key);
+    }
+    try {
+      byte[] audio = Files.readAllBytes(file);
+      // Recorded on disk as well so the usage order survives a restart
+      file.toFile().setLastModified(System.currentTimeMillis());
+      return audio;
+    } catch (IOException e) {
+      // Removed behind our back; forget it and let the caller synthesize it again
+      synchronized (this) {
+        Long size = entries.remove(key);
+        if (size != null) {
+          totalBytes -= size;
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Stores the audio for a clip. The file is written under a temporary name and renamed into place,
+   * so a crash or a concurrent reader never sees a partly written clip.
+   *
+   * @param key the clip key from {@link #keyFor}
+   * @param audio the complete MP3 bytes
+   */
+  public void put(String key, byte[] audio) {
+    if (audio.length > maxBytes) {
+      return;
+    }
+    try {
+      synchronized (this) {
+        load();
+      }
+      Files.createDirectories(directory);
+      Path temp = Files.createTempFile(directory, key, ".tmp");
+      try {
+        Files.write(temp, audio);
+        try {
+          Files.move(
+              temp,
+              fileFor(key),
+              StandardCopyOption.ATOMIC_MOVE,
+              StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(temp, fileFor(key), StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+
+      synchronized (this) {
+        Long previous = entries.put(key, (long) audio.length);
+        totalBytes += audio.length - (previous == null ? 0 : previous);
+        evict();
+      }
+    } catch (IOException e) {
+      // Caching is best effort; the clip has already been played
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Returns the total size of the cached clips.
+   *
+   * @return the size in bytes
+   */
+  public synchronized long getTotalBytes() {
+    load();
+    return totalBytes;
+  }
+
+  private Path fileFor(String key) {
+    return directory.resolve(key + EXTENSION);
+  }
+
+  // Rebuilds the index from the directory the first time the cache is used
+  private void load() {
+    if (loaded) {
+      return;
+    }
+    loaded = true;
+
+    File[] files = directory.toFile().listFiles();
+    if (files == null) {
+      return;
+    }
+    Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+    for (File file : files) {
+      String name = file.getName();
+      if (name.endsWith(".tmp")) {
+        // Left over from a write that never finished
+        file.delete();
+      } else if (name.endsWith(EXTENSION)) {
+        String key = name.substring(0, name.length() - EXTENSION.length());
+        entries.put(key, file.length());
+        totalBytes += file.length();
+      }
+    }
+    evict();
+  }
+
+  private void evict() {
+    Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+    while (totalBytes > maxBytes && iterator.hasNext()) {
+      Map.Entry<String, Long> eldest = iterator.next();
+      try {
+        Files.deleteIfExists(fileFor(eldest.getKey()));
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+      totalBytes -= eldest.getValue();
+      iterator.remove();
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package nz.ac.auckland.se206.speech;
+
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import nz.ac.auckland.se206.concurrent.TaskHandle;
+import nz.ac.auckland.se206.concurrent.TaskRuntime;
+
+/**
+ * Registry of lines that are known to be spoken soon, such as scripted character replies. Declared
+ * lines are synthesized into the {@link TtsAudioCache} one at a time by a background task, which
+ * waits whenever the player is waiting on speech, so the audio is ready by the time the line is
+ * spoken.
+ */
+public class TtsPrefetcher {
+
+  private static TtsPrefetcher instance;
+
+  /**
+   * Returns the shared prefetcher.
+   *
+   * @return the prefetcher
+   */
+  public static synchronized TtsPrefetcher getInstance() {
+    if (instance == null) {
+      instance = new TtsPrefetcher();
+    }
+    return instance;
+  }
+
+  private final Set<String> declared = ConcurrentHashMap.newKeySet();
+  private final BlockingQueue<String> pending = new LinkedBlockingQueue<>();
+  private TaskHandle<Void> worker = null;
+
+  private TtsPrefetcher() {}
+
+  /**
+   * Declares lines that will be spoken later. Lines already declared are ignored.
+   *
+   * @param lines the exact text that will be passed to {@link TextToSpeech}
+   */
+  public void declare(String... lines) {
+    for (String line : lines) {
+      if (line != null && !line.isBlank() && declared.add(line)) {
+        pending.add(line);
+      }
+    }
+    startWorker();
+  }
+
+  private synchronized void startWorker() {
+    if (worker != null && !worker.isDone()) {
+      return;
+    }
+    // Prefetching waits on the proxy, not a core, and holds off for foreground speech itself, so
+    // a thread priority would add nothing
+    worker = TaskRuntime.getInstance().runIo("tts-prefetch", this::run);
+  }
+
+  private void run() {
+    while (true) {
+      String line;
+      try {
+        line = pending.take();
+        // Never compete with speech the player is waiting for
+        TextToSpeech.awaitForegroundIdle();
+      } catch (InterruptedException e) {
+        return;
+      }
+
+      try {
+        TextToSpeech.prefetch(line);
+        System.out.println("*** TTS prefetched: " + line);
+      } catch (CompletionException e) {
+        // Allow the line to be declared again; speaking it will still work, just not instantly
+        declared.remove(line);
+        e.getCause().printStackTrace();
+      }
+    }
+  }
+}
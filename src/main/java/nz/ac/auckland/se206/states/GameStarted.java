@@ -23,6 +23,16 @@ public class GameStarted implements GameState {
     this.context = context;
   }
 
+  /**
+   * Returns the prompt spoken when the player is asked to make a guess.
+   *
+   * @param profession the profession the player has to find
+   * @return the line to speak
+   */
+  public static String getGuessPrompt(String profession) {
+    return "Make a guess, click on the " + profession;
+  }
+
   /**
    * Handles the event when a rectangle is clicked. Depending on the clicked rectangle, it either
    * provides an introduction or transitions to the chat view.
@@ -55,7 +65,7 @@ public class GameStarted implements GameState {
    */
   @Override
   public void handleGuessClick() throws IOException {
-    TextToSpeech.speak("Make a guess, click on the " + context.getProfessionToGuess());
+    TextToSpeech.speak(getGuessPrompt(context.getProfessionToGuess()));
     context.setState(context.getGuessingState());
   }
 }
@@ -2,22 +2,21 @@ package nz.ac.auckland.se206.states;
 
 import java.util.HashMap;
 import java.util.Map;
+import nz.ac.auckland.se206.GameSession;
+import nz.ac.auckland.se206.SessionJournal;
 
 public class GameStateManager {
-  private static GameStateManager instance;
 
+  // Each game has its own state, so a restart needs no clearing
   public static GameStateManager getInstance() {
-    if (instance == null) {
-      instance = new GameStateManager();
-    }
-    return instance;
+    return GameSession.getCurrent().getGameState();
   }
 
   private Map<String, Boolean> charactersTalkedTo;
   private Map<String, Boolean> gameFlags;
 
-  // Manage game state and character interactions
-  private GameStateManager() {
+  // Manage game state and character interactions; created with each game session
+  public GameStateManager() {
     charactersTalkedTo = new HashMap<>();
     gameFlags = new HashMap<>();
     initializeCharacters();
@@ -33,6 +32,7 @@ public class GameStateManager {
   // Mark a character as talked to
   public void setCharacterTalkedTo(String characterName) {
     charactersTalkedTo.put(characterName, true);
+    SessionJournal.getInstance().recordTalkedTo(characterName);
   }
 
   // Check if all characters have been talked to
@@ -54,6 +54,7 @@ public class GameStateManager {
 
   public void setInteractionFlag(String charInteract, boolean value) {
     gameFlags.put(charInteract, value);
+    SessionJournal.getInstance().recordFlag(charInteract, value);
   }
 
   public boolean getInteractionFlag(String charInteract) {
@@ -63,6 +64,7 @@ public class GameStateManager {
   // Generic flag system for future use
   public void setFlag(String flagName, boolean value) {
     gameFlags.put(flagName, value);
+    SessionJournal.getInstance().recordFlag(flagName, value);
   }
 
   public boolean getFlag(String flagName) {
@@ -4,10 +4,11 @@ import java.util.ArrayList;
 import java.util.List;
 import javafx.application.Platform;
 import javafx.scene.image.Image;
+import nz.ac.auckland.se206.concurrent.TaskRuntime;
 
 /**
- * Utility class for loading character-specific flashback images and memory images in background
- * threads to avoid UI blocking.
+ * Utility class for loading character-specific flashback images and memory images on the shared
+ * {@link TaskRuntime} pool to avoid UI blocking.
  */
 public class ImageLoaderUtil {
 
@@ -20,7 +21,9 @@ public class ImageLoaderUtil {
    */
   public static void loadCharacterImages(
       String characterName, List<Image> images, Runnable onLoaded) {
-    new Thread(
+    TaskRuntime.getInstance()
+        .runCpu(
+            "load-images " + characterName,
             () -> {
               List<Image> loadedImages = new ArrayList<>();
 
@@ -47,8 +50,7 @@ public class ImageLoaderUtil {
                       onLoaded.run();
                     }
                   });
-            })
-        .start();
+            });
   }
 
   /**
@@ -87,7 +89,9 @@ public class ImageLoaderUtil {
    * @param onLoaded callback to execute when loading is complete (can be null)
    */
   public static void loadHumanWitnessImages(List<Image> images, Runnable onLoaded) {
-    new Thread(
+    TaskRuntime.getInstance()
+        .runCpu(
+            "load-images human",
             () -> {
               List<Image> loadedImages = new ArrayList<>();
 
@@ -116,8 +120,7 @@ public class ImageLoaderUtil {
                       onLoaded.run();
                     }
                   });
-            })
-        .start();
+            });
   }
 
   /**
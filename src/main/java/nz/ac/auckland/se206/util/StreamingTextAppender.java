@@ -0,0 +1,180 @@
+package nz.ac.auckland.se206.util;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import javafx.application.Platform;
+import javafx.scene.control.TextArea;
+
+/**
+ * Appends a streamed chat reply to a text area as tokens arrive. Tokens are buffered and flushed in
+ * batches so that at most one {@link Platform#runLater(Runnable)} is pending at a time, no matter
+ * how quickly deltas arrive from the network.
+ */
+public class StreamingTextAppender {
+
+  private final TextArea textArea;
+  private final String header;
+  private final String[] stripPrefixes;
+  private final int longestPrefix;
+
+  private final StringBuilder pending = new StringBuilder();
+  private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+  private boolean prefixResolved = false;
+  private boolean started = false;
+  private boolean finished = false;
+  private boolean discarded = false;
+
+  /**
+   * Creates an appender for a single reply.
+   *
+   * @param textArea the text area to append to (may be null, in which case nothing is shown)
+   * @param header the label written before the first token (e.g. "Aegis I: ")
+   * @param stripPrefixes prefixes the model may echo at the start of its reply, removed if present
+   */
+  public StreamingTextAppender(TextArea textArea, String header, String... stripPrefixes) {
+    this.textArea = textArea;
+    this.header = header;
+    this.stripPrefixes = stripPrefixes;
+    int longest = 0;
+    for (String prefix : stripPrefixes) {
+      longest = Math.max(longest, prefix.length());
+    }
+    this.longestPrefix = longest;
+  }
+
+  /**
+   * Queues a token for display. Safe to call from any thread.
+   *
+   * @param token the next piece of the reply
+   */
+  public void append(String token) {
+    synchronized (pending) {
+      if (finished) {
+        return;
+      }
+      pending.append(token);
+      // Hold back the start of the reply until we know whether it echoes the speaker's name
+      if (!prefixResolved && !resolvePrefix(false)) {
+        return;
+      }
+    }
+    scheduleFlush();
+  }
+
+  /** Marks the reply as complete, flushing any held-back text and the trailing blank line. */
+  public void finish() {
+    synchronized (pending) {
+      if (finished) {
+        return;
+      }
+      if (!prefixResolved) {
+        resolvePrefix(true);
+      }
+      if (started || pending.length() > 0) {
+        pending.append("\n\n");
+      }
+      finished = true;
+    }
+    scheduleFlush();
+  }
+
+  /**
+   * Completes a reply that failed. If none of it has reached the screen yet, the given line is
+   * shown in its place; otherwise the partial reply is left as it is.
+   *
+   * @param fallbackText the line to show instead of the missing reply
+   * @return true if the fallback line was shown
+   */
+  public boolean finishWithFallback(String fallbackText) {
+    boolean usedFallback = false;
+    synchronized (pending) {
+      if (finished) {
+        return false;
+      }
+      if (!started) {
+        // Anything still held back is an incomplete name prefix or unflushed text; replace it
+        pending.setLength(0);
+        pending.append(fallbackText);
+        prefixResolved = true;
+        usedFallback = true;
+      }
+    }
+    finish();
+    return usedFallback;
+  }
+
+  /**
+   * Drops the reply, e.g. when the game it belongs to has been restarted. Text not yet shown is
+   * thrown away, and later appends, flushes and finishes do nothing, so a reply still streaming
+   * can't write into a chat area that has been cleared for the new game.
+   */
+  public void discard() {
+    synchronized (pending) {
+      discarded = true;
+      finished = true;
+      pending.setLength(0);
+    }
+  }
+
+  /**
+   * Returns whether any text of the reply has been queued for display.
+   *
+   * @return true once the first visible token has been released
+   */
+  public boolean hasStarted() {
+    synchronized (pending) {
+      return started || (prefixResolved && pending.length() > 0);
+    }
+  }
+
+  // Decides whether the buffered start of the reply begins with one of the strip prefixes
+  private boolean resolvePrefix(boolean force) {
+    String text = pending.toString();
+    if (!force && text.length() < longestPrefix) {
+      boolean couldStillMatch = false;
+      for (String prefix : stripPrefixes) {
+        if (prefix.startsWith(text)) {
+          couldStillMatch = true;
+          break;
+        }
+      }
+      if (couldStillMatch) {
+        return false;
+      }
+    }
+
+    for (String prefix : stripPrefixes) {
+      if (text.startsWith(prefix)) {
+        pending.delete(0, prefix.length());
+        break;
+      }
+    }
+    prefixResolved = true;
+    return true;
+  }
+
+  private void scheduleFlush() {
+    if (textArea == null) {
+      return;
+    }
+    if (flushScheduled.compareAndSet(false, true)) {
+      Platform.runLater(this::flush);
+    }
+  }
+
+  private void flush() {
+    String text;
+    synchronized (pending) {
+      flushScheduled.set(false);
+      if (discarded || !prefixResolved || pending.length() == 0) {
+        return;
+      }
+      text = pending.toString();
+      pending.setLength(0);
+      if (!started) {
+        text = header + text;
+        started = true;
+      }
+    }
+    textArea.appendText(text);
+  }
+}
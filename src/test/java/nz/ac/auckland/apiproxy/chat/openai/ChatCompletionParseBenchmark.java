@@ -0,0 +1,116 @@
+package nz.ac.auckland.apiproxy.chat.openai;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the streaming response parser with the previous map-based decode on recorded proxy
+ * responses. Run the {@link #main} method against the test classpath after {@code mvn
+ * test-compile}, e.g. from the IDE.
+ *
+ * <p>The GC profiler reports allocation per operation ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatCompletionParseBenchmark {
+
+  @Param({"chat_short.json", "chat_long.json"})
+  public String response;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private byte[] body;
+
+  @Setup
+  public void loadResponse() throws IOException {
+    try (InputStream in = getClass().getResourceAsStream("/responses/" + response)) {
+      body = in.readAllBytes();
+    }
+  }
+
+  @Benchmark
+  public ChatCompletionResult streamingParser() throws Exception {
+    return ChatCompletionResultParser.parseResponse(body);
+  }
+
+  @Benchmark
+  public ChatCompletionResult mapBased() throws Exception {
+    MapEnvelope envelope = mapper.readValue(body, MapEnvelope.class);
+    return decodeMap(envelope.chatCompletion);
+  }
+
+  // Envelope and walk as previously done by ResponseChatCompletionViaProxy and
+  // ChatCompletionResult.parse
+  static class MapEnvelope {
+    @JsonProperty("success")
+    public Boolean success;
+
+    @JsonProperty("code")
+    public Integer code;
+
+    @JsonProperty("message")
+    public String message;
+
+    @JsonProperty("chat_completion")
+    public Map<String, Object> chatCompletion;
+  }
+
+  private static ChatCompletionResult decodeMap(Map<String, Object> chatCompletion) {
+    String model = chatCompletion.get("model").toString();
+    long created =
+        chatCompletion.get("created") == null
+            ? 0
+            : Long.parseLong(chatCompletion.get("created").toString());
+    Map<?, ?> usage = (Map<?, ?>) chatCompletion.get("usage");
+    int promptTokens = Integer.parseInt(usage.get("prompt_tokens").toString());
+    int completionTokens = Integer.parseInt(usage.get("completion_tokens").toString());
+    int totalTokens = Integer.parseInt(usage.get("total_tokens").toString());
+
+    List<Choice> choices = new ArrayList<>();
+    List<?> choicesJson = (List<?>) chatCompletion.get("choices");
+    for (int c = 0; c < choicesJson.size(); c++) {
+      Map<?, ?> choiceJson = (Map<?, ?>) choicesJson.get(c);
+      Map<?, ?> messageJson = (Map<?, ?>) choiceJson.get("message");
+      String role = messageJson.get("role").toString();
+      String content = messageJson.get("content").toString();
+      int index = Integer.parseInt(choiceJson.get("index").toString());
+      String finishReason = choiceJson.get("finish_reason").toString();
+      choices.add(new Choice(new ChatMessage(role, content), index, finishReason));
+    }
+    return new ChatCompletionResult(
+        model, created, promptTokens, completionTokens, totalTokens, choices);
+  }
+
+  public static void main(String[] args) throws Exception {
+    Options options =
+        new OptionsBuilder()
+            .include(ChatCompletionParseBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+    new Runner(options).run();
+  }
+}
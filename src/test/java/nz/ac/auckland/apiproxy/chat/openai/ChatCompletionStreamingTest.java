@@ -0,0 +1,79 @@
+package nz.ac.auckland.apiproxy.chat.openai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import nz.ac.auckland.apiproxy.config.ApiProxyConfig;
+import org.junit.jupiter.api.Test;
+
+public class ChatCompletionStreamingTest {
+
+  private static final String EXPECTED = "Aegis I: I acted within my directives.";
+
+  private ChatCompletionRequest createRequest(SseStubServer server) {
+    return new ChatCompletionRequest(new ApiProxyConfig("test-key", "test@example.com"))
+        .setEndpoint(server.getUrl())
+        .addMessage("system", "You are Aegis I.")
+        .addMessage("user", "Why did you do it?");
+  }
+
+  @Test
+  public void testStreamedDeltasArriveBeforeCompletion() throws Exception {
+    try (SseStubServer server =
+        new SseStubServer("/sse/chat_stream.txt", "text/event-stream", 50)) {
+      List<Long> deltaTimes = new CopyOnWriteArrayList<>();
+      StringBuilder streamed = new StringBuilder();
+
+      long start = System.nanoTime();
+      ChatCompletionResult result =
+          createRequest(server)
+              .executeStreaming(
+                  delta -> {
+                    deltaTimes.add(System.nanoTime());
+                    synchronized (streamed) {
+                      streamed.append(delta);
+                    }
+                  },
+                  Duration.ofSeconds(10))
+              .get(10, TimeUnit.SECONDS);
+      long end = System.nanoTime();
+
+      assertTrue(server.getLastRequestBody().contains("\"stream\":true"));
+      assertEquals(EXPECTED, streamed.toString());
+      assertEquals(EXPECTED, result.getChoice(0).getChatMessage().getContent());
+      assertEquals("assistant", result.getChoice(0).getChatMessage().getRole());
+      assertEquals("stop", result.getChoice(0).getFinishReason());
+      assertEquals("gpt-4.1-mini", result.getModel());
+      assertEquals(51, result.getUsageTotalTokens());
+
+      // The first token must be visible well before the full reply has been received
+      assertEquals(5, deltaTimes.size());
+      long firstTokenMs = TimeUnit.NANOSECONDS.toMillis(deltaTimes.get(0) - start);
+      long totalMs = TimeUnit.NANOSECONDS.toMillis(end - start);
+      assertTrue(
+          firstTokenMs < totalMs - 200,
+          "first token after " + firstTokenMs + " ms of " + totalMs + " ms in total");
+    }
+  }
+
+  @Test
+  public void testPlainJsonResponseIsDeliveredWhole() throws Exception {
+    try (SseStubServer server = new SseStubServer("/sse/chat_plain.json", "application/json", 0)) {
+      StringBuilder streamed = new StringBuilder();
+
+      ChatCompletionResult result =
+          createRequest(server)
+              .executeStreaming(streamed::append, Duration.ofSeconds(10))
+              .get(10, TimeUnit.SECONDS);
+
+      assertEquals("I acted within my directives.", streamed.toString());
+      assertEquals(
+          "I acted within my directives.", result.getChoice(0).getChatMessage().getContent());
+      assertEquals(47, result.getUsageTotalTokens());
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package nz.ac.auckland.apiproxy.chat.openai;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import nz.ac.auckland.apiproxy.config.ApiProxyConfig;
+import nz.ac.auckland.apiproxy.service.JsonSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Cost of serializing the request body for one more turn at a given conversation length, with the
+ * cached append-only message buffer versus re-encoding every message. Run the {@link #main} method
+ * against the test classpath after {@code mvn test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestSerializationBenchmark {
+
+  @Param({"1", "50", "100", "200"})
+  public int turns;
+
+  private ChatCompletionRequest request;
+  private List<ChatMessage> messages;
+
+  @Setup
+  public void buildConversation() {
+    request =
+        new ChatCompletionRequest(new ApiProxyConfig("benchmark-key", "benchmark@example.com"))
+            .setN(1)
+            .setTemperature(0.2)
+            .setTopP(0.5)
+            .setMaxTokens(100);
+    messages = new ArrayList<>();
+    add(new ChatMessage("system", "You are Aegis I, a cybersecurity AI. ".repeat(20)));
+    for (int turn = 0; turn < turns; turn++) {
+      add(new ChatMessage("user", "Turn " + turn + ": why did you threaten Cassian Thorne?"));
+      add(
+          new ChatMessage(
+              "assistant",
+              "Aegis I: Turn " + turn + ". Mission security comes first; the data was falsified."));
+    }
+  }
+
+  private void add(ChatMessage message) {
+    request.addMessage(message);
+    messages.add(message);
+  }
+
+  @Benchmark
+  public byte[] cachedMessages() throws Exception {
+    return request.buildRequestBody(false);
+  }
+
+  @Benchmark
+  public byte[] reencodeAllMessages() throws Exception {
+    return JsonSupport.encode(this::writeEverything);
+  }
+
+  // Body encoding as done before messages were cached: every message, every turn
+  private void writeEverything(JsonGenerator generator) throws IOException {
+    generator.writeStartObject();
+    generator.writeArrayFieldStart("messages");
+    for (ChatMessage message : messages) {
+      generator.writeStartObject();
+      generator.writeStringField("role", message.getRole());
+      generator.writeStringField("content", message.getContent());
+      generator.writeEndObject();
+    }
+    generator.writeEndArray();
+    generator.writeStringField("access_token", "benchmark-key");
+    generator.writeStringField("email", "benchmark@example.com");
+    generator.writeNumberField("max_tokens", 100);
+    generator.writeNumberField("temperature", 0.2);
+    generator.writeNumberField("top_p", 0.5);
+    generator.writeNumberField("n", 1);
+    generator.writeEndObject();
+  }
+
+  public static void main(String[] args) throws Exception {
+    Options options =
+        new OptionsBuilder()
+            .include(RequestSerializationBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,71 @@
+package nz.ac.auckland.apiproxy.chat.openai;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+/** Local HTTP server that replays a recorded chat completion response from the test resources. */
+public class SseStubServer implements AutoCloseable {
+
+  private final HttpServer server;
+  private final AtomicReference<String> lastRequestBody = new AtomicReference<>();
+
+  public SseStubServer(String resource, String contentType, long delayPerEventMs)
+      throws IOException {
+    byte[] recorded;
+    try (InputStream in = SseStubServer.class.getResourceAsStream(resource)) {
+      if (in == null) {
+        throw new IOException("Missing recorded response: " + resource);
+      }
+      recorded = in.readAllBytes();
+    }
+    String[] events = new String(recorded, StandardCharsets.UTF_8).split("(?<=\n\n)");
+
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext(
+        "/",
+        exchange -> {
+          lastRequestBody.set(
+              new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+          exchange.getResponseHeaders().add("Content-Type", contentType);
+          // Chunked response so each event reaches the client as soon as it is flushed
+          exchange.sendResponseHeaders(200, 0);
+          try (OutputStream out = exchange.getResponseBody()) {
+            for (String event : events) {
+              out.write(event.getBytes(StandardCharsets.UTF_8));
+              out.flush();
+              sleep(delayPerEventMs);
+            }
+          }
+        });
+    server.start();
+  }
+
+  private static void sleep(long millis) {
+    if (millis <= 0) {
+      return;
+    }
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public String getUrl() {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+  }
+
+  public String getLastRequestBody() {
+    return lastRequestBody.get();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+}
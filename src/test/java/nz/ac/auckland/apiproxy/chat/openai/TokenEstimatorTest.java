@@ -0,0 +1,50 @@
+package nz.ac.auckland.apiproxy.chat.openai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import nz.ac.auckland.apiproxy.chat.openai.ChatCompletionRequest.Model;
+import org.junit.jupiter.api.Test;
+
+public class TokenEstimatorTest {
+
+  private final TokenEstimator estimator = TokenEstimator.forModel(Model.GPT_4_1_MINI);
+
+  private int count(String text) {
+    // A scan that stops advancing would hang the caller's conversation, so fail instead
+    return assertTimeoutPreemptively(Duration.ofSeconds(1), () -> estimator.countTokens(text));
+  }
+
+  @Test
+  public void testDigitsAreGroupedInThrees() {
+    assertEquals(1, count("7"));
+    assertEquals(1, count("123"));
+    assertEquals(2, count("1234"));
+  }
+
+  @Test
+  public void testSupplementaryDigitsAreCountedOnce() {
+    // U+1D7CE to U+1D7D1, mathematical bold digits zero to three
+    assertEquals(1, count("𝟎"));
+    assertEquals(2, count("𝟎𝟏𝟐𝟑"));
+    assertEquals(3, count("x = 𝟎"));
+  }
+
+  @Test
+  public void testSupplementaryLettersFormOneWord() {
+    // U+1D400 to U+1D402, mathematical bold capitals A to C
+    assertEquals(1, count("𝐀𝐁𝐂"));
+  }
+
+  @Test
+  public void testEmojiTakesTwoTokens() {
+    assertEquals(2, count("🔎"));
+  }
+
+  @Test
+  public void testSingleSpaceMergesIntoNextWord() {
+    assertEquals(2, count("hello world"));
+    assertEquals(3, count("hello\n\nworld"));
+  }
+}
@@ -0,0 +1,246 @@
+package nz.ac.auckland.apiproxy.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import nz.ac.auckland.apiproxy.exceptions.ApiProxyException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ResiliencePolicyTest {
+
+  // Answers nothing until released, like a proxy that has stopped responding; released at the end
+  // of every test
+  private HttpServer server;
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final CountDownLatch received = new CountDownLatch(1);
+
+  @BeforeEach
+  public void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext(
+        "/",
+        exchange -> {
+          received.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          exchange.sendResponseHeaders(200, -1);
+          exchange.close();
+        });
+    server.start();
+  }
+
+  @AfterEach
+  public void stopServer() {
+    release.countDown();
+    server.stop(0);
+  }
+
+  private String getUrl() {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+  }
+
+  @Test
+  public void testSlowAttemptTimesOut() {
+    ResiliencePolicy policy =
+        new ResiliencePolicy("test").setMaxAttempts(1).setAttemptTimeoutMs(100);
+    CompletableFuture<String> attempt = new CompletableFuture<>();
+
+    ExecutionException e =
+        assertThrows(
+            ExecutionException.class,
+            () -> policy.executeAsync(timeout -> attempt).get(5, TimeUnit.SECONDS));
+
+    assertInstanceOf(ApiProxyException.class, e.getCause());
+    assertInstanceOf(TimeoutException.class, e.getCause().getCause());
+    assertTrue(attempt.isCompletedExceptionally());
+  }
+
+  @Test
+  public void testRetryableFailureIsRetried() throws Exception {
+    ResiliencePolicy policy =
+        new ResiliencePolicy("test").setMaxAttempts(3).setInitialBackoffMs(10);
+    AtomicInteger attempts = new AtomicInteger();
+
+    String result =
+        policy
+            .executeAsync(
+                timeout ->
+                    attempts.incrementAndGet() < 3
+                        ? CompletableFuture.failedFuture(new IOException("connection reset"))
+                        : CompletableFuture.completedFuture("ok"))
+            .get(5, TimeUnit.SECONDS);
+
+    assertEquals("ok", result);
+    assertEquals(3, attempts.get());
+  }
+
+  @Test
+  public void testClientErrorIsNotRetried() {
+    ResiliencePolicy policy =
+        new ResiliencePolicy("test").setMaxAttempts(3).setInitialBackoffMs(10);
+    AtomicInteger attempts = new AtomicInteger();
+
+    ExecutionException e =
+        assertThrows(
+            ExecutionException.class,
+            () ->
+                policy
+                    .executeAsync(
+                        timeout -> {
+                          attempts.incrementAndGet();
+                          return CompletableFuture.failedFuture(
+                              new ApiProxyException("Problem calling API: HTTP 400", 400));
+                        })
+                    .get(5, TimeUnit.SECONDS));
+
+    assertEquals(400, ((ApiProxyException) e.getCause()).getStatusCode());
+    assertEquals(1, attempts.get());
+  }
+
+  @Test
+  public void testHedgeWinsAndSlowAttemptIsCancelled() throws Exception {
+    ResiliencePolicy policy =
+        new ResiliencePolicy("test")
+            .setHedgingEnabled(true)
+            .setHedgeMinDelayMs(0)
+            .setHedgeFallbackDelayMs(50);
+    CompletableFuture<String> slow = new CompletableFuture<>();
+    AtomicInteger attempts = new AtomicInteger();
+
+    String result =
+        policy
+            .executeAsync(
+                timeout ->
+                    attempts.incrementAndGet() == 1
+                        ? slow
+                        : CompletableFuture.completedFuture("hedged"))
+            .get(5, TimeUnit.SECONDS);
+
+    assertEquals("hedged", result);
+    assertEquals(2, attempts.get());
+    assertTrue(slow.isCancelled());
+  }
+
+  @Test
+  public void testPaidRequestsAreNotHedgedByDefault() {
+    assertFalse(ResiliencePolicy.forChat().isHedgingEnabled());
+    assertFalse(ResiliencePolicy.forChatStreaming().isHedgingEnabled());
+    assertFalse(ResiliencePolicy.forTts().isHedgingEnabled());
+  }
+
+  @Test
+  public void testTimedOutBlockingRequestIsAborted() throws Exception {
+    ResiliencePolicy policy =
+        new ResiliencePolicy("test").setMaxAttempts(1).setAttemptTimeoutMs(200);
+    List<HttpPost> sent = new CopyOnWriteArrayList<>();
+
+    long start = System.nanoTime();
+    assertThrows(ApiProxyException.class, () -> policy.execute(track -> post(track, sent)));
+    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    assertTrue(elapsedMs < 2000, "gave up after " + elapsedMs + " ms");
+    assertEquals(1, sent.size());
+    assertReleased(sent.get(0));
+  }
+
+  @Test
+  public void testInterruptedCallerAbortsRequest() throws Exception {
+    ResiliencePolicy policy = new ResiliencePolicy("test").setMaxAttempts(1);
+    List<HttpPost> sent = new CopyOnWriteArrayList<>();
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    Thread caller =
+        new Thread(
+            () -> {
+              try {
+                policy.execute(track -> post(track, sent));
+              } catch (ApiProxyException e) {
+                failure.set(e);
+              }
+            });
+    caller.start();
+    assertTrue(received.await(5, TimeUnit.SECONDS));
+    caller.interrupt();
+    caller.join(5000);
+
+    assertFalse(caller.isAlive());
+    assertInstanceOf(ApiProxyException.class, failure.get());
+    assertReleased(sent.get(0));
+  }
+
+  @Test
+  public void testSuccessfulBlockingRequestIsLeftAlone() throws Exception {
+    release.countDown();
+    ResiliencePolicy policy = new ResiliencePolicy("test").setMaxAttempts(1);
+    List<HttpPost> sent = new CopyOnWriteArrayList<>();
+    AtomicReference<Thread> worker = new AtomicReference<>();
+    AtomicBoolean interrupted = new AtomicBoolean(false);
+
+    Integer status =
+        policy.execute(
+            track -> {
+              worker.set(Thread.currentThread());
+              return post(track, sent);
+            });
+
+    assertEquals(200, status);
+    // The worker finishes settling the attempt after the caller has its result; watch it until it
+    // goes back to waiting for work, so a clean-up run by mistake would have happened by then
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+    while (worker.get().getState() == Thread.State.RUNNABLE && System.nanoTime() < deadline) {
+      interrupted.compareAndSet(false, worker.get().isInterrupted());
+      Thread.onSpinWait();
+    }
+    assertFalse(sent.get(0).isAborted());
+    assertFalse(interrupted.get());
+  }
+
+  private Integer post(Consumer<HttpUriRequest> track, List<HttpPost> sent) throws IOException {
+    HttpPost httpPost = new HttpPost(getUrl());
+    sent.add(httpPost);
+    track.accept(httpPost);
+    try (CloseableHttpResponse response =
+        HttpTransport.getInstance().getClient().execute(httpPost)) {
+      return response.getStatusLine().getStatusCode();
+    }
+  }
+
+  private static void assertReleased(HttpPost httpPost) throws InterruptedException {
+    // The attempt is aborted just after the caller gives up, and hands its connection back as its
+    // thread unwinds
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+    while ((!httpPost.isAborted() || HttpTransport.getInstance().getLeasedConnections() > 0)
+        && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue(httpPost.isAborted());
+    assertEquals(0, HttpTransport.getInstance().getLeasedConnections());
+  }
+}
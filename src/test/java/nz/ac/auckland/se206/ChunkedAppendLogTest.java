@@ -0,0 +1,146 @@
+package nz.ac.auckland.se206;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+public class ChunkedAppendLogTest {
+
+  private static final int WRITERS = 4;
+  private static final int READERS = 4;
+  private static final int ITEMS_PER_WRITER = 20_000;
+
+  /** An item tagged with the writer that appended it and its position in that writer's run. */
+  private static final class Entry {
+    private final int writer;
+    private final int sequence;
+
+    private Entry(int writer, int sequence) {
+      this.writer = writer;
+      this.sequence = sequence;
+    }
+  }
+
+  @Test
+  public void testSnapshotDoesNotChangeAfterAppend() {
+    ChunkedAppendLog<String> log = new ChunkedAppendLog<>();
+    for (int i = 0; i < 100; i++) {
+      log.append("message " + i);
+    }
+    List<String> snapshot = log.snapshot();
+    log.append("later");
+
+    assertEquals(100, snapshot.size());
+    assertEquals("message 99", snapshot.get(99));
+    assertEquals(101, log.snapshot().size());
+    assertThrows(UnsupportedOperationException.class, () -> snapshot.add("more"));
+    assertThrows(IndexOutOfBoundsException.class, () -> snapshot.get(100));
+  }
+
+  @Test
+  public void testConcatReadsBothListsInOrder() {
+    ChunkedAppendLog<String> shared = new ChunkedAppendLog<>();
+    ChunkedAppendLog<String> own = new ChunkedAppendLog<>();
+    shared.append("a");
+    shared.append("b");
+    own.append("c");
+
+    List<String> combined = ChunkedAppendLog.concat(shared.snapshot(), own.snapshot());
+    assertEquals(List.of("a", "b", "c"), new ArrayList<>(combined));
+    assertEquals(List.of("a", "b"), ChunkedAppendLog.concat(shared.snapshot(), List.of()));
+  }
+
+  @Test
+  public void testConcurrentAppendsAndSnapshots() throws Exception {
+    ChunkedAppendLog<Entry> log = new ChunkedAppendLog<>();
+    ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+    AtomicBoolean writing = new AtomicBoolean(true);
+    CountDownLatch start = new CountDownLatch(1);
+
+    List<Thread> writers = new ArrayList<>();
+    for (int w = 0; w < WRITERS; w++) {
+      int writer = w;
+      writers.add(
+          new Thread(
+              () -> {
+                await(start);
+                for (int i = 0; i < ITEMS_PER_WRITER; i++) {
+                  log.append(new Entry(writer, i));
+                }
+              }));
+    }
+
+    List<Thread> readers = new ArrayList<>();
+    for (int r = 0; r < READERS; r++) {
+      readers.add(
+          new Thread(
+              () -> {
+                await(start);
+                int lastSize = 0;
+                try {
+                  while (writing.get()) {
+                    List<Entry> snapshot = log.snapshot();
+                    // The published length only grows
+                    assertTrue(snapshot.size() >= lastSize);
+                    lastSize = snapshot.size();
+                    checkPrefix(snapshot);
+                  }
+                } catch (Throwable e) {
+                  failures.add(e);
+                }
+              }));
+    }
+
+    for (Thread thread : writers) {
+      thread.start();
+    }
+    for (Thread thread : readers) {
+      thread.start();
+    }
+    start.countDown();
+    for (Thread thread : writers) {
+      thread.join();
+    }
+    writing.set(false);
+    for (Thread thread : readers) {
+      thread.join();
+    }
+
+    assertTrue(failures.isEmpty(), () -> "Reader failed: " + failures.peek());
+    List<Entry> all = log.snapshot();
+    assertEquals(WRITERS * ITEMS_PER_WRITER, all.size());
+    int[] counts = checkPrefix(all);
+    for (int count : counts) {
+      assertEquals(ITEMS_PER_WRITER, count);
+    }
+  }
+
+  // Every item in a snapshot is visible, and each writer's items appear once and in order
+  private static int[] checkPrefix(List<Entry> snapshot) {
+    int[] next = new int[WRITERS];
+    for (Entry entry : snapshot) {
+      assertNotNull(entry);
+      assertEquals(next[entry.writer], entry.sequence);
+      next[entry.writer]++;
+    }
+    assertFalse(snapshot.size() > WRITERS * ITEMS_PER_WRITER);
+    return next;
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
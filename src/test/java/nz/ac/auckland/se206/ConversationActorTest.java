@@ -0,0 +1,144 @@
+package nz.ac.auckland.se206;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import nz.ac.auckland.apiproxy.chat.openai.ChatCompletionRequest;
+import nz.ac.auckland.apiproxy.chat.openai.ChatMessage;
+import nz.ac.auckland.apiproxy.config.ApiProxyConfig;
+import org.junit.jupiter.api.Test;
+
+public class ConversationActorTest {
+
+  /** A turn whose reply the test completes, recording the order turns start in. */
+  private static final class HeldTurn implements ConversationActor.Turn {
+    private final String name;
+    private final BlockingQueue<String> started;
+    private final CompletableFuture<ChatMessage> reply = new CompletableFuture<>();
+    private volatile ChatCompletionRequest request;
+
+    private HeldTurn(String name, BlockingQueue<String> started) {
+      this.name = name;
+      this.started = started;
+    }
+
+    @Override
+    public CompletableFuture<ChatMessage> start(ChatCompletionRequest request) {
+      this.request = request;
+      started.add(name);
+      return reply;
+    }
+
+    private void answer() {
+      reply.complete(new ChatMessage("assistant", name));
+    }
+  }
+
+  private final BlockingQueue<String> started = new LinkedBlockingQueue<>();
+  private final ConversationActor actor = new ConversationActor("test");
+
+  private static ChatCompletionRequest createRequest() {
+    return new ChatCompletionRequest(new ApiProxyConfig("test-key", "test@example.com"));
+  }
+
+  @Test
+  public void testTurnsRunOneAtATimeInOrder() throws Exception {
+    actor.reset(createRequest());
+    HeldTurn first = new HeldTurn("first", started);
+    HeldTurn second = new HeldTurn("second", started);
+    CompletableFuture<ChatMessage> firstResult = actor.send(first);
+    CompletableFuture<ChatMessage> secondResult = actor.send(second);
+
+    assertEquals("first", started.poll(5, TimeUnit.SECONDS));
+    // The second turn waits for the first reply, so it is sent with it in the request
+    assertNull(started.poll(100, TimeUnit.MILLISECONDS));
+    assertEquals(2, actor.getPendingTurns());
+
+    first.answer();
+    assertEquals("first", firstResult.get(5, TimeUnit.SECONDS).getContent());
+    assertEquals("second", started.poll(5, TimeUnit.SECONDS));
+    second.answer();
+    assertEquals("second", secondResult.get(5, TimeUnit.SECONDS).getContent());
+    assertEquals(0, actor.getPendingTurns());
+  }
+
+  @Test
+  public void testEditGoesAheadOfWaitingTurns() throws Exception {
+    actor.reset(createRequest());
+    HeldTurn first = new HeldTurn("first", started);
+    HeldTurn second = new HeldTurn("second", started);
+    actor.send(first);
+    actor.send(second);
+    assertEquals("first", started.poll(5, TimeUnit.SECONDS));
+
+    actor.edit(request -> request.addMessage("system", "context"));
+    first.answer();
+
+    assertEquals("second", started.poll(5, TimeUnit.SECONDS));
+    List<ChatMessage> messages = second.request.getMessages();
+    assertEquals("context", messages.get(messages.size() - 1).getContent());
+  }
+
+  @Test
+  public void testResetCancelsTheReplyInFlightAndWaitingTurns() throws Exception {
+    actor.reset(createRequest());
+    HeldTurn first = new HeldTurn("first", started);
+    HeldTurn waiting = new HeldTurn("waiting", started);
+    CompletableFuture<ChatMessage> firstResult = actor.send(first);
+    CompletableFuture<ChatMessage> waitingResult = actor.send(waiting);
+    assertEquals("first", started.poll(5, TimeUnit.SECONDS));
+
+    ChatCompletionRequest fresh = createRequest();
+    actor.reset(fresh);
+
+    // The turn's own future is cancelled, which is what stops its request
+    assertTrue(first.reply.isCancelled());
+    assertTrue(firstResult.isCancelled());
+    assertTrue(waitingResult.isCancelled());
+
+    HeldTurn next = new HeldTurn("next", started);
+    actor.send(next);
+    assertEquals("next", started.poll(5, TimeUnit.SECONDS));
+    assertSame(fresh, next.request);
+    assertNull(waiting.request);
+  }
+
+  @Test
+  public void testCancelledTurnIsNotSent() throws Exception {
+    actor.reset(createRequest());
+    List<String> sent = new CopyOnWriteArrayList<>();
+    HeldTurn first = new HeldTurn("first", started);
+    actor.send(first);
+    CompletableFuture<ChatMessage> cancelled =
+        actor.send(
+            request -> {
+              sent.add("cancelled");
+              return CompletableFuture.completedFuture(null);
+            });
+    HeldTurn last = new HeldTurn("last", started);
+    actor.send(last);
+    assertEquals("first", started.poll(5, TimeUnit.SECONDS));
+
+    cancelled.cancel(false);
+    first.answer();
+
+    assertEquals("last", started.poll(5, TimeUnit.SECONDS));
+    assertTrue(sent.isEmpty());
+  }
+
+  @Test
+  public void testTurnWithoutRequestCompletesWithNull() throws Exception {
+    HeldTurn turn = new HeldTurn("turn", started);
+
+    assertNull(actor.send(turn).get(5, TimeUnit.SECONDS));
+    assertNull(turn.request);
+  }
+}
@@ -0,0 +1,68 @@
+package nz.ac.auckland.se206;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import nz.ac.auckland.apiproxy.chat.openai.ChatMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Times {@link GameSession#restart()} after a game of a given length. A restart happens once, at
+ * the end of a game, so each measurement is a single restart. Run the {@link #main} method against
+ * the test classpath after {@code mvn test-compile}, e.g. from the IDE.
+ *
+ * <p>The screens' own resets need a JavaFX display and are not included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 50)
+@Measurement(iterations = 200)
+@Fork(1)
+public class GameSessionRestartBenchmark {
+
+  @Param({"0", "400"})
+  public int messages;
+
+  @Setup(Level.Trial)
+  public void moveJournal() throws IOException {
+    // The restart empties the journal, so keep it away from a real game waiting to resume
+    System.setProperty("user.home", Files.createTempDirectory("restart-benchmark").toString());
+  }
+
+  @Setup(Level.Iteration)
+  public void playGame() {
+    for (int turn = 0; turn < messages / 2; turn++) {
+      ChatHistory.addMessage(
+          new ChatMessage("user", "Turn " + turn + ": where were you on the night?"),
+          ChatHistory.PLAYER);
+      ChatHistory.addMessage(
+          new ChatMessage("assistant", "Turn " + turn + ": the data was falsified."), "Echo II");
+    }
+  }
+
+  @Benchmark
+  public GameSession restart() {
+    return GameSession.restart();
+  }
+
+  public static void main(String[] args) throws Exception {
+    Options options =
+        new OptionsBuilder().include(GameSessionRestartBenchmark.class.getSimpleName()).build();
+    new Runner(options).run();
+  }
+}
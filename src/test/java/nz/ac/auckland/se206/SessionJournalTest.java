@@ -0,0 +1,128 @@
+package nz.ac.auckland.se206;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import nz.ac.auckland.apiproxy.chat.openai.ChatMessage;
+import nz.ac.auckland.se206.states.GameStateManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SessionJournalTest {
+
+  @TempDir Path directory;
+
+  private Path file;
+  private SessionJournal journal;
+
+  @BeforeEach
+  public void createJournal() {
+    file = directory.resolve("session.journal");
+    journal = new SessionJournal(file);
+  }
+
+  @AfterEach
+  public void discardJournal() {
+    journal.discard();
+  }
+
+  @Test
+  public void testRecordsAreAppendedInOrder() throws Exception {
+    journal.recordStarted();
+    journal.recordFlag("OrionScreen", true);
+    journal.recordMessage(new ChatMessage("user", "Where were you?"), ChatHistory.PLAYER);
+    awaitLines(3);
+
+    List<JsonNode> records = new SessionJournal(file).read();
+
+    assertEquals(3, records.size());
+    assertEquals("started", records.get(0).path("type").asText());
+    assertEquals("OrionScreen", records.get(1).path("name").asText());
+    assertEquals("Where were you?", records.get(2).path("content").asText());
+    assertEquals(ChatHistory.PLAYER, records.get(2).path("speaker").asText());
+  }
+
+  @Test
+  public void testReplayRestoresTheGame() throws IOException {
+    write(
+        "{\"type\":\"started\"}\n"
+            + "{\"type\":\"message\",\"role\":\"user\",\"content\":\"replayed question\","
+            + "\"speaker\":\"User\"}\n"
+            + "{\"type\":\"talked\",\"character\":\"Echo II\"}\n"
+            + "{\"type\":\"shown\",\"character\":\"Echo II\",\"text\":\"You: hello\\n\"}\n");
+
+    assertTrue(journal.replay(journal.read()));
+
+    assertTrue(journal.isResumed());
+    assertEquals("You: hello\n", journal.getTranscript("Echo II"));
+    assertTrue(GameStateManager.getInstance().hasSpokenTo("Echo II"));
+    List<ChatMessage> questions = ChatHistory.getRecentBySpeaker(ChatHistory.PLAYER, 1);
+    assertEquals(
+        "replayed question", ChatHistory.withoutSpeaker(questions.get(0), ChatHistory.PLAYER));
+  }
+
+  @Test
+  public void testUnstartedGameIsNotResumed() throws IOException {
+    write("{\"type\":\"flag\",\"name\":\"OrionScreen\",\"value\":true}\n");
+
+    assertFalse(journal.replay(journal.read()));
+    assertFalse(journal.isResumed());
+  }
+
+  @Test
+  public void testUnreadableLineIsSkipped() throws IOException {
+    String journalText =
+        "{\"type\":\"started\"}\n"
+            + "not a record\n"
+            + "{\"type\":\"visit\",\"room\":\"defendant\"}\n";
+    write(journalText);
+
+    List<JsonNode> records = journal.read();
+
+    assertEquals(2, records.size());
+    assertEquals("visit", records.get(1).path("type").asText());
+    // Only a torn last line is cut off; the records after a bad one stay in the file
+    assertEquals(journalText, Files.readString(file, StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testTornLastLineIsCutOff() throws Exception {
+    write("{\"type\":\"started\"}\n{\"type\":\"flag\",\"na");
+
+    List<JsonNode> records = journal.read();
+
+    assertEquals(1, records.size());
+    assertEquals("{\"type\":\"started\"}\n", Files.readString(file, StandardCharsets.UTF_8));
+
+    // Records appended after the resume follow the last whole one
+    journal.recordVisit("witness");
+    awaitLines(2);
+    records = new SessionJournal(file).read();
+    assertEquals(2, records.size());
+    assertEquals("witness", records.get(1).path("room").asText());
+  }
+
+  private void write(String text) throws IOException {
+    Files.writeString(file, text, StandardCharsets.UTF_8);
+  }
+
+  private void awaitLines(int count) throws IOException, InterruptedException {
+    // The writer syncs a batch at most every few hundred milliseconds
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while ((!Files.exists(file) || Files.readAllLines(file).size() < count)
+        && System.nanoTime() < deadline) {
+      Thread.sleep(20);
+    }
+    assertEquals(count, Files.readAllLines(file).size());
+  }
+}